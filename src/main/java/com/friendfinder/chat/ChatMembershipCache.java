@@ -0,0 +1,99 @@
+package com.friendfinder.chat;
+
+import com.friendfinder.exceptions.ChatNotFoundException;
+import com.friendfinder.repository.ChatRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Participant ids of recently used chats as sorted long[] sets, so the membership check on every
+// send, read and edit is a binary search instead of loading the chat and its participants.
+// Least recently used chats are evicted first. Every invalidation bumps a version, a set loaded
+// against an older version is not cached.
+@Component
+public class ChatMembershipCache {
+
+    private final ChatRepository chatRepository;
+    private final Map<Long, long[]> members;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long version;
+
+    public ChatMembershipCache(ChatRepository chatRepository,
+                               @Value("${friendfinder.chats.membership.max-chats:10000}") int maxChats) {
+        this.chatRepository = chatRepository;
+        this.members = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+                return size() > maxChats;
+            }
+        };
+    }
+
+    public boolean isMember(Long chatId, Long userId) {
+        return userId != null && Arrays.binarySearch(members(chatId), userId) >= 0;
+    }
+
+    // sorted participant ids of the chat, throws if the chat does not exist
+    public long[] members(Long chatId) {
+        long loadedAt;
+        synchronized (this) {
+            long[] cached = members.get(chatId);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+            loadedAt = version;
+        }
+        misses.incrementAndGet();
+        List<Long> ids = chatRepository.findParticipantIds(chatId);
+        if (ids.isEmpty() && !chatRepository.existsById(chatId)) {
+            throw new ChatNotFoundException("Chat" + chatId + "not found");
+        }
+        long[] loaded = ids.stream().mapToLong(Long::longValue).sorted().toArray();
+        synchronized (this) {
+            if (loadedAt == version) {
+                members.put(chatId, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    // participants changed, drop the chat now and again once the transaction making the change
+    // has finished, so a set read before the commit is not kept
+    public void invalidate(Long chatId) {
+        evict(chatId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(chatId);
+                }
+            });
+        }
+    }
+
+    private synchronized void evict(Long chatId) {
+        version++;
+        members.remove(chatId);
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public synchronized int size() {
+        return members.size();
+    }
+}
@@ -0,0 +1,23 @@
+package com.friendfinder.chat;
+
+import com.friendfinder.events.DomainEventBus;
+import com.friendfinder.events.FriendshipAccepted;
+import com.friendfinder.services.ChatService;
+import org.springframework.stereotype.Component;
+
+// Chat side effects of committed events: new friends get their direct chat
+@Component
+public class FriendshipChats {
+
+    private final ChatService chatService;
+
+    public FriendshipChats(DomainEventBus eventBus, ChatService chatService) {
+        this.chatService = chatService;
+        eventBus.subscribe(FriendshipAccepted.class, this::friendshipAccepted);
+    }
+
+    // createDirectChat returns the existing chat when there is one, so a replayed event does no harm
+    void friendshipAccepted(FriendshipAccepted event) {
+        chatService.createDirectChat(event.senderId(), event.receiverId());
+    }
+}
@@ -0,0 +1,70 @@
+package com.friendfinder.chat;
+
+import com.friendfinder.dto.MessageDTO;
+import com.friendfinder.model.Message;
+import com.friendfinder.model.User;
+import com.friendfinder.repository.ChatRepository;
+import com.friendfinder.repository.MessageRepository;
+import com.friendfinder.repository.UserRepository;
+import com.friendfinder.services.ChatActivityService;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Writes a batch of pending messages and their chats' activity rows in one transaction
+@Component
+@Transactional
+public class MessageBatchWriter {
+
+    private final MessageRepository messageRepository;
+    private final ChatRepository chatRepository;
+    private final UserRepository userRepository;
+    private final ChatActivityService chatActivityService;
+
+    public MessageBatchWriter(MessageRepository messageRepository, ChatRepository chatRepository,
+                              UserRepository userRepository, ChatActivityService chatActivityService) {
+        this.messageRepository = messageRepository;
+        this.chatRepository = chatRepository;
+        this.userRepository = userRepository;
+        this.chatActivityService = chatActivityService;
+    }
+
+    // the written messages with their ids, in batch order
+    public List<MessageDTO> write(List<PendingMessage> batch) {
+        // senders of the whole batch in one query
+        Map<Long, User> senders = new HashMap<>();
+        userRepository.findAllById(batch.stream().map(PendingMessage::senderId).distinct().toList())
+                .forEach(user -> senders.put(user.getUserId(), user));
+
+        List<Message> messages = new ArrayList<>(batch.size());
+        for (PendingMessage pending : batch) {
+            User sender = senders.get(pending.senderId());
+            if (sender == null) {
+                throw new DataIntegrityViolationException("User with id " + pending.senderId() + " no longer exists");
+            }
+            Message message = new Message(chatRepository.getReferenceById(pending.chatId()), sender,
+                    pending.content(), pending.messageType());
+            message.setTimestamp(pending.timestamp());
+            message.setSequence(pending.sequence());
+            messages.add(message);
+        }
+        List<Message> saved = messageRepository.saveAll(messages);
+        chatActivityService.messagesSaved(saved);
+
+        List<MessageDTO> written = new ArrayList<>(saved.size());
+        for (Message message : saved) {
+            written.add(new MessageDTO(message));
+        }
+        return written;
+    }
+
+    @Transactional(readOnly = true)
+    public boolean isWritten(PendingMessage pending) {
+        return messageRepository.existsByChatChatIdAndSequence(pending.chatId(), pending.sequence());
+    }
+}
@@ -0,0 +1,159 @@
+package com.friendfinder.chat;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Append-only journal of messages that were accepted but are not in the database yet, so they can
+// still be written after a crash. Entries go to numbered segment files of a fixed size. A full segment
+// is deleted once every message in it is written, the current one is emptied whenever it catches up.
+final class MessageJournal implements Closeable {
+
+    private static final String PREFIX = "messages-";
+    private static final String SUFFIX = ".journal";
+
+    private final Path directory;
+    private final boolean fsync;
+    private final int segmentSize;
+    // entries per segment that are not written yet
+    private final Map<Long, Integer> outstanding = new HashMap<>();
+    private long segment;
+    private int entries;
+    private FileChannel channel;
+
+    // starts a new segment after any left by an earlier run, read those with read before appending
+    MessageJournal(Path directory, boolean fsync, int segmentSize) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.fsync = fsync;
+        this.segmentSize = Math.max(1, segmentSize);
+        this.segment = segments(directory).stream().mapToLong(MessageJournal::number).max().orElse(0) + 1;
+        this.channel = open(segment);
+    }
+
+    // returns the segment the entry went to, hand it to written once the message is stored or dropped
+    synchronized long append(PendingMessage message) {
+        try {
+            if (entries == segmentSize) {
+                roll();
+            }
+            ByteBuffer line = ByteBuffer.wrap((message.toJournalLine() + "\n").getBytes(StandardCharsets.UTF_8));
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not journal message for chat " + message.chatId(), e);
+        }
+        entries++;
+        outstanding.merge(segment, 1, Integer::sum);
+        return segment;
+    }
+
+    synchronized void written(long segmentNumber) {
+        Integer left = outstanding.get(segmentNumber);
+        if (left == null) {
+            return;
+        }
+        if (left > 1) {
+            outstanding.put(segmentNumber, left - 1);
+            return;
+        }
+        outstanding.remove(segmentNumber);
+        try {
+            if (segmentNumber == segment) {
+                channel.truncate(0);
+                entries = 0;
+            } else {
+                Files.deleteIfExists(path(segmentNumber));
+            }
+        } catch (IOException e) {
+            // the entries are replayed and skipped as already written on the next start
+            System.out.println("Could not clean up message journal segment " + segmentNumber + ": " + e.getMessage());
+        }
+    }
+
+    // entries left by an earlier run, oldest segment first, unreadable lines are skipped
+    synchronized List<PendingMessage> readPrevious() throws IOException {
+        List<PendingMessage> messages = new ArrayList<>();
+        for (Path file : segments(directory)) {
+            if (number(file) >= segment) {
+                continue;
+            }
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                PendingMessage message = PendingMessage.fromJournalLine(line);
+                if (message != null) {
+                    messages.add(message);
+                }
+            }
+        }
+        return messages;
+    }
+
+    // drop the segments of an earlier run once they have been replayed
+    synchronized void deletePrevious() throws IOException {
+        for (Path file : segments(directory)) {
+            if (number(file) < segment) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void roll() throws IOException {
+        channel.close();
+        long full = segment;
+        segment++;
+        entries = 0;
+        channel = open(segment);
+        if (!outstanding.containsKey(full)) {
+            Files.deleteIfExists(path(full));
+        }
+    }
+
+    private FileChannel open(long number) throws IOException {
+        return FileChannel.open(path(number), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path path(long number) {
+        return directory.resolve(PREFIX + number + SUFFIX);
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> number(file) > 0)
+                    .sorted((a, b) -> Long.compare(number(a), number(b)))
+                    .toList();
+        }
+    }
+
+    // segment number from the file name, 0 for files that are not segments
+    private static long number(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
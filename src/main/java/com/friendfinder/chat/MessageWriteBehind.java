@@ -0,0 +1,308 @@
+package com.friendfinder.chat;
+
+import com.friendfinder.dto.MessageDTO;
+import com.friendfinder.model.Message;
+import com.friendfinder.services.ChatSequenceService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Optional write-behind for sent messages, enabled with friendfinder.chats.write-behind.enabled.
+// A sent message gets its chat sequence number in memory and is handed back for broadcasting at
+// once, without an id. Worker threads write the queued messages in batches, flushing when a batch is
+// full or the flush interval has passed, and broadcast every message again with its id once it is
+// stored. A chat always goes to the same worker, so its messages are written in sequence order.
+//
+// Durability decides what a crash can lose: none keeps queued messages only in memory, journal
+// appends them to a local file first (survives the process dying), fsync also forces every append
+// to disk (survives the machine dying). Journaled messages are written on the next start.
+@Component
+@DependsOn("sequenceMigration")  // the journal is replayed on start
+public class MessageWriteBehind {
+
+    public enum Durability { NONE, JOURNAL, FSYNC }
+
+    private final MessageBatchWriter writer;
+    private final ChatSequenceService sequenceService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Durability durability;
+    private final Path journalDirectory;
+    private final int segmentSize;
+    private final Worker[] workers;
+    private final AtomicLong pending = new AtomicLong();
+    private MessageJournal journal;
+    private volatile boolean running;
+
+    public MessageWriteBehind(MessageBatchWriter writer, ChatSequenceService sequenceService,
+                              SimpMessagingTemplate messagingTemplate,
+                              @Value("${friendfinder.chats.write-behind.enabled:false}") boolean enabled,
+                              @Value("${friendfinder.chats.write-behind.batch-size:200}") int batchSize,
+                              @Value("${friendfinder.chats.write-behind.flush-interval-ms:20}") long flushIntervalMs,
+                              @Value("${friendfinder.chats.write-behind.workers:2}") int workers,
+                              @Value("${friendfinder.chats.write-behind.queue-capacity:10000}") int queueCapacity,
+                              @Value("${friendfinder.chats.write-behind.durability:journal}") String durability,
+                              @Value("${friendfinder.chats.write-behind.journal-dir:./db/message-journal}") String journalDirectory,
+                              @Value("${friendfinder.chats.write-behind.segment-size:10000}") int segmentSize) {
+        if (batchSize < 1 || flushIntervalMs < 1 || workers < 1 || queueCapacity < 1) {
+            throw new IllegalStateException("Write-behind batch size, flush interval, workers and queue capacity must be positive");
+        }
+        try {
+            this.durability = Durability.valueOf(durability.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Unknown write-behind durability: " + durability);
+        }
+        this.writer = writer;
+        this.sequenceService = sequenceService;
+        this.messagingTemplate = messagingTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.journalDirectory = Path.of(journalDirectory);
+        this.segmentSize = segmentSize;
+        this.workers = new Worker[workers];
+        for (int i = 0; i < workers; i++) {
+            this.workers[i] = new Worker(queueCapacity);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // write what an earlier run left in the journal, then start the workers. Runs before the web
+    // server accepts requests, so no new sequence number is handed out below a journaled one.
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (durability != Durability.NONE) {
+            journal = new MessageJournal(journalDirectory, durability == Durability.FSYNC, segmentSize);
+            int kept = replay(journal.readPrevious());
+            if (kept == 0) {
+                journal.deletePrevious();
+            } else {
+                System.out.println("Keeping the message journal, " + kept + " messages could not be written");
+            }
+        }
+        running = true;
+        for (int i = 0; i < workers.length; i++) {
+            Thread thread = new Thread(workers[i], "message-write-behind-" + i);
+            thread.setDaemon(true);
+            workers[i].thread = thread;
+            thread.start();
+        }
+    }
+
+    // stop taking messages and write everything still queued
+    @PreDestroy
+    public void stop() throws IOException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        for (Worker worker : workers) {
+            try {
+                worker.thread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    // give the message its sequence number and queue it, returns it as sent without a message id.
+    // Blocks while the chat's worker queue is full.
+    public MessageDTO submit(Message message) {
+        if (!running) {
+            throw new IllegalStateException("Write-behind is not running");
+        }
+        long chatId = message.getChat().getChatId();
+        Worker worker = workers[(int) Math.floorMod(chatId, (long) workers.length)];
+        // numbers, timestamps and queue order must agree within a chat
+        synchronized (worker) {
+            long sequence = sequenceService.allocate(chatId);
+            message.setSequence(sequence);
+            message.setTimestamp(LocalDateTime.now());
+            PendingMessage pendingMessage = PendingMessage.of(message);
+            try {
+                long segment = journal != null ? journal.append(pendingMessage) : 0;
+                pending.incrementAndGet();
+                worker.queue.put(new Entry(pendingMessage, segment));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pending.decrementAndGet();
+                sequenceService.completed(chatId, sequence);
+                throw new IllegalStateException("Interrupted while queueing message for chat " + chatId);
+            } catch (RuntimeException e) {
+                sequenceService.completed(chatId, sequence);
+                throw e;
+            }
+        }
+        return new MessageDTO(message);
+    }
+
+    // messages accepted but not written yet
+    public long pending() {
+        return pending.get();
+    }
+
+    // wait until everything accepted so far is written, false on timeout
+    public boolean awaitWritten(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (pending.get() > 0) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    // write journaled messages that did not make it to the database, in batches. Returns how many
+    // could not be written and have to stay in the journal.
+    int replay(List<PendingMessage> journaled) {
+        List<PendingMessage> missing = new ArrayList<>();
+        for (PendingMessage message : journaled) {
+            if (!writer.isWritten(message)) {
+                missing.add(message);
+            }
+        }
+        int written = 0;
+        int kept = 0;
+        for (int from = 0; from < missing.size(); from += batchSize) {
+            List<PendingMessage> batch = missing.subList(from, Math.min(missing.size(), from + batchSize));
+            boolean[] keep = new boolean[batch.size()];
+            written += write(batch, keep).size();
+            for (boolean k : keep) {
+                kept += k ? 1 : 0;
+            }
+        }
+        if (written > 0) {
+            System.out.println("Wrote " + written + " messages left in the message journal");
+        }
+        return kept;
+    }
+
+    private void flush(List<Entry> batch) {
+        List<PendingMessage> messages = new ArrayList<>(batch.size());
+        for (Entry entry : batch) {
+            messages.add(entry.message());
+        }
+        boolean[] keep = new boolean[messages.size()];
+        List<MessageDTO> written = write(messages, keep);
+
+        for (int i = 0; i < batch.size(); i++) {
+            Entry entry = batch.get(i);
+            sequenceService.completed(entry.message().chatId(), entry.message().sequence());
+            if (journal != null && !keep[i]) {
+                journal.written(entry.segment());
+            }
+        }
+        pending.addAndGet(-batch.size());
+        for (MessageDTO message : written) {
+            messagingTemplate.convertAndSend("/topic/chat/" + message.getChatId(), message);
+        }
+    }
+
+    // one transaction for the batch. If it fails the messages are retried one at a time so a single
+    // bad one, such as a message to a chat deleted in the meantime, does not hold up the rest. Messages
+    // that fail for any other reason than a constraint are flagged in keep and stay in the journal.
+    private List<MessageDTO> write(List<PendingMessage> messages, boolean[] keep) {
+        try {
+            return writer.write(messages);
+        } catch (RuntimeException e) {
+            List<MessageDTO> written = new ArrayList<>();
+            for (int i = 0; i < messages.size(); i++) {
+                PendingMessage message = messages.get(i);
+                try {
+                    written.addAll(writer.write(List.of(message)));
+                } catch (RuntimeException failed) {
+                    keep[i] = !(failed instanceof DataIntegrityViolationException);
+                    System.out.println("Could not write message " + message.sequence() + " of chat "
+                            + message.chatId() + ": " + failed.getMessage());
+                }
+            }
+            return written;
+        }
+    }
+
+    private record Entry(PendingMessage message, long segment) {
+    }
+
+    private final class Worker implements Runnable {
+
+        private final BlockingQueue<Entry> queue;
+        private Thread thread;
+
+        private Worker(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        @Override
+        public void run() {
+            List<Entry> batch = new ArrayList<>(batchSize);
+            while (running || !queue.isEmpty()) {
+                try {
+                    Entry first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    // fill the batch until it is full or the flush interval is up
+                    long deadline = System.nanoTime() + flushIntervalNanos;
+                    while (batch.size() < batchSize) {
+                        queue.drainTo(batch, batchSize - batch.size());
+                        long wait = deadline - System.nanoTime();
+                        if (batch.size() == batchSize || wait <= 0) {
+                            break;
+                        }
+                        Entry next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                } catch (InterruptedException e) {
+                    // write what was taken, anything still queued is replayed from the journal
+                    Thread.currentThread().interrupt();
+                    flushQuietly(batch);
+                    return;
+                }
+                flushQuietly(batch);
+            }
+        }
+
+        private void flushQuietly(List<Entry> batch) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                flush(batch);
+            } catch (RuntimeException e) {
+                System.out.println("Message write-behind flush failed: " + e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+}
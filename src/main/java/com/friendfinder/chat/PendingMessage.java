@@ -0,0 +1,41 @@
+package com.friendfinder.chat;
+
+import com.friendfinder.model.Message;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// A sent message waiting to be written by the write-behind pipeline. It already has its chat
+// sequence number but no message id yet.
+public record PendingMessage(long chatId, long senderId, long sequence, LocalDateTime timestamp,
+                             String messageType, String content) {
+
+    public static PendingMessage of(Message message) {
+        return new PendingMessage(message.getChat().getChatId(), message.getSender().getUserId(),
+                message.getSequence(), message.getTimestamp(), message.getMessageType(), message.getContent());
+    }
+
+    // one tab separated line, the content is Base64 so it can hold tabs and newlines
+    public String toJournalLine() {
+        return chatId + "\t" + senderId + "\t" + sequence + "\t" + timestamp + "\t" + messageType + "\t"
+                + Base64.getEncoder().encodeToString(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // null for a line that cannot be read, such as the half written last line after a crash
+    public static PendingMessage fromJournalLine(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length != 6) {
+            return null;
+        }
+        try {
+            return new PendingMessage(Long.parseLong(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                    LocalDateTime.parse(fields[3]), fields[4],
+                    new String(Base64.getDecoder().decode(fields[5]), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // bad number or Base64, or a cut off timestamp
+            return null;
+        }
+    }
+}
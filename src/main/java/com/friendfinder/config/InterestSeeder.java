@@ -4,9 +4,11 @@ import com.friendfinder.model.Interest;
 import com.friendfinder.model.User;
 import com.friendfinder.repository.InterestRepository;
 import com.friendfinder.repository.UserRepository;
+import com.friendfinder.suggestion.InterestIndex;
 import jakarta.transaction.Transactional;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
+import java.util.ArrayList;
 import java.util.List;
 
 @Component
@@ -14,10 +16,13 @@ public class InterestSeeder implements CommandLineRunner {
 
     private final InterestRepository interestRepository;
     private final UserRepository userRepository;
+    private final InterestIndex interestIndex;
 
-    public InterestSeeder(InterestRepository interestRepository, UserRepository userRepository) {
+    public InterestSeeder(InterestRepository interestRepository, UserRepository userRepository,
+                          InterestIndex interestIndex) {
         this.interestRepository = interestRepository;
         this.userRepository = userRepository;
+        this.interestIndex = interestIndex;
     }
 
     @Override
@@ -35,20 +40,29 @@ public class InterestSeeder implements CommandLineRunner {
                 .toList();
 
         List<User> users = (List<User>) userRepository.findAll();
+        List<User> changed = new ArrayList<>();
         for (User user : users) {
-            user.getInterests().removeAll(toRemove);
+            if (user.getInterests().removeAll(toRemove)) {
+                changed.add(user);
+            }
         }
         userRepository.saveAll(users);
 
+        // keep the user counts per interest in the index in step with the removed memberships
+        for (User user : changed) {
+            interestIndex.update(user.getUserId(), user.getInterests());
+        }
+
         interestRepository.deleteAll(toRemove);
 
+        // missing interests are inserted together in one batch
+        List<Interest> missing = new ArrayList<>();
         for (String name : seedNames) {
             if (!interestRepository.existsByName(name)) {
-                Interest interest = new Interest();
-                interest.setName(name);
-                interestRepository.save(interest);
+                missing.add(createInterest(name));
             }
         }
+        interestRepository.saveAll(missing);
 
         System.out.println("Interests synchronized with seed list");
     }
@@ -0,0 +1,31 @@
+package com.friendfinder.config;
+
+import com.friendfinder.services.ChatActivityService;
+import com.friendfinder.services.ChatReadCursorService;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+// fills in chat_activity and chat_read_cursors for data written before those tables existed
+@Component
+public class ReadModelBackfill implements CommandLineRunner {
+
+    private final ChatActivityService chatActivityService;
+    private final ChatReadCursorService chatReadCursorService;
+
+    public ReadModelBackfill(ChatActivityService chatActivityService, ChatReadCursorService chatReadCursorService) {
+        this.chatActivityService = chatActivityService;
+        this.chatReadCursorService = chatReadCursorService;
+    }
+
+    @Override
+    public void run(String... args) {
+        int activity = chatActivityService.backfill();
+        if (activity > 0) {
+            System.out.println("Backfilled chat activity for " + activity + " chats");
+        }
+        int cursors = chatReadCursorService.backfill();
+        if (cursors > 0) {
+            System.out.println("Backfilled " + cursors + " read cursors from read receipts");
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.friendfinder.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+// Versioned schema migrations. The scripts in db/migration are named V<version>__<description>.sql
+// and run once each in version order, before JPA starts. Every applied script is recorded in
+// schema_history with a checksum, and a script that was changed after it ran stops the startup.
+// Hibernate only validates the entities against the result, and the indexes the hot queries rely
+// on are checked to exist, so their plans do not depend on what ddl-auto happened to create.
+@Component
+public class SchemaMigrations {
+
+    private static final Pattern SCRIPT = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    // indexes the message, inbox and friend queries are written against
+    static final List<String> REQUIRED_INDEXES = List.of(
+            "idx_message_chat_timestamp",
+            "idx_message_chat_message",
+            "idx_message_chat_seq",
+            "idx_chat_activity_last_activity",
+            "idx_chat_participants_user",
+            "uk_read_receipt_message_user",
+            "uk_friend_request_pair",
+            "uk_friends_relation_pair",
+            "uk_chat_direct_pair",
+            "uk_user_email"
+    );
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final String location;
+
+    public SchemaMigrations(DataSource dataSource,
+                            @Value("${friendfinder.schema.migrations:classpath:db/migration}") String location) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.location = location;
+    }
+
+    // the entity manager validates the schema when it starts, so it has to wait for the migrations
+    @Bean
+    static EntityManagerFactoryDependsOnPostProcessor schemaMigrationsBeforeJpa() {
+        return new EntityManagerFactoryDependsOnPostProcessor("schemaMigrations");
+    }
+
+    @PostConstruct
+    public void migrate() throws IOException, SQLException {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS schema_history ("
+                + "version INT NOT NULL PRIMARY KEY, "
+                + "description VARCHAR(200) NOT NULL, "
+                + "checksum BIGINT NOT NULL, "
+                + "installed_on TIMESTAMP NOT NULL)");
+        Map<Integer, Long> applied = new HashMap<>();
+        jdbcTemplate.query("SELECT version, checksum FROM schema_history",
+                (RowCallbackHandler) row -> applied.put(row.getInt(1), row.getLong(2)));
+
+        for (Map.Entry<Integer, Resource> script : scripts().entrySet()) {
+            int version = script.getKey();
+            Resource resource = script.getValue();
+            long checksum = checksum(resource);
+            if (applied.containsKey(version)) {
+                if (applied.get(version) != checksum) {
+                    throw new IllegalStateException("Migration " + resource.getFilename()
+                            + " was changed after it was applied, add a new version instead");
+                }
+                continue;
+            }
+            apply(version, resource, checksum);
+            System.out.println("Applied schema migration " + resource.getFilename());
+        }
+        verifyIndexes();
+    }
+
+    // the latest version applied, 0 on an empty database
+    public int currentVersion() {
+        Integer version = jdbcTemplate.queryForObject("SELECT MAX(version) FROM schema_history", Integer.class);
+        return version != null ? version : 0;
+    }
+
+    private TreeMap<Integer, Resource> scripts() throws IOException {
+        TreeMap<Integer, Resource> scripts = new TreeMap<>();
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources(location + "/V*__*.sql");
+        for (Resource resource : resources) {
+            Matcher matcher = SCRIPT.matcher(resource.getFilename());
+            if (!matcher.matches()) {
+                throw new IllegalStateException("Migration " + resource.getFilename() + " is not named V<version>__<description>.sql");
+            }
+            Resource previous = scripts.put(Integer.parseInt(matcher.group(1)), resource);
+            if (previous != null) {
+                throw new IllegalStateException("Migrations " + previous.getFilename() + " and "
+                        + resource.getFilename() + " have the same version");
+            }
+        }
+        return scripts;
+    }
+
+    // the script and its history row in one transaction where the database allows it
+    private void apply(int version, Resource resource, long checksum) throws SQLException {
+        Matcher matcher = SCRIPT.matcher(resource.getFilename());
+        matcher.matches();
+        String description = matcher.group(2).replace('_', ' ');
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                ScriptUtils.executeSqlScript(connection, new EncodedResource(resource, StandardCharsets.UTF_8));
+                try (var insert = connection.prepareStatement(
+                        "INSERT INTO schema_history (version, description, checksum, installed_on) VALUES (?, ?, ?, ?)")) {
+                    insert.setInt(1, version);
+                    insert.setString(2, description);
+                    insert.setLong(3, checksum);
+                    insert.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+                    insert.executeUpdate();
+                }
+                connection.commit();
+            } catch (RuntimeException | SQLException e) {
+                connection.rollback();
+                throw new IllegalStateException("Migration " + resource.getFilename() + " failed", e);
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private void verifyIndexes() {
+        Set<String> present = new HashSet<>();
+        for (String name : jdbcTemplate.queryForList("SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES", String.class)) {
+            present.add(name.toLowerCase());
+        }
+        List<String> missing = new ArrayList<>();
+        for (String index : REQUIRED_INDEXES) {
+            if (!present.contains(index)) {
+                missing.add(index);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Schema is missing the indexes " + missing);
+        }
+    }
+
+    private static long checksum(Resource resource) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = resource.getInputStream()) {
+            crc.update(in.readAllBytes());
+        }
+        return crc.getValue();
+    }
+}
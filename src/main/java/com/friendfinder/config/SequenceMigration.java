@@ -0,0 +1,68 @@
+package com.friendfinder.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Ids come from sequences that hand out blocks as large as their increment, 50 for the pooled ones and
+// 1 for friend requests. A database written while the tables still used identity columns gets fresh
+// sequences starting at 1, so every sequence that is behind its table is moved past the largest id
+// before anything is inserted. Runs right after
+// SchemaMigrations, whose scripts create the sequences, and does nothing on a database that is already
+// in step. Hibernate only validates the schema, so it has no part in this.
+@Component
+@DependsOn("schemaMigrations")
+public class SequenceMigration {
+
+    // sequence, table and id column of every entity with a generated id
+    private static final List<String[]> SEQUENCES = List.of(
+            new String[]{"chat_seq", "chat", "chat_id"},
+            new String[]{"message_seq", "message", "message_id"},
+            new String[]{"message_read_receipt_seq", "message_read_receipt", "id"},
+            new String[]{"interest_seq", "interest_table", "interest_id"},
+            new String[]{"user_seq", "user_table", "user_id"},
+            new String[]{"friend_request_seq", "friend_requests", "id"},
+            new String[]{"dislike_seq", "dislikes", "id"},
+            new String[]{"message_tombstone_seq", "message_tombstones", "id"},
+            new String[]{"chat_read_cursor_seq", "chat_read_cursors", "id"},
+            new String[]{"outbox_event_seq", "outbox_events", "id"}
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SequenceMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        for (String[] sequence : SEQUENCES) {
+            long restartAt = restartValue(sequence[0], sequence[1], sequence[2]);
+            if (restartAt > 0) {
+                jdbcTemplate.execute("ALTER SEQUENCE " + sequence[0] + " RESTART WITH " + restartAt);
+                System.out.println("Moved sequence " + sequence[0] + " past the ids in " + sequence[1]);
+            }
+        }
+    }
+
+    // the value to restart the sequence at, 0 when it is already ahead of the table. Hibernate treats a
+    // value as the top of a block of increment ids, so the next block starts right after maxId.
+    private long restartValue(String sequence, String table, String idColumn) {
+        List<long[]> next = jdbcTemplate.query(
+                "SELECT BASE_VALUE, INCREMENT FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = UPPER(?)",
+                (row, i) -> new long[]{row.getLong(1), row.getLong(2)}, sequence);
+        if (next.isEmpty()) {
+            return 0;
+        }
+        long base = next.get(0)[0];
+        long increment = next.get(0)[1];
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(" + idColumn + ") FROM " + table, Long.class);
+        if (maxId == null || base >= maxId + increment) {
+            return 0;
+        }
+        return maxId + increment;
+    }
+}
@@ -13,9 +13,6 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.ArrayList;
-import java.util.List;
-
 @Controller
 public class AppController {
 
@@ -47,14 +44,8 @@ public class AppController {
         var friends = friendService.getFriends(currentUser);
         model.addAttribute("friends", friends);
 
-        var disliked = (List<String>) session.getAttribute("disliked");
-        var potentialFriends = userService.findPotentialFriends(currentUser.getEmail(), disliked);
-        if (potentialFriends.isEmpty()) {
-            model.addAttribute("firstPotential", null);
-        }
-        else {
-            model.addAttribute("firstPotential", potentialFriends.get(0));
-        }
+        // head of the user's precomputed suggestion queue
+        model.addAttribute("firstPotential", userService.nextSuggestion(currentUser.getEmail()));
 
         return "index";
     }
@@ -78,13 +69,7 @@ public class AppController {
         var auth = (AuthenticatorService.Auth) session.getAttribute("auth");
         if (auth == null) return "redirect:/login";
 
-        List<String> disliked = (List<String>) session.getAttribute("disliked");
-        if (disliked == null) {
-            disliked = new ArrayList<>();
-        }
-        disliked.add(email.toLowerCase());
-        session.setAttribute("disliked", disliked);
-
+        userService.dislikeUser(auth.user().getUserId(), email);
         return "redirect:/";
     }
 
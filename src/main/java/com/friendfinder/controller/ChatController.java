@@ -1,7 +1,10 @@
 package com.friendfinder.controller;
 
 import com.friendfinder.dto.ChatDTO;
+import com.friendfinder.dto.ChatSyncDTO;
 import com.friendfinder.dto.MessageDTO;
+import com.friendfinder.dto.MessagePageDTO;
+import com.friendfinder.dto.ReadCursorDTO;
 import com.friendfinder.dto.request.*;
 import com.friendfinder.exceptions.*;
 import com.friendfinder.services.ChatService;
@@ -113,17 +116,22 @@ public class ChatController {
 
 
 
-    // Hent alle beskeder i en given chat
+    // Hent en side af beskederne i en given chat, nyeste side uden before/after
     @GetMapping("/{chatId}/messages")
-    public ResponseEntity<List<MessageDTO>> getChatMessages(@PathVariable Long chatId,
-                                            @RequestParam("userId") Long requestingUserId) {
+    public ResponseEntity<MessagePageDTO> getChatMessages(@PathVariable Long chatId,
+                                            @RequestParam("userId") Long requestingUserId,
+                                            @RequestParam(value = "before", required = false) String before,
+                                            @RequestParam(value = "after", required = false) String after,
+                                            @RequestParam(value = "limit", defaultValue = "50") int limit) {
         try{
-            List<MessageDTO> messages = messageService.getChatMessages(chatId, requestingUserId);
-            return ResponseEntity.ok(messages);
+            MessagePageDTO page = messageService.getChatMessages(chatId, requestingUserId, before, after, limit);
+            return ResponseEntity.ok(page);
         } catch (ChatNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-        } catch (UnauthorizedMessageAccessException | UserNotFoundException e) {
+        } catch (UnauthorizedMessageAccessException | UserNotFoundException | UserNotInChatException e) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         }
     }
 
@@ -143,7 +151,9 @@ public class ChatController {
             String destination = "/topic/chat/" + saved.getChatId();
             messagingTemplate.convertAndSend(destination, saved);
 
-            return ResponseEntity.status(HttpStatus.CREATED).body(saved);
+            // with write-behind the message has no id until it is written
+            HttpStatus status = messageService.isWriteBehind() ? HttpStatus.ACCEPTED : HttpStatus.CREATED;
+            return ResponseEntity.status(status).body(saved);
         } catch (ChatNotFoundException | UserNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         } catch (UserNotInChatException | UnauthorizedMessageAccessException e) {
@@ -168,6 +178,39 @@ public class ChatController {
         }
     }
 
+    // everything that changed in the chat since the client's sequence numbers, used after a reconnect
+    @GetMapping("/{chatId}/sync")
+    public ResponseEntity<ChatSyncDTO> syncChat(@PathVariable Long chatId,
+                                                @RequestParam("userId") Long userId,
+                                                @RequestParam("since") long since,
+                                                @RequestParam(value = "readSince", defaultValue = "0") long readSince) {
+        try {
+            return ResponseEntity.ok(messageService.syncChat(chatId, userId, since, readSince));
+        } catch (ChatNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (UserNotInChatException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
+    // mark everything in the chat up to the message as read in one call
+    @PostMapping("/{chatId}/read")
+    public ResponseEntity<ReadCursorDTO> markReadUpToHttp(@PathVariable Long chatId,
+                                                          @RequestParam("userId") Long userId,
+                                                          @RequestParam("upTo") Long messageId) {
+        try {
+            ReadCursorDTO cursor = new ReadCursorDTO(messageService.markChatReadUpTo(chatId, userId, messageId));
+            messagingTemplate.convertAndSend("/topic/chat/" + chatId + "/read", cursor);
+            return ResponseEntity.ok(cursor);
+        } catch (ChatNotFoundException | MessageNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (UserNotInChatException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+    }
+
     @PutMapping("/messages/{messageId}")
     public ResponseEntity<MessageDTO> editMessage(@PathVariable Long messageId,
                                                   @RequestParam("userId") Long userId,
@@ -236,6 +279,21 @@ public class ChatController {
         }
     }
 
+    @MessageMapping("/chat.readUpTo")
+    public void markReadUpToWebSocket(@Payload ReadUpToRequest request) {
+        if (request.getChatID() == null || request.getUserID() == null || request.getMessageID() == null) {
+            throw new IllegalArgumentException("chatId, userId and messageId required");
+        }
+
+        try {
+            ReadCursorDTO cursor = new ReadCursorDTO(messageService.markChatReadUpTo(
+                    request.getChatID(), request.getUserID(), request.getMessageID()));
+            messagingTemplate.convertAndSend("/topic/chat/" + cursor.getChatId() + "/read", cursor);
+        } catch (Exception e) {
+            sendErrorToUser(request.getUserID(), "Failed to mark as read");
+        }
+    }
+
     @MessageMapping("/chat.join")
     public void userJoinChat(@Payload JoinChatRequest request) {
         if (request.getChatID() == null || request.getUserID() == null) {
@@ -0,0 +1,45 @@
+package com.friendfinder.controller;
+
+import com.friendfinder.dto.FriendConnectionDTO;
+import com.friendfinder.model.User;
+import com.friendfinder.repository.UserRepository;
+import com.friendfinder.services.AuthenticatorService;
+import com.friendfinder.services.FriendService;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/friends")
+public class FriendConnectionController {
+
+    private final FriendService friendService;
+    private final UserRepository userRepo;
+
+    public FriendConnectionController(FriendService friendService, UserRepository userRepo) {
+        this.friendService = friendService;
+        this.userRepo = userRepo;
+    }
+
+    // "how do I know this person": mutual friends and the shortest friendship path to another user
+    @GetMapping("/{userId}/connection")
+    public ResponseEntity<FriendConnectionDTO> getConnection(@PathVariable Long userId,
+                                                             @RequestParam(value = "depth", required = false) Integer depth,
+                                                             HttpSession session) {
+        var auth = (AuthenticatorService.Auth) session.getAttribute("auth");
+        if (auth == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (depth != null && depth < 1) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        User other = userRepo.findById(userId).orElse(null);
+        if (other == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        int maxDepth = depth != null ? depth : friendService.getMaxPathDepth();
+        return ResponseEntity.ok(friendService.getConnection(auth.user(), other, maxDepth));
+    }
+}
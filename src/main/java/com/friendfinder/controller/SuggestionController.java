@@ -0,0 +1,44 @@
+package com.friendfinder.controller;
+
+import com.friendfinder.dto.SuggestionPageDTO;
+import com.friendfinder.services.AuthenticatorService;
+import com.friendfinder.services.UserService;
+import com.friendfinder.suggestion.SuggestionCursor;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/suggestions")
+public class SuggestionController {
+
+    private static final int MAX_LIMIT = 50;
+
+    private final UserService userService;
+
+    public SuggestionController(UserService userService) {
+        this.userService = userService;
+    }
+
+    // top suggestions for the logged in user, pass nextCursor back to get the following page
+    @GetMapping
+    public ResponseEntity<SuggestionPageDTO> getSuggestions(@RequestParam(value = "limit", defaultValue = "10") int limit,
+                                                            @RequestParam(value = "cursor", required = false) String cursor,
+                                                            HttpSession session) {
+        var auth = (AuthenticatorService.Auth) session.getAttribute("auth");
+        if (auth == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+
+        try {
+            var page = userService.suggestFriends(auth.user().getEmail(), SuggestionCursor.fromToken(cursor), limit);
+            return ResponseEntity.ok(new SuggestionPageDTO(page));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+}
@@ -90,14 +90,15 @@ public class UserController {
         }
 
         User currentUser = auth.user();
-        model.addAttribute("users", userService.findAllUsers());
+        var users = userService.findAllUsers();
+        model.addAttribute("users", users);
         model.addAttribute("currentUser", currentUser);
 
         // Liste af e-mails som brugeren allerede har sendt requests til
         var sentRequests = friendService.getPendingRequestsAsSender(currentUser)
                 .stream()
                 .map(req -> req.getReceiver().getEmail())
-                .toList();
+                .collect(Collectors.toSet());
         model.addAttribute("sentRequestEmails", sentRequests);
 
         // Liste af modtaget requests
@@ -106,7 +107,7 @@ public class UserController {
         // Liste af e-mails som brugeren allerede har modtaget requests fra
         var receivedRequestEmails = receivedRequests.stream()
                 .map(req -> req.getSender().getEmail())
-                .toList();
+                .collect(Collectors.toSet());
         model.addAttribute("receivedRequestEmails", receivedRequestEmails);
 
         // map senderEmail -> requestId
@@ -117,12 +118,8 @@ public class UserController {
                 ));
         model.addAttribute("receivedRequestIdByEmail", receivedRequestIdByEmail);
 
-        // Liste af e-mails som allerede er venner
-        var friendEmails = friendService.getFriends(currentUser)
-                .stream()
-                .map(User::getEmail)
-                .toList();
-        model.addAttribute("friendEmails", friendEmails);
+        // ids of the listed users that are already friends, checked row by row against the friendship set
+        model.addAttribute("friendIds", friendService.friendIdsAmong(currentUser, users));
 
         return "users";
     }
@@ -0,0 +1,74 @@
+package com.friendfinder.dto;
+
+import java.util.List;
+
+// Everything that changed in a chat after the client's sequence numbers: messages sent or edited and
+// ids of deleted messages after sequence, read cursors that moved after readSequence. Continue from
+// both next time, and straight away while hasMore is set.
+public class ChatSyncDTO {
+    private Long chatId;
+    private long sequence;
+    private boolean hasMore;
+    private List<MessageDTO> messages;
+    private List<Long> deletedMessageIds;
+    private List<ReadCursorDTO> readCursors;
+    private long readSequence;
+
+    public ChatSyncDTO() {
+    } // Required for JSON deserialization
+
+    public ChatSyncDTO(Long chatId, long sequence, boolean hasMore, List<MessageDTO> messages,
+                       List<Long> deletedMessageIds, List<ReadCursorDTO> readCursors, long readSequence) {
+        this.chatId = chatId;
+        this.sequence = sequence;
+        this.hasMore = hasMore;
+        this.messages = messages;
+        this.deletedMessageIds = deletedMessageIds;
+        this.readCursors = readCursors;
+        this.readSequence = readSequence;
+    }
+
+    // getters and setters
+    public Long getChatId() {
+        return chatId;
+    }
+    public void setChatId(Long chatId) {
+        this.chatId = chatId;
+    }
+    public long getSequence() {
+        return sequence;
+    }
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+    public boolean isHasMore() {
+        return hasMore;
+    }
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+    public List<MessageDTO> getMessages() {
+        return messages;
+    }
+    public void setMessages(List<MessageDTO> messages) {
+        this.messages = messages;
+    }
+    public List<Long> getDeletedMessageIds() {
+        return deletedMessageIds;
+    }
+    public void setDeletedMessageIds(List<Long> deletedMessageIds) {
+        this.deletedMessageIds = deletedMessageIds;
+    }
+    public List<ReadCursorDTO> getReadCursors() {
+        return readCursors;
+    }
+    public void setReadCursors(List<ReadCursorDTO> readCursors) {
+        this.readCursors = readCursors;
+    }
+    public long getReadSequence() {
+        return readSequence;
+    }
+    public void setReadSequence(long readSequence) {
+        this.readSequence = readSequence;
+    }
+}
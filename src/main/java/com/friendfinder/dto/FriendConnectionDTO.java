@@ -0,0 +1,55 @@
+package com.friendfinder.dto;
+
+import java.util.List;
+
+public class FriendConnectionDTO {
+    private Long userId;
+    private List<UserSummaryDTO> mutualFriends;
+    private List<UserSummaryDTO> path;
+    private Integer degree;
+    private int maxDepth;
+
+    public FriendConnectionDTO() {
+    } // Required for JSON deserialization
+
+    // degree is the number of friendships on the path, null when no path was found within maxDepth
+    public FriendConnectionDTO(Long userId, List<UserSummaryDTO> mutualFriends, List<UserSummaryDTO> path, int maxDepth) {
+        this.userId = userId;
+        this.mutualFriends = mutualFriends;
+        this.path = path;
+        this.degree = path.isEmpty() ? null : path.size() - 1;
+        this.maxDepth = maxDepth;
+    }
+
+    // getters and setters
+    public Long getUserId() {
+        return userId;
+    }
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+    public List<UserSummaryDTO> getMutualFriends() {
+        return mutualFriends;
+    }
+    public void setMutualFriends(List<UserSummaryDTO> mutualFriends) {
+        this.mutualFriends = mutualFriends;
+    }
+    public List<UserSummaryDTO> getPath() {
+        return path;
+    }
+    public void setPath(List<UserSummaryDTO> path) {
+        this.path = path;
+    }
+    public Integer getDegree() {
+        return degree;
+    }
+    public void setDegree(Integer degree) {
+        this.degree = degree;
+    }
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+}
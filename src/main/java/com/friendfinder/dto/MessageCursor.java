@@ -0,0 +1,36 @@
+package com.friendfinder.dto;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+// Position in a chat's history, ordered by (timestamp, messageId). Pages continue strictly before or
+// after it, so the database seeks straight to it on the (chat_id, timestamp, message_id) index.
+public record MessageCursor(LocalDateTime timestamp, long messageId) {
+
+    public static MessageCursor of(MessageDTO message) {
+        return new MessageCursor(message.getTimestamp(), message.getMessageId());
+    }
+
+    // opaque token for clients, decode with fromToken
+    public String toToken() {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + Integer.BYTES + Long.BYTES);
+        buffer.putLong(timestamp.toEpochSecond(ZoneOffset.UTC)).putInt(timestamp.getNano()).putLong(messageId);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    // null for a missing token
+    public static MessageCursor fromToken(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(token));
+            LocalDateTime timestamp = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+            return new MessageCursor(timestamp, buffer.getLong());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid message cursor: " + token);
+        }
+    }
+}
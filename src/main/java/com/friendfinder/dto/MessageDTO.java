@@ -18,6 +18,7 @@ public class MessageDTO {
     private LocalDateTime editedAt;
     private List<MessageReadReceiptDTO> readReceipts;
     private Integer readCount;
+    private Long sequence;
 
     public enum MessageType {
         CHAT, JOIN, LEAVE, SYSTEM
@@ -51,6 +52,7 @@ public class MessageDTO {
 
         this.isEdited = message.getIsEdited();
         this.editedAt = message.getEditedAt();
+        this.sequence = message.getSequence();
 
         if (message.getReadReceipts() != null) {
             this.readReceipts = message.getReadReceipts().stream()
@@ -63,6 +65,28 @@ public class MessageDTO {
         }
     }
 
+    // summary constructor for projection queries, read receipts are not loaded, only counted
+    public MessageDTO(Long messageId, Long chatId, Long senderId, String senderName,
+                      String content, LocalDateTime timestamp, String messageType,
+                      Boolean isEdited, LocalDateTime editedAt, Long readCount, Long sequence) {
+        this.messageId = messageId;
+        this.chatId = chatId;
+        this.senderId = senderId;
+        this.senderName = senderName;
+        this.content = content;
+        this.timestamp = timestamp;
+        try {
+            this.type = messageType != null ? MessageType.valueOf(messageType) : MessageType.CHAT;
+        } catch (IllegalArgumentException e) {
+            this.type = MessageType.CHAT;
+        }
+        this.isEdited = isEdited;
+        this.editedAt = editedAt;
+        this.readReceipts = new ArrayList<>();
+        this.readCount = readCount != null ? readCount.intValue() : 0;
+        this.sequence = sequence;
+    }
+
     // full manual constructor
     public MessageDTO(Long messageId, Long chatId, Long senderId, String senderName,
                       String content, LocalDateTime timestamp, MessageType type,
@@ -148,4 +172,10 @@ public class MessageDTO {
     public void setReadCount(Integer readCount) {
         this.readCount = readCount;
     }
+    public Long getSequence() {
+        return sequence;
+    }
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
 }
@@ -0,0 +1,76 @@
+package com.friendfinder.dto;
+
+import java.util.List;
+
+// One page of a chat's history, oldest message first. before continues with older messages,
+// after with newer ones, both are null when the page is empty. sequence and readSequence are the
+// chat's change and read sequence numbers when the page was read, a client syncs from them.
+public class MessagePageDTO {
+    private List<MessageDTO> messages;
+    private String before;
+    private String after;
+    private boolean hasMoreBefore;
+    private boolean hasMoreAfter;
+    private long sequence;
+    private long readSequence;
+
+    public MessagePageDTO() {
+    } // Required for JSON deserialization
+
+    public MessagePageDTO(List<MessageDTO> messages, boolean hasMoreBefore, boolean hasMoreAfter,
+                          long sequence, long readSequence) {
+        this.messages = messages;
+        this.hasMoreBefore = hasMoreBefore;
+        this.hasMoreAfter = hasMoreAfter;
+        this.sequence = sequence;
+        this.readSequence = readSequence;
+        if (!messages.isEmpty()) {
+            this.before = MessageCursor.of(messages.get(0)).toToken();
+            this.after = MessageCursor.of(messages.get(messages.size() - 1)).toToken();
+        }
+    }
+
+    // getters and setters
+    public List<MessageDTO> getMessages() {
+        return messages;
+    }
+    public void setMessages(List<MessageDTO> messages) {
+        this.messages = messages;
+    }
+    public String getBefore() {
+        return before;
+    }
+    public void setBefore(String before) {
+        this.before = before;
+    }
+    public String getAfter() {
+        return after;
+    }
+    public void setAfter(String after) {
+        this.after = after;
+    }
+    public boolean isHasMoreBefore() {
+        return hasMoreBefore;
+    }
+    public void setHasMoreBefore(boolean hasMoreBefore) {
+        this.hasMoreBefore = hasMoreBefore;
+    }
+    public boolean isHasMoreAfter() {
+        return hasMoreAfter;
+    }
+    public void setHasMoreAfter(boolean hasMoreAfter) {
+        this.hasMoreAfter = hasMoreAfter;
+    }
+    public long getSequence() {
+        return sequence;
+    }
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+    public long getReadSequence() {
+        return readSequence;
+    }
+    public void setReadSequence(long readSequence) {
+        this.readSequence = readSequence;
+    }
+}
@@ -0,0 +1,56 @@
+package com.friendfinder.dto;
+
+import com.friendfinder.model.ChatReadCursor;
+import java.time.LocalDateTime;
+
+// how far a user has read in a chat, sent to the other participants when it moves
+public class ReadCursorDTO {
+    private Long chatId;
+    private Long userId;
+    private Long lastReadMessageId;
+    private LocalDateTime readAt;
+    private Long sequence;
+
+    public ReadCursorDTO() {
+    } // Required for JSON deserialization
+
+    public ReadCursorDTO(ChatReadCursor cursor) {
+        this.chatId = cursor.getChatId();
+        this.userId = cursor.getUserId();
+        this.lastReadMessageId = cursor.getLastReadMessageId();
+        this.readAt = cursor.getReadAt();
+        this.sequence = cursor.getSequence();
+    }
+
+    // getters and setters
+    public Long getChatId() {
+        return chatId;
+    }
+    public void setChatId(Long chatId) {
+        this.chatId = chatId;
+    }
+    public Long getUserId() {
+        return userId;
+    }
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+    public Long getLastReadMessageId() {
+        return lastReadMessageId;
+    }
+    public void setLastReadMessageId(Long lastReadMessageId) {
+        this.lastReadMessageId = lastReadMessageId;
+    }
+    public LocalDateTime getReadAt() {
+        return readAt;
+    }
+    public void setReadAt(LocalDateTime readAt) {
+        this.readAt = readAt;
+    }
+    public Long getSequence() {
+        return sequence;
+    }
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+}
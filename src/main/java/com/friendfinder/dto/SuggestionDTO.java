@@ -0,0 +1,60 @@
+package com.friendfinder.dto;
+
+import com.friendfinder.model.Interest;
+import com.friendfinder.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SuggestionDTO {
+    private Long userId;
+    private String name;
+    private String email;
+    private List<String> interests;
+    private Float score;
+
+    public SuggestionDTO() {
+    } // Required for JSON deserialization
+
+    public SuggestionDTO(User user, float score) {
+        this.userId = user.getUserId();
+        this.name = user.getName();
+        this.email = user.getEmail();
+        this.interests = user.getInterests() != null
+                ? user.getInterests().stream().map(Interest::getName).toList()
+                : new ArrayList<>();
+        this.score = score;
+    }
+
+    // getters and setters
+    public Long getUserId() {
+        return userId;
+    }
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+    public String getName() {
+        return name;
+    }
+    public void setName(String name) {
+        this.name = name;
+    }
+    public String getEmail() {
+        return email;
+    }
+    public void setEmail(String email) {
+        this.email = email;
+    }
+    public List<String> getInterests() {
+        return interests;
+    }
+    public void setInterests(List<String> interests) {
+        this.interests = interests;
+    }
+    public Float getScore() {
+        return score;
+    }
+    public void setScore(Float score) {
+        this.score = score;
+    }
+}
@@ -0,0 +1,34 @@
+package com.friendfinder.dto;
+
+import com.friendfinder.suggestion.SuggestionPage;
+
+import java.util.List;
+
+public class SuggestionPageDTO {
+    private List<SuggestionDTO> suggestions;
+    private String nextCursor;
+
+    public SuggestionPageDTO() {
+    } // Required for JSON deserialization
+
+    public SuggestionPageDTO(SuggestionPage page) {
+        this.suggestions = page.suggestions().stream()
+                .map(s -> new SuggestionDTO(s.user(), s.score()))
+                .toList();
+        this.nextCursor = page.next().toToken();
+    }
+
+    // getters and setters
+    public List<SuggestionDTO> getSuggestions() {
+        return suggestions;
+    }
+    public void setSuggestions(List<SuggestionDTO> suggestions) {
+        this.suggestions = suggestions;
+    }
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,44 @@
+package com.friendfinder.dto;
+
+import com.friendfinder.model.User;
+
+public class UserSummaryDTO {
+    private Long userId;
+    private String name;
+    private String email;
+
+    public UserSummaryDTO() {
+    } // Required for JSON deserialization
+
+    public UserSummaryDTO(User user) {
+        this.userId = user.getUserId();
+        this.name = user.getName();
+        this.email = user.getEmail();
+    }
+
+    public UserSummaryDTO(Long userId, String name, String email) {
+        this.userId = userId;
+        this.name = name;
+        this.email = email;
+    }
+
+    // getters and setters
+    public Long getUserId() {
+        return userId;
+    }
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+    public String getName() {
+        return name;
+    }
+    public void setName(String name) {
+        this.name = name;
+    }
+    public String getEmail() {
+        return email;
+    }
+    public void setEmail(String email) {
+        this.email = email;
+    }
+}
@@ -0,0 +1,57 @@
+package com.friendfinder.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+
+public class ReadUpToRequest {
+
+    @NotNull(message = "Chat ID is required")
+    private Long chatID;
+
+    @NotNull(message = "User ID is required")
+    private Long userID;
+
+    @NotNull(message = "Message ID is required")
+    private Long messageID;
+
+    public ReadUpToRequest() {
+    }
+
+    public ReadUpToRequest(Long chatID, Long userID, Long messageID) {
+        this.chatID = chatID;
+        this.userID = userID;
+        this.messageID = messageID;
+    }
+
+    public Long getChatID() {
+        return chatID;
+    }
+
+    public void setChatID(Long chatID) {
+        this.chatID = chatID;
+    }
+
+    public Long getUserID() {
+        return userID;
+    }
+
+    public void setUserID(Long userID) {
+        this.userID = userID;
+    }
+
+    public Long getMessageID() {
+        return messageID;
+    }
+
+    public void setMessageID(Long messageID) {
+        this.messageID = messageID;
+    }
+
+    @Override
+    public String toString() {
+        return "ReadUpToRequest{" +
+                "chatID=" + chatID +
+                ", userID=" + userID +
+                ", messageID=" + messageID +
+                '}';
+    }
+}
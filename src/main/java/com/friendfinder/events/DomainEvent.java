@@ -0,0 +1,6 @@
+package com.friendfinder.events;
+
+// Something that happened in the domain and that other parts react to after the transaction that
+// caused it committed. Events are stored as JSON in the outbox, keyed by their simple class name.
+public sealed interface DomainEvent permits FriendshipAccepted, FriendshipRemoved, UserRegistered, InterestsChanged {
+}
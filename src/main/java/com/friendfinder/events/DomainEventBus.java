@@ -0,0 +1,329 @@
+package com.friendfinder.events;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.friendfinder.model.OutboxEvent;
+import com.friendfinder.repository.OutboxEventRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// In-process domain events with a transactional outbox. publish stores the event in outbox_events in
+// the caller's transaction and, once that commits, hands it to the subscribers on a bounded pool of
+// worker threads, so slow side effects do not hold up the request that caused them. An event of a
+// transaction that rolls back is neither stored nor handled.
+//
+// Handling is at least once: the row is deleted after every subscriber ran, so subscribers have to be
+// idempotent. Rows left behind are handed out again by a poller once they are due. A new row is due a
+// retry delay after it was stored, so the poller only takes events whose direct handling was lost,
+// and every failure doubles the delay before the next attempt. Whatever a crash left is replayed on
+// the next start. An event whose subscribers failed MAX_ATTEMPTS times stays in the table for
+// inspection. When the queue is full the event is left in the outbox for the poller. It is never run
+// on the committing thread, whose finished transaction would swallow the handlers' writes.
+@Component
+public class DomainEventBus {
+
+    static final int MAX_ATTEMPTS = 5;
+    private static final int REPLAY_BATCH_SIZE = 200;
+
+    // event classes by the type name stored with them
+    private static final Map<String, Class<? extends DomainEvent>> TYPES = new HashMap<>();
+
+    static {
+        for (Class<?> type : DomainEvent.class.getPermittedSubclasses()) {
+            TYPES.put(type.getSimpleName(), type.asSubclass(DomainEvent.class));
+        }
+    }
+
+    private final OutboxEventRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService poller;
+    private final long retryDelayMillis;
+    private final long pollIntervalMillis;
+    private final Map<Class<? extends DomainEvent>, List<Consumer<DomainEvent>>> subscribers = new ConcurrentHashMap<>();
+    // ids of the events handed to the workers and not finished yet, never handed out twice at a time
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean polling = new AtomicBoolean();
+    // events committed before the application is ready are left to the startup replay
+    private volatile boolean ready;
+
+    public DomainEventBus(OutboxEventRepository outboxRepository, ObjectMapper objectMapper,
+                          @Value("${friendfinder.events.workers:2}") int workers,
+                          @Value("${friendfinder.events.queue-capacity:1000}") int queueCapacity,
+                          @Value("${friendfinder.events.retry-delay-ms:5000}") long retryDelayMillis,
+                          @Value("${friendfinder.events.poll-interval-ms:5000}") long pollIntervalMillis) {
+        if (workers < 1 || queueCapacity < 1) {
+            throw new IllegalStateException("Event workers and queue capacity must be positive");
+        }
+        if (retryDelayMillis < 1 || pollIntervalMillis < 1) {
+            throw new IllegalStateException("Event retry delay and poll interval must be positive");
+        }
+        this.outboxRepository = outboxRepository;
+        this.objectMapper = objectMapper;
+        this.retryDelayMillis = retryDelayMillis;
+        this.pollIntervalMillis = pollIntervalMillis;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, "domain-events-" + threads.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.poller = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "domain-events-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // handler is called for every committed event of the type, on one of the worker threads
+    public <E extends DomainEvent> void subscribe(Class<E> type, Consumer<? super E> handler) {
+        subscribers.computeIfAbsent(type, t -> new CopyOnWriteArrayList<>())
+                .add(event -> handler.accept(type.cast(event)));
+    }
+
+    public void publish(DomainEvent event) {
+        publishAll(List.of(event));
+    }
+
+    // stores the events in the current transaction and handles them in order once it commits.
+    // Without a transaction they are stored and handled right away.
+    public void publishAll(List<? extends DomainEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<OutboxEvent> rows = new ArrayList<>(events.size());
+        LocalDateTime due = LocalDateTime.now().plus(retryDelayMillis, ChronoUnit.MILLIS);
+        for (DomainEvent event : events) {
+            rows.add(new OutboxEvent(event.getClass().getSimpleName(), serialize(event), due));
+        }
+        List<OutboxEvent> saved = outboxRepository.saveAll(rows);
+        List<Stored> stored = new ArrayList<>(saved.size());
+        for (int i = 0; i < saved.size(); i++) {
+            stored.add(new Stored(saved.get(i).getId(), events.get(i)));
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            dispatch(stored);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dispatch(stored);
+            }
+        });
+    }
+
+    // handle what earlier runs left in the outbox, then take new events as they commit and poll for
+    // the ones that are due again
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        ready = true;
+        if (polling.compareAndSet(false, true)) {
+            poller.scheduleWithFixedDelay(this::poll, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        int replayed = 0;
+        long afterId = 0;
+        while (true) {
+            List<OutboxEvent> rows = outboxRepository.findPending(afterId, MAX_ATTEMPTS,
+                    PageRequest.of(0, REPLAY_BATCH_SIZE));
+            if (rows.isEmpty()) {
+                break;
+            }
+            replayed += redispatch(rows);
+            afterId = rows.get(rows.size() - 1).getId();
+        }
+        if (replayed > 0) {
+            System.out.println("Replaying " + replayed + " domain events left in the outbox");
+        }
+    }
+
+    // hand out the events that are due again, failed ones and ones whose direct handling was lost
+    void poll() {
+        if (!ready) {
+            return;
+        }
+        try {
+            List<OutboxEvent> rows = outboxRepository.findDue(LocalDateTime.now(), MAX_ATTEMPTS,
+                    PageRequest.of(0, REPLAY_BATCH_SIZE));
+            int retried = redispatch(rows);
+            if (retried > 0) {
+                System.out.println("Retrying " + retried + " domain events from the outbox");
+            }
+        } catch (RuntimeException e) {
+            // a failed poll must not end the schedule, the rows are still there next time
+            System.out.println("Could not poll the event outbox: " + e.getMessage());
+        }
+    }
+
+    // let queued events finish, anything cut short is still in the outbox for the next start
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        ready = false;
+        poller.shutdownNow();
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    // events committed but not handled yet
+    public long pending() {
+        return inFlight.size();
+    }
+
+    // wait until every event committed so far is handled, false on timeout
+    public boolean awaitHandled(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!inFlight.isEmpty()) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    private void dispatch(List<Stored> events) {
+        if (!ready || events.isEmpty() || executor.isShutdown()) {
+            for (Stored stored : events) {
+                inFlight.remove(stored.id());
+            }
+            return;
+        }
+        for (Stored stored : events) {
+            inFlight.add(stored.id());
+        }
+        try {
+            executor.execute(() -> handle(events));
+        } catch (RejectedExecutionException e) {
+            // still in the outbox, the poller hands the events out once they are due
+            for (Stored stored : events) {
+                inFlight.remove(stored.id());
+            }
+            System.out.println("Event queue is full, leaving " + events.size() + " domain events to the poller");
+        }
+    }
+
+    // dispatch stored rows that are not being handled already, returns how many were handed out
+    private int redispatch(List<OutboxEvent> rows) {
+        List<Stored> stored = new ArrayList<>(rows.size());
+        List<Long> unreadable = new ArrayList<>();
+        for (OutboxEvent row : rows) {
+            // claimed first, so the poller and the startup replay never hand out the same row
+            if (!inFlight.add(row.getId())) {
+                continue;
+            }
+            DomainEvent event = deserialize(row);
+            if (event != null) {
+                stored.add(new Stored(row.getId(), event));
+            } else {
+                unreadable.add(row.getId());
+                inFlight.remove(row.getId());
+            }
+        }
+        if (!unreadable.isEmpty()) {
+            // otherwise every poll would read them again ahead of the events it can handle
+            outboxRepository.giveUp(unreadable, MAX_ATTEMPTS);
+        }
+        dispatch(stored);
+        return stored.size();
+    }
+
+    private void handle(List<Stored> events) {
+        List<Long> handled = new ArrayList<>(events.size());
+        List<Long> failed = new ArrayList<>();
+        try {
+            for (Stored stored : events) {
+                if (notifySubscribers(stored.event())) {
+                    handled.add(stored.id());
+                } else {
+                    failed.add(stored.id());
+                }
+            }
+            if (!handled.isEmpty()) {
+                outboxRepository.deleteAllByIdInBatch(handled);
+            }
+            if (!failed.isEmpty()) {
+                outboxRepository.recordFailure(failed, LocalDateTime.now(), retryDelayMillis);
+            }
+        } catch (RuntimeException e) {
+            // the rows stay and are handed out again by the poller
+            System.out.println("Could not update the event outbox: " + e.getMessage());
+        } finally {
+            for (Stored stored : events) {
+                inFlight.remove(stored.id());
+            }
+        }
+    }
+
+    // runs every subscriber even when one fails, true when none did
+    private boolean notifySubscribers(DomainEvent event) {
+        boolean succeeded = true;
+        for (Consumer<DomainEvent> subscriber : subscribers.getOrDefault(event.getClass(), List.of())) {
+            try {
+                subscriber.accept(event);
+            } catch (RuntimeException e) {
+                succeeded = false;
+                System.out.println("Handling " + event + " failed: " + e.getMessage());
+            }
+        }
+        return succeeded;
+    }
+
+    private String serialize(DomainEvent event) {
+        try {
+            String payload = objectMapper.writeValueAsString(event);
+            if (payload.length() > OutboxEvent.PAYLOAD_LENGTH) {
+                throw new IllegalArgumentException("Event " + event.getClass().getSimpleName() + " is too large for the outbox");
+            }
+            return payload;
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not serialize " + event.getClass().getSimpleName(), e);
+        }
+    }
+
+    // null for rows of an event type that no longer exists or can not be read, they are given up on
+    private DomainEvent deserialize(OutboxEvent row) {
+        Class<? extends DomainEvent> type = TYPES.get(row.getEventType());
+        if (type == null) {
+            System.out.println("Skipping outbox event " + row.getId() + " of unknown type " + row.getEventType());
+            return null;
+        }
+        try {
+            return objectMapper.readValue(row.getPayload(), type);
+        } catch (JsonProcessingException e) {
+            System.out.println("Skipping unreadable outbox event " + row.getId() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private record Stored(Long id, DomainEvent event) {
+    }
+}
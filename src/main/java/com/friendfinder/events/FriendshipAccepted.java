@@ -0,0 +1,5 @@
+package com.friendfinder.events;
+
+// a friend request was accepted, senderId sent it and receiverId accepted it
+public record FriendshipAccepted(Long senderId, Long receiverId) implements DomainEvent {
+}
@@ -0,0 +1,5 @@
+package com.friendfinder.events;
+
+// userId ended the friendship with friendId
+public record FriendshipRemoved(Long userId, Long friendId) implements DomainEvent {
+}
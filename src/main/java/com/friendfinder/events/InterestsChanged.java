@@ -0,0 +1,5 @@
+package com.friendfinder.events;
+
+// previousInterests is the user's interest bitset from the interest index before the change
+public record InterestsChanged(Long userId, long[] previousInterests) implements DomainEvent {
+}
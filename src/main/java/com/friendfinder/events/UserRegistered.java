@@ -0,0 +1,4 @@
+package com.friendfinder.events;
+
+public record UserRegistered(Long userId) implements DomainEvent {
+}
@@ -15,6 +15,10 @@ public class ChatFactory {
         Chat chat = new Chat(chatName, "DIRECT");
         chat.addParticipant(user1);
         chat.addParticipant(user2);
+        // users that are not saved yet have no ids to key the pair on
+        if (user1.getUserId() != null && user2.getUserId() != null) {
+            chat.setDirectPair(user1.getUserId(), user2.getUserId());
+        }
         return chat;
     }
 
@@ -41,7 +45,7 @@ public class ChatFactory {
     }
 
     // generate consistent name for dm's
-    private String generateDirectChatName(User user1, User user2) {
+    public String generateDirectChatName(User user1, User user2) {
         String name1 = user1.getName();
         String name2 = user2.getName();
 
@@ -0,0 +1,478 @@
+package com.friendfinder.graph;
+
+import com.friendfinder.repository.UserRepository;
+import com.friendfinder.utils.TransactionUndo;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Friendships as a compressed sparse row graph. Users are numbered by their position in the sorted
+// ids array, the neighbours of user i are neighbours[offsets[i] .. offsets[i + 1]) in ascending order.
+// The arrays are never changed after they are built.
+//
+// A change does not rebuild them. The users it touches get their whole friend row, as sorted ids, in
+// a small overlay that is read before the snapshot, so a change costs the degree of the two users.
+// Once MERGE_THRESHOLD users have a row in the overlay it is merged into a new snapshot.
+@Component
+public class FriendGraph {
+
+    static final int MERGE_THRESHOLD = 1024;
+    private static final long[] EMPTY = new long[0];
+
+    private final UserRepository userRepository;
+    private volatile State state;
+
+    public FriendGraph(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    // ids of the user's friends in ascending order
+    public long[] friendsOf(Long userId) {
+        return userId == null ? EMPTY : state().row(userId).clone();
+    }
+
+    public boolean areFriends(Long userId, Long otherUserId) {
+        return userId != null && otherUserId != null && state().contains(userId, otherUserId);
+    }
+
+    // friends of friends that are not already friends, in ascending id order, with the number of
+    // mutual friends for each. Only the rows of the user's friends are read, and the scratch space is
+    // the size of those rows rather than of the whole graph.
+    public Mutual friendsOfFriends(Long userId) {
+        if (userId == null) {
+            return new Mutual(EMPTY, new int[0], 0);
+        }
+        State graph = state();
+        long[] friends = graph.row(userId);
+        int total = 0;
+        for (long friend : friends) {
+            total += graph.degree(friend);
+        }
+        // every candidate once per mutual friend, sorted so each candidate is one run
+        long[] candidates = new long[total];
+        int n = 0;
+        for (long friend : friends) {
+            n = graph.copyRow(friend, candidates, n);
+        }
+        Arrays.sort(candidates, 0, n);
+
+        long[] ids = new long[n];
+        int[] mutual = new int[n];
+        int size = 0;
+        for (int i = 0; i < n; ) {
+            long candidate = candidates[i];
+            int end = i;
+            while (end < n && candidates[end] == candidate) {
+                end++;
+            }
+            if (candidate != userId && Arrays.binarySearch(friends, candidate) < 0) {
+                ids[size] = candidate;
+                mutual[size] = end - i;
+                size++;
+            }
+            i = end;
+        }
+        return new Mutual(ids, mutual, size);
+    }
+
+    // friends both users have, in ascending id order
+    public long[] mutualFriends(Long userId, Long otherUserId) {
+        if (userId == null || otherUserId == null) {
+            return EMPTY;
+        }
+        State graph = state();
+        long[] a = graph.row(userId);
+        long[] b = graph.row(otherUserId);
+        long[] mutual = new long[Math.min(a.length, b.length)];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                mutual[n++] = a[i];
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(mutual, n);
+    }
+
+    // ids on a shortest chain of friendships from one user to the other, both ends included, or an
+    // empty array when they are more than maxDepth friendships apart. Searches from both ends and
+    // always grows the smaller frontier, so only about the square root of the one sided work is done.
+    public long[] shortestPath(Long userId, Long otherUserId, int maxDepth) {
+        if (userId != null && userId.equals(otherUserId)) {
+            return new long[]{userId};
+        }
+        if (userId == null || otherUserId == null || maxDepth < 1) {
+            return EMPTY;
+        }
+        State graph = state();
+        if (graph.degree(userId) == 0 || graph.degree(otherUserId) == 0) {
+            return EMPTY;
+        }
+
+        // parent on the way back to the side's start, only for the users visited
+        Map<Long, Long> fromSource = new HashMap<>();
+        Map<Long, Long> fromTarget = new HashMap<>();
+        fromSource.put(userId, userId);
+        fromTarget.put(otherUserId, otherUserId);
+        List<Long> sourceFrontier = List.of(userId);
+        List<Long> targetFrontier = List.of(otherUserId);
+
+        for (int depth = 0; depth < maxDepth && !sourceFrontier.isEmpty() && !targetFrontier.isEmpty(); depth++) {
+            boolean forward = sourceFrontier.size() <= targetFrontier.size();
+            List<Long> frontier = forward ? sourceFrontier : targetFrontier;
+            Map<Long, Long> parents = forward ? fromSource : fromTarget;
+            Map<Long, Long> others = forward ? fromTarget : fromSource;
+
+            List<Long> next = new ArrayList<>();
+            for (long node : frontier) {
+                for (long neighbour : graph.row(node)) {
+                    if (parents.containsKey(neighbour)) {
+                        continue;
+                    }
+                    parents.put(neighbour, node);
+                    if (others.containsKey(neighbour)) {
+                        return path(fromSource, fromTarget, neighbour);
+                    }
+                    next.add(neighbour);
+                }
+            }
+            if (forward) {
+                sourceFrontier = next;
+            } else {
+                targetFrontier = next;
+            }
+        }
+        return EMPTY;
+    }
+
+    // result of the two hop walk, only the first size entries are used
+    public record Mutual(long[] userIds, int[] mutualFriends, int size) {
+
+        public boolean contains(long userId) {
+            return Arrays.binarySearch(userIds, 0, size, userId) >= 0;
+        }
+    }
+
+    public synchronized void connect(Long userId, Long friendId) {
+        if (userId == null || friendId == null || userId.equals(friendId) || areFriends(userId, friendId)) {
+            return;
+        }
+        TransactionUndo.onRollback(() -> disconnect(userId, friendId));
+        State graph = state();
+        graph.put(userId, with(graph.row(userId), friendId));
+        graph.put(friendId, with(graph.row(friendId), userId));
+        graph.friendships++;
+        mergeIfLarge(graph);
+    }
+
+    public synchronized void disconnect(Long userId, Long friendId) {
+        if (userId == null || friendId == null || !areFriends(userId, friendId)) {
+            return;
+        }
+        TransactionUndo.onRollback(() -> connect(userId, friendId));
+        State graph = state();
+        graph.put(userId, without(graph.row(userId), friendId));
+        graph.put(friendId, without(graph.row(friendId), userId));
+        graph.friendships--;
+        mergeIfLarge(graph);
+    }
+
+    // drops the user and every friendship they are part of
+    public synchronized void remove(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        State graph = state();
+        long[] friends = graph.row(userId);
+        if (friends.length == 0) {
+            return;
+        }
+        TransactionUndo.onRollback(() -> {
+            for (long friendId : friends) {
+                connect(userId, friendId);
+            }
+        });
+        for (long friendId : friends) {
+            graph.put(friendId, without(graph.row(friendId), userId));
+        }
+        graph.put(userId, EMPTY);
+        graph.friendships -= friends.length;
+        mergeIfLarge(graph);
+    }
+
+    // number of users with at least one friend
+    public int userCount() {
+        return state().users;
+    }
+
+    public int friendshipCount() {
+        return state().friendships;
+    }
+
+    // fold the overlay into a new snapshot, readers keep the state they started with
+    private void mergeIfLarge(State graph) {
+        if (graph.changed.size() >= MERGE_THRESHOLD) {
+            state = graph.merge();
+        }
+    }
+
+    // walk the parents from the meeting user back to both starts
+    private static long[] path(Map<Long, Long> fromSource, Map<Long, Long> fromTarget, long meeting) {
+        List<Long> path = new ArrayList<>();
+        for (long node = meeting; ; node = fromSource.get(node)) {
+            path.add(node);
+            if (fromSource.get(node) == node) {
+                break;
+            }
+        }
+        Collections.reverse(path);
+        for (long node = meeting; fromTarget.get(node) != node; ) {
+            node = fromTarget.get(node);
+            path.add(node);
+        }
+        long[] ids = new long[path.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = path.get(i);
+        }
+        return ids;
+    }
+
+    // sorted copy with the id added
+    private static long[] with(long[] sorted, long id) {
+        int at = Arrays.binarySearch(sorted, id);
+        if (at >= 0) {
+            return sorted;
+        }
+        at = -at - 1;
+        long[] copy = new long[sorted.length + 1];
+        System.arraycopy(sorted, 0, copy, 0, at);
+        copy[at] = id;
+        System.arraycopy(sorted, at, copy, at + 1, sorted.length - at);
+        return copy;
+    }
+
+    // sorted copy without the id
+    private static long[] without(long[] sorted, long id) {
+        int at = Arrays.binarySearch(sorted, id);
+        if (at < 0) {
+            return sorted;
+        }
+        long[] copy = new long[sorted.length - 1];
+        System.arraycopy(sorted, 0, copy, 0, at);
+        System.arraycopy(sorted, at + 1, copy, at, sorted.length - at - 1);
+        return copy;
+    }
+
+    // load every friendship row in a single query the first time the graph is used
+    private State state() {
+        State graph = state;
+        if (graph != null) {
+            return graph;
+        }
+        synchronized (this) {
+            if (state == null) {
+                List<Object[]> pairs = userRepository.findAllFriendIdPairs();
+                long[] flat = new long[pairs.size() * 4];
+                int i = 0;
+                for (Object[] row : pairs) {
+                    long user = (Long) row[0];
+                    long friend = (Long) row[1];
+                    flat[i++] = user;
+                    flat[i++] = friend;
+                    flat[i++] = friend;
+                    flat[i++] = user;
+                }
+                state = new State(Snapshot.build(flat));
+            }
+            return state;
+        }
+    }
+
+    // a snapshot and the rows changed since it was built. Only the writers, which hold the graph's
+    // lock, change the overlay, and every row in it is replaced rather than modified.
+    private static final class State {
+
+        private final Snapshot base;
+        private final Map<Long, long[]> changed = new ConcurrentHashMap<>();
+        private volatile int users;
+        private volatile int friendships;
+
+        private State(Snapshot base) {
+            this.base = base;
+            this.users = base.ids.length;
+            this.friendships = base.neighbours.length / 2;
+        }
+
+        // friends of the user as sorted ids, not to be modified
+        private long[] row(long userId) {
+            long[] row = changed.get(userId);
+            if (row != null) {
+                return row;
+            }
+            int node = base.indexOf(userId);
+            if (node < 0) {
+                return EMPTY;
+            }
+            long[] ids = new long[base.degree(node)];
+            copyBaseRow(node, ids, 0);
+            return ids;
+        }
+
+        private int degree(long userId) {
+            long[] row = changed.get(userId);
+            if (row != null) {
+                return row.length;
+            }
+            int node = base.indexOf(userId);
+            return node < 0 ? 0 : base.degree(node);
+        }
+
+        // appends the user's friends to the buffer at from, returns the new end
+        private int copyRow(long userId, long[] buffer, int from) {
+            long[] row = changed.get(userId);
+            if (row != null) {
+                System.arraycopy(row, 0, buffer, from, row.length);
+                return from + row.length;
+            }
+            int node = base.indexOf(userId);
+            return node < 0 ? from : copyBaseRow(node, buffer, from);
+        }
+
+        private int copyBaseRow(int node, long[] buffer, int from) {
+            for (int e = base.offsets[node]; e < base.offsets[node + 1]; e++) {
+                buffer[from++] = base.ids[base.neighbours[e]];
+            }
+            return from;
+        }
+
+        private boolean contains(long userId, long otherUserId) {
+            long[] row = changed.get(userId);
+            if (row != null) {
+                return Arrays.binarySearch(row, otherUserId) >= 0;
+            }
+            // a friendship added since the snapshot has both rows in the overlay
+            int node = base.indexOf(userId);
+            int other = base.indexOf(otherUserId);
+            return node >= 0 && other >= 0
+                    && Arrays.binarySearch(base.neighbours, base.offsets[node], base.offsets[node + 1], other) >= 0;
+        }
+
+        private void put(long userId, long[] row) {
+            int before = degree(userId);
+            changed.put(userId, row);
+            if (before == 0 && row.length > 0) {
+                users++;
+            } else if (before > 0 && row.length == 0) {
+                users--;
+            }
+        }
+
+        // a new snapshot of the current rows and an empty overlay
+        private State merge() {
+            long[] ids = new long[base.ids.length + changed.size()];
+            int n = 0;
+            for (long id : base.ids) {
+                if (!changed.containsKey(id)) {
+                    ids[n++] = id;
+                }
+            }
+            for (Map.Entry<Long, long[]> entry : changed.entrySet()) {
+                if (entry.getValue().length > 0) {
+                    ids[n++] = entry.getKey();
+                }
+            }
+            ids = Arrays.copyOf(ids, n);
+            Arrays.sort(ids);
+
+            // rows are sorted by id, so the neighbour numbers come out sorted as well
+            int[] offsets = new int[n + 1];
+            for (int node = 0; node < n; node++) {
+                offsets[node + 1] = offsets[node] + degree(ids[node]);
+            }
+            int[] neighbours = new int[offsets[n]];
+            for (int node = 0; node < n; node++) {
+                int e = offsets[node];
+                for (long friend : row(ids[node])) {
+                    neighbours[e++] = Arrays.binarySearch(ids, friend);
+                }
+            }
+            return new State(new Snapshot(ids, offsets, neighbours));
+        }
+    }
+
+    private static final class Snapshot {
+
+        private final long[] ids;
+        private final int[] offsets;
+        private final int[] neighbours;
+
+        private Snapshot(long[] ids, int[] offsets, int[] neighbours) {
+            this.ids = ids;
+            this.offsets = offsets;
+            this.neighbours = neighbours;
+        }
+
+        private int indexOf(long userId) {
+            return Math.max(-1, Arrays.binarySearch(ids, userId));
+        }
+
+        private int degree(int node) {
+            return offsets[node + 1] - offsets[node];
+        }
+
+        // counting sort of (from, to) pairs into rows, duplicate edges are collapsed
+        private static Snapshot build(long[] endpoints) {
+            int pairs = endpoints.length / 2;
+            long[] ids = endpoints.clone();
+            Arrays.sort(ids);
+            int n = 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (i == 0 || ids[i] != ids[i - 1]) {
+                    ids[n++] = ids[i];
+                }
+            }
+            ids = Arrays.copyOf(ids, n);
+
+            int[] offsets = new int[n + 1];
+            for (int i = 0; i < endpoints.length; i += 2) {
+                offsets[Arrays.binarySearch(ids, endpoints[i]) + 1]++;
+            }
+            for (int i = 0; i < n; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] fill = Arrays.copyOf(offsets, n);
+            int[] neighbours = new int[pairs];
+            for (int i = 0; i < endpoints.length; i += 2) {
+                int from = Arrays.binarySearch(ids, endpoints[i]);
+                neighbours[fill[from]++] = Arrays.binarySearch(ids, endpoints[i + 1]);
+            }
+
+            // sort every row and squeeze out duplicates
+            int[] compactOffsets = new int[n + 1];
+            int size = 0;
+            for (int node = 0; node < n; node++) {
+                Arrays.sort(neighbours, offsets[node], offsets[node + 1]);
+                for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                    if (e == offsets[node] || neighbours[e] != neighbours[e - 1]) {
+                        neighbours[size++] = neighbours[e];
+                    }
+                }
+                compactOffsets[node + 1] = size;
+            }
+            return new Snapshot(ids, compactOffsets, Arrays.copyOf(neighbours, size));
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.friendfinder.graph;
+
+import com.friendfinder.repository.UserRepository;
+import com.friendfinder.utils.TransactionUndo;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+// Every friendship as one packed long, the smaller id in the high half and the larger in the low half,
+// so a friendship check is a hash lookup with no query and no boxing. The set is split into stripes
+// by hash, each an open addressing table behind its own lock, and lookups use optimistic reads so they
+// never block each other. Filled from friends_relation in a single query at startup.
+@Component
+public class FriendshipSet {
+
+    // user ids come from user_seq and have to fit in 32 bits to be packed
+    static final long MAX_USER_ID = 0xFFFFFFFFL;
+    private static final int STRIPES = 16;
+
+    private final UserRepository userRepository;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public FriendshipSet(UserRepository userRepository) {
+        this.userRepository = userRepository;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @PostConstruct
+    public void load() {
+        for (Object[] row : userRepository.findAllFriendIdPairs()) {
+            long userId = (Long) row[0];
+            long friendId = (Long) row[1];
+            if (userId != friendId) {
+                long key = pack(userId, friendId);
+                stripe(key).add(key);
+            }
+        }
+    }
+
+    public boolean areFriends(Long userId, Long otherUserId) {
+        if (userId == null || otherUserId == null || userId.equals(otherUserId)
+                || outOfRange(userId) || outOfRange(otherUserId)) {
+            return false;
+        }
+        long key = pack(userId, otherUserId);
+        return stripe(key).contains(key);
+    }
+
+    public void connect(Long userId, Long friendId) {
+        if (userId == null || friendId == null || userId.equals(friendId)) {
+            return;
+        }
+        long key = pack(userId, friendId);
+        if (stripe(key).add(key)) {
+            TransactionUndo.onRollback(() -> stripe(key).remove(key));
+        }
+    }
+
+    public void disconnect(Long userId, Long friendId) {
+        if (userId == null || friendId == null || userId.equals(friendId)) {
+            return;
+        }
+        long key = pack(userId, friendId);
+        if (stripe(key).remove(key)) {
+            TransactionUndo.onRollback(() -> stripe(key).add(key));
+        }
+    }
+
+    // drops every friendship of a deleted user, friendIds being the friends they had
+    public void remove(Long userId, List<Long> friendIds) {
+        for (long friendId : friendIds) {
+            disconnect(userId, friendId);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    static long pack(long userId, long otherUserId) {
+        if (outOfRange(userId) || outOfRange(otherUserId)) {
+            throw new IllegalArgumentException("User ids " + userId + " and " + otherUserId + " do not fit in a friendship key");
+        }
+        long low = Math.min(userId, otherUserId);
+        long high = Math.max(userId, otherUserId);
+        return (low << 32) | high;
+    }
+
+    private static boolean outOfRange(long userId) {
+        return userId < 0 || userId > MAX_USER_ID;
+    }
+
+    // both directions of a pair pack to the same key, and a user is never their own friend, so 0 is
+    // free to mark empty slots
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private Stripe stripe(long key) {
+        return stripes[(hash(key) >>> 28) & (STRIPES - 1)];
+    }
+
+    // linear probing over a power of two table kept at most half full
+    private static final class Stripe {
+
+        private final StampedLock lock = new StampedLock();
+        private long[] table = new long[64];
+        private int size;
+
+        private boolean contains(long key) {
+            long stamp = lock.tryOptimisticRead();
+            boolean found = find(table, key);
+            if (lock.validate(stamp)) {
+                return found;
+            }
+            stamp = lock.readLock();
+            try {
+                return find(table, key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private boolean add(long key) {
+            long stamp = lock.writeLock();
+            try {
+                if (find(table, key)) {
+                    return false;
+                }
+                if ((size + 1) * 2 > table.length) {
+                    resize();
+                }
+                insert(table, key);
+                size++;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        // backward shift delete, so no tombstones build up
+        private boolean remove(long key) {
+            long stamp = lock.writeLock();
+            try {
+                long[] slots = table;
+                int mask = slots.length - 1;
+                int slot = hash(key) & mask;
+                while (slots[slot] != key) {
+                    if (slots[slot] == 0) {
+                        return false;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                int gap = slot;
+                for (int next = (gap + 1) & mask; slots[next] != 0; next = (next + 1) & mask) {
+                    int home = hash(slots[next]) & mask;
+                    // move the entry back unless its home lies cyclically within (gap, next]
+                    if (((next - home) & mask) >= ((next - gap) & mask)) {
+                        slots[gap] = slots[next];
+                        gap = next;
+                    }
+                }
+                slots[gap] = 0;
+                size--;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private int size() {
+            long stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private void resize() {
+            long[] bigger = new long[table.length * 2];
+            for (long key : table) {
+                if (key != 0) {
+                    insert(bigger, key);
+                }
+            }
+            table = bigger;
+        }
+
+        // an optimistic read may see the table mid change, so the probe is bounded by its length
+        private static boolean find(long[] slots, long key) {
+            int mask = slots.length - 1;
+            int slot = hash(key) & mask;
+            for (int probes = 0; probes < slots.length; probes++) {
+                long found = slots[slot];
+                if (found == key) {
+                    return true;
+                }
+                if (found == 0) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return false;
+        }
+
+        private static void insert(long[] slots, long key) {
+            int mask = slots.length - 1;
+            int slot = hash(key) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = key;
+        }
+    }
+}
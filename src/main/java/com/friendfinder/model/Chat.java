@@ -9,15 +9,25 @@ import java.util.List;
 import java.util.Set;
 
 @Entity
+@Table(indexes = @Index(name = "uk_chat_direct_pair", columnList = "low_user_id, high_user_id", unique = true))
 public class Chat {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chat_seq")
+    @SequenceGenerator(name = "chat_seq", sequenceName = "chat_seq", allocationSize = 50)
     private Long chatId;
 
     private String chatName;
     private LocalDateTime createdAt;
     private String chatType;
 
+    // the two users of a direct chat, smaller id first, so each pair has at most one. Null for
+    // every other chat.
+    @Column(name = "low_user_id")
+    private Long lowUserId;
+
+    @Column(name = "high_user_id")
+    private Long highUserId;
+
     @OneToMany(mappedBy = "chat", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
     private List<Message> messages = new ArrayList<>();
@@ -73,6 +83,21 @@ public class Chat {
     public void setChatType(String chatType) {
         this.chatType = chatType;
     }
+    public Long getLowUserId() {
+        return lowUserId;
+    }
+    public Long getHighUserId() {
+        return highUserId;
+    }
+    public void setDirectPair(Long userId, Long otherUserId) {
+        this.lowUserId = Math.min(userId, otherUserId);
+        this.highUserId = Math.max(userId, otherUserId);
+    }
+    // a direct chat whose participants changed is no longer the pair's chat
+    public void clearDirectPair() {
+        this.lowUserId = null;
+        this.highUserId = null;
+    }
     public List<Message> getMessages() {
         return messages;
     }
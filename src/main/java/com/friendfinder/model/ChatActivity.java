@@ -0,0 +1,116 @@
+package com.friendfinder.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Denormalized activity of a chat, kept up to date by MessageService so the inbox can sort by
+// recency and show the newest message without scanning the message table. One row per chat, keyed by
+// the chat id. New chats get theirs when they are created, older ones got theirs from V8 or, when they
+// had messages, from ReadModelBackfill.
+@Entity
+@Table(name = "chat_activity", indexes = @Index(name = "idx_chat_activity_last_activity", columnList = "last_activity_at, chat_id"))
+public class ChatActivity {
+
+    public static final int PREVIEW_LENGTH = 200;
+
+    @Id
+    @Column(name = "chat_id")
+    private Long chatId;
+
+    @Column(name = "last_message_id")
+    private Long lastMessageId;
+
+    @Column(name = "last_message_preview", length = PREVIEW_LENGTH)
+    private String lastMessagePreview;
+
+    @Column(name = "last_sender_id")
+    private Long lastSenderId;
+
+    @Column(name = "last_activity_at", nullable = false)
+    private LocalDateTime lastActivityAt;
+
+    @Column(name = "message_count", nullable = false)
+    private long messageCount;
+
+    // last sequence number handed out in the chat, every message, edit and delete gets the next one
+    @Column(name = "last_sequence", nullable = false)
+    private long lastSequence;
+
+    // JPA required constructor
+    public ChatActivity() {
+    }
+
+    public ChatActivity(Chat chat) {
+        this.chatId = chat.getChatId();
+        this.lastActivityAt = chat.getCreatedAt() != null ? chat.getCreatedAt() : LocalDateTime.now();
+        this.messageCount = 0;
+    }
+
+    // a message was sent, it becomes the last message unless an older one arrives late
+    public void recordMessage(Message message) {
+        messageCount++;
+        if (lastMessageId == null || !message.getTimestamp().isBefore(lastActivityAt)) {
+            showMessage(message);
+        }
+    }
+
+    // make the message the one shown in the inbox, or clear the preview when there is none left
+    public void showMessage(Message message) {
+        if (message == null) {
+            lastMessageId = null;
+            lastMessagePreview = null;
+            lastSenderId = null;
+            return;
+        }
+        lastMessageId = message.getMessageId();
+        lastMessagePreview = preview(message.getContent());
+        lastSenderId = message.getSender() != null ? message.getSender().getUserId() : null;
+        lastActivityAt = message.getTimestamp();
+    }
+
+    public long nextSequence() {
+        return ++lastSequence;
+    }
+
+    // catch up with a number handed out elsewhere, used when sequences are allocated in memory
+    public void advanceSequence(long sequence) {
+        lastSequence = Math.max(lastSequence, sequence);
+    }
+
+    public void messageRemoved() {
+        messageCount = Math.max(0, messageCount - 1);
+    }
+
+    public static String preview(String content) {
+        if (content == null || content.length() <= PREVIEW_LENGTH) {
+            return content;
+        }
+        return content.substring(0, PREVIEW_LENGTH - 1) + "…";
+    }
+
+    // getters and setters
+    public Long getChatId() {
+        return chatId;
+    }
+    public Long getLastMessageId() {
+        return lastMessageId;
+    }
+    public String getLastMessagePreview() {
+        return lastMessagePreview;
+    }
+    public Long getLastSenderId() {
+        return lastSenderId;
+    }
+    public LocalDateTime getLastActivityAt() {
+        return lastActivityAt;
+    }
+    public long getMessageCount() {
+        return messageCount;
+    }
+    public long getLastSequence() {
+        return lastSequence;
+    }
+    public void setMessageCount(long messageCount) {
+        this.messageCount = messageCount;
+    }
+}
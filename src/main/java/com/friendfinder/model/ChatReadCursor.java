@@ -0,0 +1,83 @@
+package com.friendfinder.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// How far a user has read in a chat. Message ids grow with every message, so every message in the
+// chat up to and including lastReadMessageId counts as read by the user. One row per user per chat
+// instead of one receipt per message per reader.
+@Entity
+@Table(name = "chat_read_cursors",
+        uniqueConstraints = @UniqueConstraint(name = "uk_chat_read_cursor", columnNames = {"chat_id", "user_id"}),
+        indexes = @Index(name = "idx_chat_read_cursor_seq", columnList = "chat_id, seq_no"))
+public class ChatReadCursor {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chat_read_cursor_seq")
+    @SequenceGenerator(name = "chat_read_cursor_seq", sequenceName = "chat_read_cursor_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "chat_id", nullable = false)
+    private Long chatId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "last_read_message_id", nullable = false)
+    private Long lastReadMessageId;
+
+    @Column(name = "read_at", nullable = false)
+    private LocalDateTime readAt;
+
+    // read sequence number of the chat the last time the cursor moved
+    @Column(name = "seq_no")
+    private Long sequence;
+
+    // JPA required constructor
+    public ChatReadCursor() {
+    }
+
+    public ChatReadCursor(Long chatId, Long userId) {
+        this.chatId = chatId;
+        this.userId = userId;
+        this.lastReadMessageId = 0L;
+    }
+
+    // move the cursor forward to the message, a cursor never moves back. Returns true if it moved.
+    public boolean advanceTo(Long messageId, LocalDateTime at) {
+        if (messageId == null || messageId <= lastReadMessageId) {
+            return false;
+        }
+        lastReadMessageId = messageId;
+        readAt = at;
+        return true;
+    }
+
+    // true if the user has read the message
+    public boolean hasRead(Long messageId) {
+        return messageId != null && messageId <= lastReadMessageId;
+    }
+
+    // getters and setters
+    public Long getId() {
+        return id;
+    }
+    public Long getChatId() {
+        return chatId;
+    }
+    public Long getUserId() {
+        return userId;
+    }
+    public Long getLastReadMessageId() {
+        return lastReadMessageId;
+    }
+    public LocalDateTime getReadAt() {
+        return readAt;
+    }
+    public Long getSequence() {
+        return sequence;
+    }
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+}
@@ -0,0 +1,50 @@
+package com.friendfinder.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// a user passed on another user in the suggestions, they are not suggested to them again
+@Entity
+@Table(name = "dislikes", uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "disliked_id"}))
+public class Dislike {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "dislike_seq")
+    @SequenceGenerator(name = "dislike_seq", sequenceName = "dislike_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "disliked_id", nullable = false)
+    private User disliked;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // JPA required constructor
+    public Dislike() {
+    }
+
+    public Dislike(User user, User disliked) {
+        this.user = user;
+        this.disliked = disliked;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // getters and setters
+    public Long getId() {
+        return id;
+    }
+    public User getUser() {
+        return user;
+    }
+    public User getDisliked() {
+        return disliked;
+    }
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -6,8 +6,10 @@ import jakarta.persistence.*;
 @Table(name = "friend_requests")
 public class FriendRequest {
 
+    // not pooled, requests are inserted by FriendRequestRepository.insertIfPairFree with the next value
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "friend_request_seq")
+    @SequenceGenerator(name = "friend_request_seq", sequenceName = "friend_request_seq", allocationSize = 1)
     private Long id;
 
     @ManyToOne
@@ -16,6 +18,13 @@ public class FriendRequest {
     @ManyToOne
     private User receiver;
 
+    // the unordered pair, generated by the database and unique
+    @Column(name = "low_user_id", insertable = false, updatable = false)
+    private Long lowUserId;
+
+    @Column(name = "high_user_id", insertable = false, updatable = false)
+    private Long highUserId;
+
     public FriendRequest() {}
 
     public FriendRequest(User sender, User receiver) {
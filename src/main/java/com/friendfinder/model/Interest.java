@@ -14,7 +14,8 @@ import java.util.List;
 public class Interest {
     @Id
     @Column(name = "interest_id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "interest_seq")
+    @SequenceGenerator(name = "interest_seq", sequenceName = "interest_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true)
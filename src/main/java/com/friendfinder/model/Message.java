@@ -7,10 +7,18 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+// unread counts are range scans over a chat's message ids past the reader's cursor,
+// history pages seek on (timestamp, message id) within a chat
+@Table(indexes = {
+        @Index(name = "idx_message_chat_message", columnList = "chat_id, message_id"),
+        @Index(name = "idx_message_chat_timestamp", columnList = "chat_id, timestamp, message_id"),
+        @Index(name = "idx_message_chat_seq", columnList = "chat_id, seq_no")
+})
 public class Message {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "message_seq")
+    @SequenceGenerator(name = "message_seq", sequenceName = "message_seq", allocationSize = 50)
     private Long messageId;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -31,6 +39,10 @@ public class Message {
     private Boolean isEdited;
     private LocalDateTime editedAt;
 
+    // chat sequence number of the last change to the message, set when it is sent and again on every edit
+    @Column(name = "seq_no")
+    private Long sequence;
+
     @OneToMany(mappedBy = "message", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
     private List<MessageReadReceipt> readReceipts = new ArrayList<>();
@@ -111,6 +123,12 @@ public class Message {
     public void setEditedAt(LocalDateTime editedAt) {
         this.editedAt = editedAt;
     }
+    public Long getSequence() {
+        return sequence;
+    }
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
     public List<MessageReadReceipt> getReadReceipts() {
         return readReceipts;
     }
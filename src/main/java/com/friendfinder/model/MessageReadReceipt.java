@@ -7,7 +7,8 @@ import java.time.LocalDateTime;
 public class MessageReadReceipt {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "message_read_receipt_seq")
+    @SequenceGenerator(name = "message_read_receipt_seq", sequenceName = "message_read_receipt_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
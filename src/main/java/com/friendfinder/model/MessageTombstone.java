@@ -0,0 +1,57 @@
+package com.friendfinder.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Left behind when a message is deleted, so clients syncing a chat since an older sequence number
+// learn that the message is gone
+@Entity
+@Table(name = "message_tombstones",
+        indexes = @Index(name = "idx_message_tombstone_seq", columnList = "chat_id, seq_no"))
+public class MessageTombstone {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "message_tombstone_seq")
+    @SequenceGenerator(name = "message_tombstone_seq", sequenceName = "message_tombstone_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "chat_id", nullable = false)
+    private Long chatId;
+
+    @Column(name = "message_id", nullable = false)
+    private Long messageId;
+
+    @Column(name = "seq_no", nullable = false)
+    private Long sequence;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+
+    // JPA required constructor
+    public MessageTombstone() {
+    }
+
+    public MessageTombstone(Long chatId, Long messageId, Long sequence) {
+        this.chatId = chatId;
+        this.messageId = messageId;
+        this.sequence = sequence;
+        this.deletedAt = LocalDateTime.now();
+    }
+
+    // getters
+    public Long getId() {
+        return id;
+    }
+    public Long getChatId() {
+        return chatId;
+    }
+    public Long getMessageId() {
+        return messageId;
+    }
+    public Long getSequence() {
+        return sequence;
+    }
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+}
@@ -0,0 +1,67 @@
+package com.friendfinder.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// A domain event written in the same transaction as the change that raised it, so it is stored exactly
+// when the change is. Deleted once its handlers have run, rows still here are picked up again by the
+// outbox poller once they are due, and on startup.
+@Entity
+@Table(name = "outbox_events")
+public class OutboxEvent {
+
+    public static final int PAYLOAD_LENGTH = 4000;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+    @SequenceGenerator(name = "outbox_event_seq", sequenceName = "outbox_event_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "event_type", nullable = false, length = 100)
+    private String eventType;
+
+    @Column(name = "payload", nullable = false, length = PAYLOAD_LENGTH)
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // times the handlers failed on it
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    // when the poller may hand the event out again, null for rows it may take right away
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    // JPA required constructor
+    public OutboxEvent() {
+    }
+
+    public OutboxEvent(String eventType, String payload, LocalDateTime nextAttemptAt) {
+        this.eventType = eventType;
+        this.payload = payload;
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    // getters
+    public Long getId() {
+        return id;
+    }
+    public String getEventType() {
+        return eventType;
+    }
+    public String getPayload() {
+        return payload;
+    }
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    public int getAttempts() {
+        return attempts;
+    }
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+}
@@ -23,7 +23,8 @@ import java.util.Set;
 public class User {
     @Id
     @Column(name = "user_id")
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+    @SequenceGenerator(name = "user_seq", sequenceName = "user_seq", allocationSize = 50)
     private Long userId;
     private String name;
 
@@ -31,7 +32,9 @@ public class User {
     private String email;
 
     private String password;
-    @ManyToMany(fetch = FetchType.EAGER)
+    // lazy, every message and request loads its users and must not drag in their friends. List
+    // views read friends through the projection queries in UserRepository.
+    @ManyToMany
     @JoinTable(
             name = "friends_relation",
             joinColumns = @JoinColumn(name = "user_id"),
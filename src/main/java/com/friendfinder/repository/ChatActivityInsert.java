@@ -0,0 +1,9 @@
+package com.friendfinder.repository;
+
+// Insert of a chat's activity row that gives way to one written by another transaction
+public interface ChatActivityInsert {
+
+    // creates the empty activity row of an existing chat unless it has one, including one committed
+    // by a concurrent transaction while this insert waited on the primary key
+    void insertActivityIfAbsent(Long chatId);
+}
@@ -0,0 +1,34 @@
+package com.friendfinder.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Plain JDBC on the transaction's connection, so losing the race for the first row leaves the
+// caller's transaction usable, see DirectChatInsertImpl
+class ChatActivityInsertImpl implements ChatActivityInsert {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    ChatActivityInsertImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertActivityIfAbsent(Long chatId) {
+        // the chat may only be in the persistence context so far
+        entityManager.flush();
+        try {
+            jdbcTemplate.update("INSERT INTO chat_activity (chat_id, last_activity_at, message_count, last_sequence) "
+                            + "SELECT c.chat_id, COALESCE(c.created_at, CURRENT_TIMESTAMP), 0, 0 FROM chat c "
+                            + "WHERE c.chat_id = ? AND NOT EXISTS (SELECT 1 FROM chat_activity a WHERE a.chat_id = ?)",
+                    chatId, chatId);
+        } catch (DuplicateKeyException e) {
+            // created by the other transaction, which has committed by now
+        }
+    }
+}
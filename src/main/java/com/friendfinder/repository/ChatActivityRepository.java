@@ -0,0 +1,36 @@
+package com.friendfinder.repository;
+
+import com.friendfinder.model.ChatActivity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ChatActivityRepository extends JpaRepository<ChatActivity, Long>, ChatActivityInsert {
+
+    // row locked until the end of the transaction, so concurrent messages in a chat update it one at a time
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM ChatActivity a WHERE a.chatId = :chatId")
+    Optional<ChatActivity> findForUpdate(@Param("chatId") Long chatId);
+
+    // as findForUpdate, first creating the row of a chat that has none so there is always one to lock
+    default Optional<ChatActivity> findOrCreateForUpdate(Long chatId) {
+        Optional<ChatActivity> activity = findForUpdate(chatId);
+        if (activity.isPresent()) {
+            return activity;
+        }
+        insertActivityIfAbsent(chatId);
+        return findForUpdate(chatId);
+    }
+
+    // (chatId, message count, newest message id) of every chat with messages but no activity row yet
+    @Query("SELECT m.chat.chatId, COUNT(m), MAX(m.messageId) FROM Message m " +
+            "WHERE m.chat.chatId NOT IN (SELECT a.chatId FROM ChatActivity a) GROUP BY m.chat.chatId")
+    List<Object[]> findMissingActivity();
+}
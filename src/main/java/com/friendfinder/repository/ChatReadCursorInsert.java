@@ -0,0 +1,9 @@
+package com.friendfinder.repository;
+
+// Insert of a read cursor that gives way to one written by another transaction
+public interface ChatReadCursorInsert {
+
+    // creates the user's cursor in the chat at the start of the chat unless they have one, including
+    // one committed by a concurrent transaction while this insert waited on uk_chat_read_cursor
+    void insertCursorIfAbsent(Long chatId, Long userId);
+}
@@ -0,0 +1,29 @@
+package com.friendfinder.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Plain JDBC on the transaction's connection, so losing the race for the first read leaves the
+// caller's transaction usable, see DirectChatInsertImpl
+class ChatReadCursorInsertImpl implements ChatReadCursorInsert {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    ChatReadCursorInsertImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertCursorIfAbsent(Long chatId, Long userId) {
+        // a raw sequence value is never handed out by the pooled optimizer, see DirectChatInsertImpl
+        Long id = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR chat_read_cursor_seq", Long.class);
+        try {
+            jdbcTemplate.update("INSERT INTO chat_read_cursors (id, chat_id, user_id, last_read_message_id, read_at) "
+                            + "SELECT ?, ?, ?, 0, CURRENT_TIMESTAMP WHERE NOT EXISTS "
+                            + "(SELECT 1 FROM chat_read_cursors WHERE chat_id = ? AND user_id = ?)",
+                    id, chatId, userId, chatId, userId);
+        } catch (DuplicateKeyException e) {
+            // created by the other transaction, which has committed by now
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.friendfinder.repository;
+
+import com.friendfinder.model.ChatReadCursor;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ChatReadCursorRepository extends JpaRepository<ChatReadCursor, Long>, ChatReadCursorInsert {
+
+    Optional<ChatReadCursor> findByChatIdAndUserId(Long chatId, Long userId);
+
+    // row locked until the end of the transaction, so two devices of a user cannot move it back
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM ChatReadCursor c WHERE c.chatId = :chatId AND c.userId = :userId")
+    Optional<ChatReadCursor> findForUpdate(@Param("chatId") Long chatId, @Param("userId") Long userId);
+
+    // as findForUpdate, first creating a cursor at the start of the chat when the user has none
+    default ChatReadCursor findOrCreateForUpdate(Long chatId, Long userId) {
+        return findForUpdate(chatId, userId).orElseGet(() -> {
+            insertCursorIfAbsent(chatId, userId);
+            return findForUpdate(chatId, userId)
+                    .orElseThrow(() -> new IllegalStateException("Read cursor of user " + userId + " in chat " + chatId + " was not created"));
+        });
+    }
+
+    // (userId, name, lastReadMessageId, readAt) of every reader in a chat, furthest read first
+    @Query("SELECT u.userId, u.name, c.lastReadMessageId, c.readAt FROM ChatReadCursor c, User u " +
+            "WHERE u.userId = c.userId AND c.chatId = :chatId ORDER BY c.lastReadMessageId DESC, u.userId")
+    List<Object[]> findReadersInChat(@Param("chatId") Long chatId);
+
+    // cursors in the chat that moved with a sequence number in (since, upTo]
+    @Query("SELECT c FROM ChatReadCursor c WHERE c.chatId = :chatId " +
+            "AND c.sequence > :since AND c.sequence <= :upTo ORDER BY c.sequence")
+    List<ChatReadCursor> findMovedSince(@Param("chatId") Long chatId,
+                                       @Param("since") Long since,
+                                       @Param("upTo") Long upTo);
+
+    // (chatId, userId, newest message id, latest read time) from old per message receipts without a cursor
+    @Query("SELECT r.message.chat.chatId, r.user.userId, MAX(r.message.messageId), MAX(r.readAt) " +
+            "FROM MessageReadReceipt r WHERE NOT EXISTS (SELECT c FROM ChatReadCursor c " +
+            "WHERE c.chatId = r.message.chat.chatId AND c.userId = r.user.userId) " +
+            "GROUP BY r.message.chat.chatId, r.user.userId")
+    List<Object[]> findMissingCursorsFromReceipts();
+
+    @Modifying
+    @Query("DELETE FROM ChatReadCursor c WHERE c.chatId = :chatId")
+    void deleteByChatId(@Param("chatId") Long chatId);
+
+    @Modifying
+    @Query("DELETE FROM ChatReadCursor c WHERE c.userId = :userId")
+    void deleteByUserId(@Param("userId") Long userId);
+}
@@ -2,6 +2,7 @@ package com.friendfinder.repository;
 
 import com.friendfinder.model.Chat;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -11,27 +12,47 @@ import java.util.Optional;
 
 
 @Repository
-public interface ChatRepository extends JpaRepository<Chat, Long> {
+public interface ChatRepository extends JpaRepository<Chat, Long>, DirectChatInsert {
+    // read_sequence is left out of the entity so saving a chat never writes back a stale value.
+    // The update keeps the row locked until the end of the transaction, so numbers commit in order.
+    @Modifying
+    @Query(value = "UPDATE chat SET read_sequence = read_sequence + 1 WHERE chat_id = :chatId", nativeQuery = true)
+    int incrementReadSequence(@Param("chatId") Long chatId);
+
+    @Query(value = "SELECT read_sequence FROM chat WHERE chat_id = :chatId", nativeQuery = true)
+    Optional<Long> findReadSequence(@Param("chatId") Long chatId);
+
     // find chats by participant user ID
     @Query("SELECT c FROM Chat c JOIN c.participants p WHERE p.userId = :userId")
     List<Chat> findByParticipantsUserId(@Param("userId") Long userId);
 
+    // inbox: (chatId, chatName, chatType, createdAt) of every chat the user is in, most recent activity
+    // first. Every chat has an activity row from its creation on, so the sort is on the indexed columns.
+    @Query("SELECT c.chatId, c.chatName, c.chatType, c.createdAt FROM Chat c JOIN c.participants p " +
+            "JOIN ChatActivity a ON a.chatId = c.chatId " +
+            "WHERE p.userId = :userId ORDER BY a.lastActivityAt DESC, c.chatId DESC")
+    List<Object[]> findInboxChats(@Param("userId") Long userId);
+
+    // inbox: (chatId, userId, name) of every participant in every chat the user is in
+    @Query("SELECT c.chatId, u.userId, u.name FROM Chat c JOIN c.participants u " +
+            "WHERE c.chatId IN (SELECT c2.chatId FROM Chat c2 JOIN c2.participants p WHERE p.userId = :userId) " +
+            "ORDER BY c.chatId, u.userId")
+    List<Object[]> findInboxParticipants(@Param("userId") Long userId);
+
     // find chat by chat name
     List<Chat> findByChatName(String chatName);
 
     // find chat by type
     List<Chat> findByChatType(String chatType);
 
-    // find dm between two users
-    @Query("SELECT c FROM Chat c " +
-            "JOIN c.participants p1 " +
-            "JOIN c.participants p2 " +
-            "WHERE c.chatType = 'DIRECT' " +
-            "AND p1.userId = :user1Id " +
-            "AND p2.userId = :user2Id " +
-            "AND SIZE(c.participants) = 2")
-    Optional<Chat> findDirectChatBetweenUsers(@Param("user1Id") Long user1Id,
-                                              @Param("user2Id") Long user2Id);
+    // find dm between two users, one lookup on the pair index
+    default Optional<Chat> findDirectChatBetweenUsers(Long user1Id, Long user2Id) {
+        return findByDirectPair(Math.min(user1Id, user2Id), Math.max(user1Id, user2Id));
+    }
+
+    @Query("SELECT c FROM Chat c WHERE c.lowUserId = :lowUserId AND c.highUserId = :highUserId")
+    Optional<Chat> findByDirectPair(@Param("lowUserId") Long lowUserId,
+                                    @Param("highUserId") Long highUserId);
 
     // find all gc's
     @Query("SELECT c FROM Chat c WHERE c.chatType = 'GROUP'")
@@ -41,16 +62,20 @@ public interface ChatRepository extends JpaRepository<Chat, Long> {
     @Query("SELECT c FROM Chat c WHERE LOWER(c.chatName) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
     List<Chat> searchChatsByName(@Param("searchTerm") String searchTerm);
 
+    // ids of the chat's participants, without loading the chat or the users
+    @Query("SELECT p.userId FROM Chat c JOIN c.participants p WHERE c.chatId = :chatId")
+    List<Long> findParticipantIds(@Param("chatId") Long chatId);
+
     // number of chats user is in
     @Query("SELECT COUNT(c) FROM Chat c JOIN c.participants p WHERE p.userId = :userId")
     Long countChatsByUserId(@Param("userId") Long userId);
 
     // find chats where user is a participant ordered by most recent message
-    @Query("SELECT DISTINCT c FROM Chat c " +
-            "LEFT JOIN c.messages m " +
+    @Query("SELECT c FROM Chat c " +
             "JOIN c.participants p " +
+            "JOIN ChatActivity a ON a.chatId = c.chatId " +
             "WHERE p.userId = :userId " +
-            "ORDER BY m.timestamp DESC")
+            "ORDER BY a.lastActivityAt DESC, c.chatId DESC")
     List<Chat> findUserChatsOrderedByRecentActivity(@Param("userId") Long userId);
 
 }
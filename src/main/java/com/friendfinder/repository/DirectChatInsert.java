@@ -0,0 +1,12 @@
+package com.friendfinder.repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+// Insert of a direct chat that gives way to one another transaction created for the same pair
+public interface DirectChatInsert {
+
+    // the new chat's id, empty when the pair already has a direct chat, including one committed by a
+    // concurrent transaction while this insert waited on the pair index
+    Optional<Long> insertDirectChatIfAbsent(String chatName, LocalDateTime createdAt, Long userId, Long otherUserId);
+}
@@ -0,0 +1,55 @@
+package com.friendfinder.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+// Plain JDBC on the transaction's connection. A failed statement only undoes itself, so losing the
+// race on uk_chat_direct_pair leaves the caller's transaction usable, which a failed flush would not.
+class DirectChatInsertImpl implements DirectChatInsert {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    DirectChatInsertImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<Long> insertDirectChatIfAbsent(String chatName, LocalDateTime createdAt, Long userId, Long otherUserId) {
+        long low = Math.min(userId, otherUserId);
+        long high = Math.max(userId, otherUserId);
+        // the participants' foreign keys need users the persistence context may not have written yet
+        entityManager.flush();
+        // a raw sequence value is the top of a block the pooled optimizer never hands out, so it is
+        // free to use as an id
+        Long chatId = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR chat_seq", Long.class);
+        int inserted;
+        try {
+            inserted = jdbcTemplate.update("INSERT INTO chat (chat_id, chat_name, chat_type, created_at, low_user_id, high_user_id) "
+                            + "SELECT ?, ?, 'DIRECT', ?, ?, ? WHERE NOT EXISTS "
+                            + "(SELECT 1 FROM chat WHERE low_user_id = ? AND high_user_id = ?)",
+                    chatId, chatName, Timestamp.valueOf(createdAt), low, high, low, high);
+        } catch (DuplicateKeyException e) {
+            return Optional.empty();
+        }
+        if (inserted == 0) {
+            return Optional.empty();
+        }
+        jdbcTemplate.update("INSERT INTO chat_participants (chat_id, user_id) VALUES (?, ?)", chatId, low);
+        if (high != low) {
+            jdbcTemplate.update("INSERT INTO chat_participants (chat_id, user_id) VALUES (?, ?)", chatId, high);
+        }
+        // the activity row comes with the chat, so the first messages have a row to lock
+        jdbcTemplate.update("INSERT INTO chat_activity (chat_id, last_activity_at, message_count, last_sequence) "
+                + "VALUES (?, ?, 0, 0)", chatId, Timestamp.valueOf(createdAt));
+        return Optional.of(chatId);
+    }
+}
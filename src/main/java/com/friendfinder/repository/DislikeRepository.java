@@ -0,0 +1,25 @@
+package com.friendfinder.repository;
+
+import com.friendfinder.model.Dislike;
+import com.friendfinder.model.User;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface DislikeRepository extends CrudRepository<Dislike, Long> {
+    boolean existsByUserAndDisliked(User user, User disliked);
+
+    // ids of every user the given user passed on
+    @Query("SELECT d.disliked.userId FROM Dislike d WHERE d.user.userId = :userId")
+    List<Long> findDislikedIdsByUserId(@Param("userId") Long userId);
+
+    // remove a user's dislikes and every dislike of them, used when the user is deleted
+    @Modifying
+    @Query("DELETE FROM Dislike d WHERE d.user = :user OR d.disliked = :user")
+    void deleteAllInvolving(@Param("user") User user);
+}
@@ -2,10 +2,16 @@ package com.friendfinder.repository;
 
 import com.friendfinder.model.FriendRequest;
 import com.friendfinder.model.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface FriendRequestRepository extends CrudRepository<FriendRequest, Long> {
@@ -13,4 +19,31 @@ public interface FriendRequestRepository extends CrudRepository<FriendRequest, L
     FriendRequest findBySenderAndReceiver(User sender, User receiver);
 
     List<FriendRequest> findBySender(User sender);
+
+    @Query("SELECT r.receiver.userId FROM FriendRequest r WHERE r.sender = :sender")
+    List<Long> findReceiverIdsBySender(@Param("sender") User sender);
+
+    // inserts the request in one statement unless the pair already has one either way or the users are
+    // already friends, returns the number of rows inserted. Both are checked in the statement's own view
+    // of the tables, and two inserts for the same pair racing each other meet on uk_friend_request_pair.
+    @Modifying
+    @Query(value = "MERGE INTO friend_requests r " +
+            "USING (SELECT v.sender_user_id, v.receiver_user_id " +
+            "FROM (VALUES (CAST(:senderId AS BIGINT), CAST(:receiverId AS BIGINT))) v (sender_user_id, receiver_user_id) " +
+            "WHERE NOT EXISTS (SELECT 1 FROM friends_relation f " +
+            "WHERE f.user_id = v.sender_user_id AND f.friend_id = v.receiver_user_id)) s " +
+            "ON r.low_user_id = LEAST(s.sender_user_id, s.receiver_user_id) " +
+            "AND r.high_user_id = GREATEST(s.sender_user_id, s.receiver_user_id) " +
+            "WHEN NOT MATCHED THEN INSERT (id, sender_user_id, receiver_user_id) " +
+            "VALUES (NEXT VALUE FOR friend_request_seq, s.sender_user_id, s.receiver_user_id)", nativeQuery = true)
+    int insertIfPairFree(@Param("senderId") Long senderId, @Param("receiverId") Long receiverId);
+
+    // the pending request between two users, whichever way it was sent, locked until the transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM FriendRequest r WHERE r.lowUserId = :low AND r.highUserId = :high")
+    Optional<FriendRequest> findPairForUpdate(@Param("low") Long low, @Param("high") Long high);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM FriendRequest r WHERE r.id = :id")
+    Optional<FriendRequest> findForUpdate(@Param("id") Long id);
 }
@@ -1,8 +1,10 @@
 package com.friendfinder.repository;
 
+import com.friendfinder.dto.MessageDTO;
 import com.friendfinder.model.Chat;
 import com.friendfinder.model.Message;
 import com.friendfinder.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -20,23 +22,88 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     // reverse order
     List<Message> findByChatOrderByTimestampAsc(Chat chat);
 
+    // history pages, newest first. Summaries only, read state is filled in from the read cursors.
+    @Query("SELECT new com.friendfinder.dto.MessageDTO(m.messageId, m.chat.chatId, s.userId, s.name, " +
+            "m.content, m.timestamp, m.messageType, m.isEdited, m.editedAt, 0L, m.sequence) " +
+            "FROM Message m JOIN m.sender s WHERE m.chat.chatId = :chatId " +
+            "ORDER BY m.timestamp DESC, m.messageId DESC")
+    List<MessageDTO> findLatestPage(@Param("chatId") Long chatId, Pageable pageable);
+
+    // messages strictly older than the cursor, newest first
+    @Query("SELECT new com.friendfinder.dto.MessageDTO(m.messageId, m.chat.chatId, s.userId, s.name, " +
+            "m.content, m.timestamp, m.messageType, m.isEdited, m.editedAt, 0L, m.sequence) " +
+            "FROM Message m JOIN m.sender s WHERE m.chat.chatId = :chatId " +
+            "AND (m.timestamp < :timestamp OR (m.timestamp = :timestamp AND m.messageId < :messageId)) " +
+            "ORDER BY m.timestamp DESC, m.messageId DESC")
+    List<MessageDTO> findPageBefore(@Param("chatId") Long chatId,
+                                    @Param("timestamp") LocalDateTime timestamp,
+                                    @Param("messageId") Long messageId,
+                                    Pageable pageable);
+
+    // messages sent or edited after since and at most upTo, in sequence order
+    @Query("SELECT new com.friendfinder.dto.MessageDTO(m.messageId, m.chat.chatId, s.userId, s.name, " +
+            "m.content, m.timestamp, m.messageType, m.isEdited, m.editedAt, 0L, m.sequence) " +
+            "FROM Message m JOIN m.sender s WHERE m.chat.chatId = :chatId AND m.sequence > :since " +
+            "AND m.sequence <= :upTo ORDER BY m.sequence")
+    List<MessageDTO> findChangedSince(@Param("chatId") Long chatId, @Param("since") Long since,
+                                      @Param("upTo") Long upTo, Pageable pageable);
+
+    // true once a message with the chat sequence number has been written, used when replaying the journal
+    boolean existsByChatChatIdAndSequence(Long chatId, Long sequence);
+
+    // messages strictly newer than the cursor, oldest first
+    @Query("SELECT new com.friendfinder.dto.MessageDTO(m.messageId, m.chat.chatId, s.userId, s.name, " +
+            "m.content, m.timestamp, m.messageType, m.isEdited, m.editedAt, 0L, m.sequence) " +
+            "FROM Message m JOIN m.sender s WHERE m.chat.chatId = :chatId " +
+            "AND (m.timestamp > :timestamp OR (m.timestamp = :timestamp AND m.messageId > :messageId)) " +
+            "ORDER BY m.timestamp ASC, m.messageId ASC")
+    List<MessageDTO> findPageAfter(@Param("chatId") Long chatId,
+                                   @Param("timestamp") LocalDateTime timestamp,
+                                   @Param("messageId") Long messageId,
+                                   Pageable pageable);
+
     // find newest message in chat
     Message findTopByChatOrderByTimestampDesc(Chat chat);
 
-    // find messages not read my specific user in a chat
-    @Query("SELECT m FROM Message m WHERE m.chat = :chat " +
-    "AND m.sender != :user " +
-    "AND NOT EXISTS (SELECT r FROM MessageReadReceipt r WHERE r.message = m AND r.user = :user)")
-    List<Message> findUnreadMessagesByUserInChat(@Param("chat") Chat chat,
-                                                 @Param("user") User user);
-
-
-    // count unread messages in chat for specific user
-    @Query("SELECT COUNT(m) FROM Message m WHERE m.chat = :chat " +
-    "AND m.sender != :user " +
-    "AND NOT EXISTS (SELECT r FROM MessageReadReceipt r WHERE r.message = m AND r.user = :user)")
-    int countUnreadMessagesByUserInChat(@Param("chat") Chat chat,
-                                        @Param("user") User user);
+    // two newest messages in chat, used to find the one before the newest
+    List<Message> findTop2ByChatOrderByTimestampDescMessageIdDesc(Chat chat);
+
+    // messages from others after the user's read cursor, a range scan of the (chat_id, message_id) index
+    @Query("SELECT m FROM Message m WHERE m.chat.chatId = :chatId AND m.messageId > :afterMessageId " +
+            "AND m.sender.userId <> :userId ORDER BY m.messageId")
+    List<Message> findUnreadAfter(@Param("chatId") Long chatId,
+                                  @Param("userId") Long userId,
+                                  @Param("afterMessageId") Long afterMessageId);
+
+    // newest message id in the chat that is not past the given id, null if there is none
+    @Query("SELECT MAX(m.messageId) FROM Message m WHERE m.chat.chatId = :chatId AND m.messageId <= :messageId")
+    Long findLastMessageIdUpTo(@Param("chatId") Long chatId, @Param("messageId") Long messageId);
+
+    // count of the unread messages
+    @Query("SELECT COUNT(m) FROM Message m WHERE m.chat.chatId = :chatId AND m.messageId > :afterMessageId " +
+            "AND m.sender.userId <> :userId")
+    long countUnreadAfter(@Param("chatId") Long chatId,
+                          @Param("userId") Long userId,
+                          @Param("afterMessageId") Long afterMessageId);
+
+    // inbox: newest message of every chat the user is in, looked up by primary key from chat_activity
+    @Query("SELECT new com.friendfinder.dto.MessageDTO(m.messageId, m.chat.chatId, s.userId, s.name, " +
+            "m.content, m.timestamp, m.messageType, m.isEdited, m.editedAt, " +
+            "(SELECT COUNT(r) FROM ChatReadCursor r WHERE r.chatId = m.chat.chatId " +
+            "AND r.lastReadMessageId >= m.messageId AND r.userId <> s.userId), m.sequence) " +
+            "FROM Message m JOIN m.sender s " +
+            "WHERE m.messageId IN (SELECT a.lastMessageId FROM ChatActivity a WHERE a.chatId IN " +
+            "(SELECT c.chatId FROM Chat c JOIN c.participants p WHERE p.userId = :userId))")
+    List<MessageDTO> findInboxLastMessages(@Param("userId") Long userId);
+
+    // inbox: (chatId, unread count) for every chat the user is in with unread messages
+    @Query("SELECT m.chat.chatId, COUNT(m) FROM Message m " +
+            "LEFT JOIN ChatReadCursor r ON r.chatId = m.chat.chatId AND r.userId = :userId " +
+            "WHERE m.chat.chatId IN (SELECT c.chatId FROM Chat c JOIN c.participants p WHERE p.userId = :userId) " +
+            "AND m.sender.userId <> :userId " +
+            "AND m.messageId > COALESCE(r.lastReadMessageId, 0) " +
+            "GROUP BY m.chat.chatId")
+    List<Object[]> countInboxUnread(@Param("userId") Long userId);
 
     // find all messages sent by a specific user
     List<Message> findBySender(User sender);
@@ -0,0 +1,25 @@
+package com.friendfinder.repository;
+
+import com.friendfinder.model.MessageTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface MessageTombstoneRepository extends JpaRepository<MessageTombstone, Long> {
+
+    // ids of messages deleted with a sequence number in (since, upTo]
+    @Query("SELECT t.messageId FROM MessageTombstone t WHERE t.chatId = :chatId " +
+            "AND t.sequence > :since AND t.sequence <= :upTo ORDER BY t.sequence")
+    List<Long> findDeletedMessageIds(@Param("chatId") Long chatId,
+                                     @Param("since") Long since,
+                                     @Param("upTo") Long upTo);
+
+    @Modifying
+    @Query("DELETE FROM MessageTombstone t WHERE t.chatId = :chatId")
+    void deleteByChatId(@Param("chatId") Long chatId);
+}
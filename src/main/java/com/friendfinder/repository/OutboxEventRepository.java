@@ -0,0 +1,48 @@
+package com.friendfinder.repository;
+
+import com.friendfinder.model.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // events left over, oldest first, after the id of the last one seen
+    @Query("SELECT e FROM OutboxEvent e WHERE e.id > :afterId AND e.attempts < :maxAttempts ORDER BY e.id")
+    List<OutboxEvent> findPending(@Param("afterId") Long afterId,
+                                  @Param("maxAttempts") int maxAttempts,
+                                  Pageable page);
+
+    // events due for another attempt at the time, oldest first
+    @Query("SELECT e FROM OutboxEvent e WHERE e.attempts < :maxAttempts " +
+            "AND (e.nextAttemptAt IS NULL OR e.nextAttemptAt <= :now) ORDER BY e.id")
+    List<OutboxEvent> findDue(@Param("now") LocalDateTime now,
+                              @Param("maxAttempts") int maxAttempts,
+                              Pageable page);
+
+    // count the failure and push the next attempt back, the delay doubles with every failure
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE outbox_events SET attempts = attempts + 1, " +
+            "next_attempt_at = DATEADD(MILLISECOND, CAST(CAST(:delayMillis AS BIGINT) * POWER(2, attempts) AS BIGINT), " +
+            "CAST(:now AS TIMESTAMP)) " +
+            "WHERE id IN (:ids)", nativeQuery = true)
+    int recordFailure(@Param("ids") Collection<Long> ids,
+                      @Param("now") LocalDateTime now,
+                      @Param("delayMillis") long delayMillis);
+
+    // rows that can not be handled at all are kept for inspection but never handed out again
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.attempts = :maxAttempts WHERE e.id IN :ids")
+    int giveUp(@Param("ids") Collection<Long> ids, @Param("maxAttempts") int maxAttempts);
+}
@@ -1,6 +1,9 @@
 package com.friendfinder.repository;
 
+import com.friendfinder.dto.UserSummaryDTO;
 import com.friendfinder.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
@@ -14,6 +17,9 @@ import java.util.Optional;
 public interface UserRepository extends PagingAndSortingRepository<User, Long>, CrudRepository<User, Long> {
     User findByEmail(@Param("email") String email);
 
+    // keyset paging over users in id order
+    List<User> findByUserIdGreaterThan(Long userId, Pageable pageable);
+
 
     // find all participants in a specific chat
     @Query("SELECT u FROM User u JOIN u.chats c WHERE c.chatId = :chatId")
@@ -32,5 +38,40 @@ public interface UserRepository extends PagingAndSortingRepository<User, Long>,
     @Query("SELECT DISTINCT u FROM User u JOIN u.chats c1 JOIN c1.participants p WHERE p.userId = :userId AND u.userId != :userId")
     List<User> findUsersInCommonChatsWith(@Param("userId") Long userId);
 
+    // every (userId, interestId) pair, used to build the in-memory interest index
+    @Query("SELECT u.userId, i.id FROM User u JOIN u.interests i")
+    List<Object[]> findAllUserInterestIds();
+
+    // every (userId, friendId) row of friends_relation, used to build the in-memory friend graph
+    @Query("SELECT u.userId, f.userId FROM User u JOIN u.friends f")
+    List<Object[]> findAllFriendIdPairs();
+
+    // id, name and email of a user's friends, without loading them as entities
+    @Query("SELECT new com.friendfinder.dto.UserSummaryDTO(f.userId, f.name, f.email) " +
+           "FROM User u JOIN u.friends f WHERE u.userId = :userId ORDER BY f.name, f.userId")
+    List<UserSummaryDTO> findFriendSummaries(@Param("userId") Long userId);
+
+    @Query("SELECT f.userId FROM User u JOIN u.friends f WHERE u.userId = :userId")
+    List<Long> findFriendIds(@Param("userId") Long userId);
+
+    @Query(value = "SELECT COUNT(*) > 0 FROM friends_relation WHERE user_id = :userId AND friend_id = :friendId",
+            nativeQuery = true)
+    boolean existsFriendship(@Param("userId") Long userId, @Param("friendId") Long friendId);
+
+    // friends_relation rows are written directly, saving the friends list would rewrite every row of
+    // the user from a copy that a concurrent change may have made stale. Clears the persistence context
+    // so no loaded friends list outlives the change.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO friends_relation (user_id, friend_id) " +
+            "SELECT v.user_id, v.friend_id FROM (VALUES (CAST(:userId AS BIGINT), CAST(:friendId AS BIGINT)), " +
+            "(CAST(:friendId AS BIGINT), CAST(:userId AS BIGINT))) v (user_id, friend_id) " +
+            "WHERE NOT EXISTS (SELECT 1 FROM friends_relation r WHERE r.user_id = v.user_id AND r.friend_id = v.friend_id)",
+            nativeQuery = true)
+    int insertFriendship(@Param("userId") Long userId, @Param("friendId") Long friendId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "DELETE FROM friends_relation WHERE (user_id = :userId AND friend_id = :friendId) " +
+            "OR (user_id = :friendId AND friend_id = :userId)", nativeQuery = true)
+    int deleteFriendship(@Param("userId") Long userId, @Param("friendId") Long friendId);
 
 }
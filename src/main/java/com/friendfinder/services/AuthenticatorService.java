@@ -1,10 +1,13 @@
 package com.friendfinder.services;
 
+import com.friendfinder.events.DomainEventBus;
+import com.friendfinder.events.UserRegistered;
 import com.friendfinder.exceptions.InvalidEmailException;
 import com.friendfinder.exceptions.InvalidNameException;
 import com.friendfinder.exceptions.InvalidPasswordException;
 import com.friendfinder.model.User;
 import com.friendfinder.repository.UserRepository;
+import com.friendfinder.suggestion.InterestIndex;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -19,6 +22,12 @@ public class AuthenticatorService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private InterestIndex interestIndex;
+
+    @Autowired
+    private DomainEventBus eventBus;
+
     @Transactional
     public void register(User user) throws InvalidEmailException, InvalidNameException, InvalidPasswordException, NullPointerException {
         // TODO Consider validating password strength more thoroughly
@@ -41,6 +50,8 @@ public class AuthenticatorService {
         user.setPassword(passwordEncoder.encode(user.getPassword()));
 
         userRepository.save(user);
+        interestIndex.update(user.getUserId(), user.getInterests());
+        eventBus.publish(new UserRegistered(user.getUserId()));
     }
 
     public Auth authenticate(String email, String password) throws InvalidEmailException, InvalidPasswordException {
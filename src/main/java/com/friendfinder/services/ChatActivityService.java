@@ -0,0 +1,108 @@
+package com.friendfinder.services;
+
+import com.friendfinder.exceptions.ChatNotFoundException;
+import com.friendfinder.model.Chat;
+import com.friendfinder.model.ChatActivity;
+import com.friendfinder.model.Message;
+import com.friendfinder.repository.ChatActivityRepository;
+import com.friendfinder.repository.MessageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Keeps the chat_activity read model in step with the message table. Every method joins the
+// caller's transaction, so the activity row commits or rolls back together with the message.
+@Service
+@Transactional
+public class ChatActivityService {
+
+    private final ChatActivityRepository activityRepository;
+    private final MessageRepository messageRepository;
+
+    @Autowired
+    public ChatActivityService(ChatActivityRepository activityRepository, MessageRepository messageRepository) {
+        this.activityRepository = activityRepository;
+        this.messageRepository = messageRepository;
+    }
+
+    public void messageSaved(Message message) {
+        ChatActivity activity = lockActivity(message.getChat());
+        activity.recordMessage(message);
+        activityRepository.save(activity);
+    }
+
+    // messages written together by the write-behind pipeline, each chat's row is locked once
+    public void messagesSaved(List<Message> messages) {
+        Map<Long, List<Message>> byChat = new LinkedHashMap<>();
+        for (Message message : messages) {
+            byChat.computeIfAbsent(message.getChat().getChatId(), id -> new ArrayList<>()).add(message);
+        }
+        for (List<Message> inChat : byChat.values()) {
+            ChatActivity activity = lockActivity(inChat.get(0).getChat());
+            for (Message message : inChat) {
+                activity.recordMessage(message);
+                activity.advanceSequence(message.getSequence());
+            }
+            activityRepository.save(activity);
+        }
+    }
+
+    public void messageEdited(Message message) {
+        ChatActivity activity = lockActivity(message.getChat());
+        if (message.getMessageId().equals(activity.getLastMessageId())) {
+            activity.showMessage(message);
+            activityRepository.save(activity);
+        }
+    }
+
+    // call before the message is deleted, the next newest message takes its place in the inbox
+    public void messageDeleted(Message message) {
+        ChatActivity activity = lockActivity(message.getChat());
+        activity.messageRemoved();
+        if (message.getMessageId().equals(activity.getLastMessageId())) {
+            Message previous = null;
+            for (Message candidate : messageRepository.findTop2ByChatOrderByTimestampDescMessageIdDesc(message.getChat())) {
+                if (!candidate.getMessageId().equals(message.getMessageId())) {
+                    previous = candidate;
+                    break;
+                }
+            }
+            activity.showMessage(previous);
+        }
+        activityRepository.save(activity);
+    }
+
+    // create the rows for chats that had messages before the read model existed
+    public int backfill() {
+        List<Object[]> missing = activityRepository.findMissingActivity();
+        if (missing.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Long> counts = new HashMap<>();
+        List<Long> lastIds = new ArrayList<>();
+        for (Object[] row : missing) {
+            counts.put((Long) row[0], (Long) row[1]);
+            lastIds.add((Long) row[2]);
+        }
+        List<ChatActivity> created = new ArrayList<>();
+        for (Message last : messageRepository.findAllById(lastIds)) {
+            ChatActivity activity = new ChatActivity(last.getChat());
+            activity.showMessage(last);
+            activity.setMessageCount(counts.get(last.getChat().getChatId()));
+            created.add(activity);
+        }
+        activityRepository.saveAll(created);
+        return created.size();
+    }
+
+    private ChatActivity lockActivity(Chat chat) {
+        return activityRepository.findOrCreateForUpdate(chat.getChatId())
+                .orElseThrow(() -> new ChatNotFoundException("Chat with id " + chat.getChatId() + "not found"));
+    }
+}
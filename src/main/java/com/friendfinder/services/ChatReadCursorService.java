@@ -0,0 +1,109 @@
+package com.friendfinder.services;
+
+import com.friendfinder.dto.MessageDTO;
+import com.friendfinder.dto.MessageReadReceiptDTO;
+import com.friendfinder.model.ChatReadCursor;
+import com.friendfinder.model.Message;
+import com.friendfinder.repository.ChatReadCursorRepository;
+import com.friendfinder.repository.MessageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Read state kept as one watermark per user per chat. Unread counts are a range count over the
+// (chat_id, message_id) index and the "seen by" lists are derived from the watermarks, a reader has
+// seen a message when their cursor is at or past it. The time shown is when the cursor last moved.
+@Service
+@Transactional
+public class ChatReadCursorService {
+
+    private final ChatReadCursorRepository cursorRepository;
+    private final MessageRepository messageRepository;
+    private final ChatSequenceService sequenceService;
+
+    @Autowired
+    public ChatReadCursorService(ChatReadCursorRepository cursorRepository, MessageRepository messageRepository,
+                                 ChatSequenceService sequenceService) {
+        this.cursorRepository = cursorRepository;
+        this.messageRepository = messageRepository;
+        this.sequenceService = sequenceService;
+    }
+
+    // move the user's cursor in the chat up to the message, never backwards
+    public ChatReadCursor markRead(Long chatId, Long userId, Long messageId) {
+        ChatReadCursor cursor = cursorRepository.findOrCreateForUpdate(chatId, userId);
+        if (cursor.advanceTo(messageId, LocalDateTime.now())) {
+            cursor.setSequence(sequenceService.nextReadSequence(chatId));
+            cursor = cursorRepository.save(cursor);
+        }
+        return cursor;
+    }
+
+    public Long lastReadMessageId(Long chatId, Long userId) {
+        return cursorRepository.findByChatIdAndUserId(chatId, userId)
+                .map(ChatReadCursor::getLastReadMessageId)
+                .orElse(0L);
+    }
+
+    public int unreadCount(Long chatId, Long userId) {
+        return (int) messageRepository.countUnreadAfter(chatId, userId, lastReadMessageId(chatId, userId));
+    }
+
+    public List<Message> unreadMessages(Long chatId, Long userId) {
+        return messageRepository.findUnreadAfter(chatId, userId, lastReadMessageId(chatId, userId));
+    }
+
+    // who has seen the message, the sender is never listed
+    public List<MessageReadReceiptDTO> receiptsFor(Message message) {
+        return receipts(cursorRepository.findReadersInChat(message.getChat().getChatId()),
+                message.getMessageId(), message.getSender().getUserId());
+    }
+
+    // fill in receipts and read counts of messages from one chat with a single query
+    public List<MessageDTO> withReadState(Long chatId, List<MessageDTO> messages) {
+        if (messages.isEmpty()) {
+            return messages;
+        }
+        List<Object[]> readers = cursorRepository.findReadersInChat(chatId);
+        for (MessageDTO message : messages) {
+            List<MessageReadReceiptDTO> receipts = receipts(readers, message.getMessageId(), message.getSenderId());
+            message.setReadReceipts(receipts);
+            message.setReadCount(receipts.size());
+        }
+        return messages;
+    }
+
+    public List<ChatReadCursor> movedSince(Long chatId, long since, long upTo) {
+        return cursorRepository.findMovedSince(chatId, since, upTo);
+    }
+
+    // create cursors from the per message receipts written before cursors existed
+    public int backfill() {
+        List<ChatReadCursor> created = new ArrayList<>();
+        for (Object[] row : cursorRepository.findMissingCursorsFromReceipts()) {
+            ChatReadCursor cursor = new ChatReadCursor((Long) row[0], (Long) row[1]);
+            cursor.advanceTo((Long) row[2], (LocalDateTime) row[3]);
+            created.add(cursor);
+        }
+        cursorRepository.saveAll(created);
+        return created.size();
+    }
+
+    // readers come furthest first, so stop at the first one that has not reached the message
+    private List<MessageReadReceiptDTO> receipts(List<Object[]> readers, Long messageId, Long senderId) {
+        List<MessageReadReceiptDTO> receipts = new ArrayList<>();
+        for (Object[] row : readers) {
+            if ((Long) row[2] < messageId) {
+                break;
+            }
+            if (!row[0].equals(senderId)) {
+                receipts.add(new MessageReadReceiptDTO((Long) row[0], (String) row[1], (LocalDateTime) row[3]));
+            }
+        }
+        return receipts;
+    }
+}
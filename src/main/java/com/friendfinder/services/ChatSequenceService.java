@@ -0,0 +1,152 @@
+package com.friendfinder.services;
+
+import com.friendfinder.exceptions.ChatNotFoundException;
+import com.friendfinder.model.ChatActivity;
+import com.friendfinder.model.Message;
+import com.friendfinder.model.MessageTombstone;
+import com.friendfinder.repository.ChatActivityRepository;
+import com.friendfinder.repository.ChatRepository;
+import com.friendfinder.repository.MessageTombstoneRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Hands out the per chat sequence numbers that clients sync from. The counter lives on the chat's
+// activity row, which is locked until the end of the caller's transaction, so numbers in a chat are
+// unique and commit in order.
+//
+// With write-behind messages get their number before anything is written, so the counters are kept
+// in memory instead, seeded from the activity row. Numbers that are handed out but not yet written
+// are tracked per chat and currentSequence stops below the oldest of them, a client syncing up to it
+// can never skip a change that commits later. This only holds for a single application instance.
+//
+// Read cursors are numbered by a second counter on the chat row, so a reader moving their cursor
+// never waits for, or holds up, the messages being sent.
+@Service
+@Transactional
+public class ChatSequenceService {
+
+    private final ChatActivityRepository activityRepository;
+    private final ChatRepository chatRepository;
+    private final MessageTombstoneRepository tombstoneRepository;
+    private final boolean inMemory;
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ChatSequenceService(ChatActivityRepository activityRepository, ChatRepository chatRepository,
+                               MessageTombstoneRepository tombstoneRepository,
+                               @Value("${friendfinder.chats.write-behind.enabled:false}") boolean inMemory) {
+        this.activityRepository = activityRepository;
+        this.chatRepository = chatRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.inMemory = inMemory;
+    }
+
+    public long nextSequence(Long chatId) {
+        ChatActivity activity = activityRepository.findOrCreateForUpdate(chatId)
+                .orElseThrow(() -> new ChatNotFoundException("Chat with id " + chatId + "not found"));
+        long sequence;
+        if (inMemory) {
+            sequence = allocate(chatId);
+            activity.advanceSequence(sequence);
+            completeAfterTransaction(chatId, sequence);
+        } else {
+            sequence = activity.nextSequence();
+        }
+        activityRepository.save(activity);
+        return sequence;
+    }
+
+    // next number without touching the activity row, the caller must report it with completed once
+    // the change is written or given up. Only used with write-behind.
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public long allocate(Long chatId) {
+        return counters.computeIfAbsent(chatId, id -> new Counter(storedSequence(id))).allocate();
+    }
+
+    // the change with this number has been written or dropped
+    public void completed(Long chatId, long sequence) {
+        Counter counter = counters.get(chatId);
+        if (counter != null) {
+            counter.completed(sequence);
+        }
+    }
+
+    // newest sequence number in the chat, 0 before anything happened. With write-behind it is the
+    // newest number below which every change has been written.
+    @Transactional(readOnly = true)
+    public long currentSequence(Long chatId) {
+        Counter counter = counters.get(chatId);
+        return counter != null ? counter.visible() : storedSequence(chatId);
+    }
+
+    // next read sequence number, the chat row stays locked until the caller's transaction ends
+    public long nextReadSequence(Long chatId) {
+        if (chatRepository.incrementReadSequence(chatId) == 0) {
+            throw new ChatNotFoundException("Chat with id " + chatId + "not found");
+        }
+        return currentReadSequence(chatId);
+    }
+
+    // newest read sequence number in the chat, 0 before anyone read anything
+    @Transactional(readOnly = true)
+    public long currentReadSequence(Long chatId) {
+        return chatRepository.findReadSequence(chatId).orElse(0L);
+    }
+
+    // record the deletion under a new sequence number
+    public void messageDeleted(Message message) {
+        Long chatId = message.getChat().getChatId();
+        tombstoneRepository.save(new MessageTombstone(chatId, message.getMessageId(), nextSequence(chatId)));
+    }
+
+    private long storedSequence(Long chatId) {
+        return activityRepository.findById(chatId)
+                .map(ChatActivity::getLastSequence)
+                .orElse(0L);
+    }
+
+    private void completeAfterTransaction(Long chatId, long sequence) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            completed(chatId, sequence);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                completed(chatId, sequence);
+            }
+        });
+    }
+
+    private static final class Counter {
+
+        private long last;
+        private final TreeSet<Long> inFlight = new TreeSet<>();
+
+        private Counter(long last) {
+            this.last = last;
+        }
+
+        private synchronized long allocate() {
+            inFlight.add(++last);
+            return last;
+        }
+
+        private synchronized void completed(long sequence) {
+            inFlight.remove(sequence);
+        }
+
+        private synchronized long visible() {
+            return inFlight.isEmpty() ? last : inFlight.first() - 1;
+        }
+    }
+}
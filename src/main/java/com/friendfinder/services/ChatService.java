@@ -1,5 +1,6 @@
 package com.friendfinder.services;
 
+import com.friendfinder.chat.ChatMembershipCache;
 import com.friendfinder.dto.ChatDTO;
 import com.friendfinder.dto.MessageDTO;
 import com.friendfinder.exceptions.ChatNotFoundException;
@@ -8,16 +9,26 @@ import com.friendfinder.exceptions.UserNotFoundException;
 import com.friendfinder.exceptions.UserNotInChatException;
 import com.friendfinder.factory.ChatFactory;
 import com.friendfinder.model.Chat;
+import com.friendfinder.model.ChatActivity;
 import com.friendfinder.model.Message;
 import com.friendfinder.model.User;
+import com.friendfinder.repository.ChatActivityRepository;
+import com.friendfinder.repository.ChatReadCursorRepository;
 import com.friendfinder.repository.ChatRepository;
 import com.friendfinder.repository.MessageRepository;
+import com.friendfinder.repository.MessageTombstoneRepository;
 import com.friendfinder.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -30,14 +41,26 @@ public class ChatService {
     private final UserRepository userRepository;
     private final MessageRepository messageRepository;
     private final ChatFactory chatFactory;
+    private final ChatActivityRepository chatActivityRepository;
+    private final ChatReadCursorRepository chatReadCursorRepository;
+    private final MessageTombstoneRepository messageTombstoneRepository;
+    private final ChatMembershipCache membershipCache;
 
     @Autowired
     public ChatService(ChatRepository chatRepository, UserRepository userRepository,
-                       MessageRepository messageRepository, ChatFactory chatFactory) {
+                       MessageRepository messageRepository, ChatFactory chatFactory,
+                       ChatActivityRepository chatActivityRepository,
+                       ChatReadCursorRepository chatReadCursorRepository,
+                       MessageTombstoneRepository messageTombstoneRepository,
+                       ChatMembershipCache membershipCache) {
         this.chatRepository = chatRepository;
         this.userRepository = userRepository;
         this.messageRepository = messageRepository;
         this.chatFactory = chatFactory;
+        this.chatActivityRepository = chatActivityRepository;
+        this.chatReadCursorRepository = chatReadCursorRepository;
+        this.messageTombstoneRepository = messageTombstoneRepository;
+        this.membershipCache = membershipCache;
     }
     // Newest message in id specific chat
     public ChatDTO getChatById(Long chatId) {
@@ -50,17 +73,41 @@ public class ChatService {
         return new ChatDTO(chat, lastMessageDTO);
     }
 
-    // list of chats from specific user
+    // list of chats from specific user with participants, last message and unread count, most recently
+    // active first. Four queries whatever the number of chats, no chat or message entities are loaded.
+    @Transactional(readOnly = true)
     public List<ChatDTO> getUserChats(Long userId) {
-        List<Chat> chats = chatRepository.findByParticipantsUserId(userId);
-
-        return chats.stream()
-                .map(chat -> {
-                    Message lastMessage = messageRepository.findTopByChatOrderByTimestampDesc(chat);
-                    MessageDTO lastMessageDTO = lastMessage != null ? new MessageDTO(lastMessage) : null;
-                    return new ChatDTO(chat, lastMessageDTO);
-                })
-                .collect(Collectors.toList());
+        Map<Long, ChatDTO> inbox = new LinkedHashMap<>();
+        for (Object[] row : chatRepository.findInboxChats(userId)) {
+            Long chatId = (Long) row[0];
+            inbox.put(chatId, new ChatDTO(chatId, (String) row[1], (String) row[2], (LocalDateTime) row[3],
+                    new ArrayList<>(), new ArrayList<>(), null, 0));
+        }
+        if (inbox.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        for (Object[] row : chatRepository.findInboxParticipants(userId)) {
+            ChatDTO chat = inbox.get((Long) row[0]);
+            if (chat != null) {
+                chat.getParticipantIds().add((Long) row[1]);
+                chat.getParticipantUsernames().add((String) row[2]);
+                chat.setParticipantCount(chat.getParticipantIds().size());
+            }
+        }
+        for (MessageDTO lastMessage : messageRepository.findInboxLastMessages(userId)) {
+            ChatDTO chat = inbox.get(lastMessage.getChatId());
+            if (chat != null) {
+                chat.setLastMessage(lastMessage);
+            }
+        }
+        for (Object[] row : messageRepository.countInboxUnread(userId)) {
+            ChatDTO chat = inbox.get((Long) row[0]);
+            if (chat != null) {
+                chat.setUnreadCount(((Number) row[1]).intValue());
+            }
+        }
+        return new ArrayList<>(inbox.values());
     }
 
     // create new chat
@@ -71,17 +118,18 @@ public class ChatService {
                 .orElseThrow(() -> new UserNotFoundException("User" + user2Id + "not found"));
 
         // Check if dm already exists
-        List<Chat> user1Chats = chatRepository.findByParticipantsUserId(user1Id);
-        for (Chat chat : user1Chats) {
-            if ("DIRECT".equals(chat.getChatType()) && chat.getParticipants().contains(user2)) {
-                return new ChatDTO(chat);
-            }
+        Optional<Chat> existing = chatRepository.findDirectChatBetweenUsers(user1Id, user2Id);
+        if (existing.isPresent()) {
+            return new ChatDTO(existing.get());
         }
 
-        Chat chat = chatFactory.createDirectChat(user1, user2);
-        Chat savedChat = chatRepository.save(chat);
-
-        return new ChatDTO(savedChat);
+        // when both users open the chat at the same moment one insert gives way to the other
+        chatRepository.insertDirectChatIfAbsent(chatFactory.generateDirectChatName(user1, user2),
+                        LocalDateTime.now(), user1Id, user2Id)
+                .ifPresent(membershipCache::invalidate);
+        Chat chat = chatRepository.findDirectChatBetweenUsers(user1Id, user2Id)
+                .orElseThrow(() -> new IllegalStateException("Direct chat of users " + user1Id + " and " + user2Id + " was not created"));
+        return new ChatDTO(chat);
     }
 
     // create group chat
@@ -89,13 +137,24 @@ public class ChatService {
         User creator = userRepository.findById(creatorId)
                 .orElseThrow(() -> new UserNotFoundException("Creator" + creatorId + "not found"));
 
-        Set<User> participants = participantIds.stream()
-                .map(id -> userRepository.findById(id)
-                        .orElseThrow(() -> new UserNotFoundException("User" + id + "not found")))
-                .collect(Collectors.toSet());
+        // all participants in one query
+        Set<User> participants = new HashSet<>();
+        Set<Long> found = new HashSet<>();
+        for (User user : userRepository.findAllById(participantIds)) {
+            participants.add(user);
+            found.add(user.getUserId());
+        }
+        for (Long id : participantIds) {
+            if (!found.contains(id)) {
+                throw new UserNotFoundException("User" + id + "not found");
+            }
+        }
 
         Chat chat = chatFactory.createGroupChat(chatName, creator, participants);
         Chat savedChat = chatRepository.save(chat);
+        // created with the chat, so the first messages have a row to lock
+        chatActivityRepository.save(new ChatActivity(savedChat));
+        membershipCache.invalidate(savedChat.getChatId());
 
         return new ChatDTO(savedChat);
     }
@@ -113,7 +172,9 @@ public class ChatService {
         }
 
         chat.getParticipants().add(user);
+        chat.clearDirectPair();
         chatRepository.save(chat);
+        membershipCache.invalidate(chatId);
     }
 
     // remove person from chat
@@ -129,7 +190,9 @@ public class ChatService {
         }
 
         chat.getParticipants().remove(user);
+        chat.clearDirectPair();
         chatRepository.save(chat);
+        membershipCache.invalidate(chatId);
     }
 
     // delete a chat
@@ -137,18 +200,19 @@ public class ChatService {
         Chat chat = chatRepository.findById(chatId)
                 .orElseThrow(() -> new ChatNotFoundException("Chat" + chatId + "not found"));
 
+        chatActivityRepository.findById(chatId).ifPresent(chatActivityRepository::delete);
+        chatReadCursorRepository.deleteByChatId(chatId);
+        messageTombstoneRepository.deleteByChatId(chatId);
         chatRepository.delete(chat);
+        membershipCache.invalidate(chatId);
     }
 
+    // answered from the membership cache, the chat is only loaded on a miss
     public boolean isUserInChat(Long chatId, Long userId) {
         if (chatId == null || userId == null) {
             return false;
         }
-        Chat chat = chatRepository.findById(chatId)
-                .orElseThrow(() -> new ChatNotFoundException("Chat" + chatId + "not found"));
-
-        return chat.getParticipants().stream()
-                .anyMatch(user -> user.getUserId().equals(userId));
+        return membershipCache.isMember(chatId, userId);
     }
 
 
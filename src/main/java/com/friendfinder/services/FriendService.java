@@ -1,18 +1,39 @@
 package com.friendfinder.services;
 
+import com.friendfinder.dto.FriendConnectionDTO;
+import com.friendfinder.dto.UserSummaryDTO;
+import com.friendfinder.events.DomainEventBus;
+import com.friendfinder.events.FriendshipAccepted;
+import com.friendfinder.events.FriendshipRemoved;
+import com.friendfinder.graph.FriendGraph;
+import com.friendfinder.graph.FriendshipSet;
 import com.friendfinder.model.FriendRequest;
 import com.friendfinder.model.User;
 import com.friendfinder.repository.FriendRequestRepository;
 import com.friendfinder.repository.UserRepository;
+import com.friendfinder.suggestion.SuggestionQueueCache;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class FriendService {
 
+    // a request racing with another one for the same pair is retried this often
+    private static final int SEND_ATTEMPTS = 5;
+
     @Autowired
     private FriendRequestRepository requestRepo;
 
@@ -20,7 +41,22 @@ public class FriendService {
     private UserRepository userRepo;
 
     @Autowired
-    private ChatService chatService;
+    private SuggestionQueueCache suggestionQueues;
+
+    @Autowired
+    private FriendGraph friendGraph;
+
+    @Autowired
+    private FriendshipSet friendships;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DomainEventBus eventBus;
+
+    @Value("${friendfinder.friends.max-path-depth:6}")
+    private int maxPathDepth = 6;
 
     public List<FriendRequest> getPendingRequestsAsSender(User sender) {
         return requestRepo.findBySender(sender)
@@ -34,31 +70,62 @@ public class FriendService {
                 .toList();
     }
 
-    @Transactional
+    // sends a request, or accepts the receiver's pending request to the sender. The request is written
+    // by a single MERGE guarded by the unique index on the unordered pair, so double clicks and mutual
+    // requests can not both get in. When two race, the loser fails on the index and is retried in a new
+    // transaction, where it finds the winner's request.
     public void sendRequest(User sender, User receiver) {
-        var friendRequest = requestRepo.findBySenderAndReceiver(receiver, sender);
-        if (friendRequest != null){
-            acceptRequest(friendRequest.getId());
+        // inside a caller's transaction a failure can not be retried, it has to roll back the caller
+        int attempts = TransactionSynchronizationManager.isActualTransactionActive() ? 1 : SEND_ATTEMPTS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> submitRequest(sender, receiver));
+                return;
+            } catch (DataIntegrityViolationException | ConcurrencyFailureException e) {
+                if (attempt >= attempts) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void submitRequest(User sender, User receiver) {
+        Long senderId = sender.getUserId();
+        Long receiverId = receiver.getUserId();
+        if (senderId.equals(receiverId) || friendships.areFriends(senderId, receiverId)) {
             return;
-        } else if(areFriends(sender, receiver) || requestRepo.findBySenderAndReceiver(sender, receiver) != null){
+        }
+        if (requestRepo.insertIfPairFree(senderId, receiverId) == 1) {
+            // an insert that had to wait on the index for an accept of the pair's old request only got
+            // in once that accept committed, so the friendship is visible now and the attempt starts over
+            if (userRepo.existsFriendship(senderId, receiverId)) {
+                throw new ConcurrencyFailureException("Users " + senderId + " and " + receiverId + " became friends meanwhile");
+            }
+            suggestionQueues.removeCandidate(senderId, receiverId);
             return;
         }
-        requestRepo.save(new FriendRequest(sender, receiver));
+        // the pair already has a request, or they became friends, the receiver's request makes this mutual
+        requestRepo.findPairForUpdate(Math.min(senderId, receiverId), Math.max(senderId, receiverId))
+                .filter(pending -> pending.getSender().getUserId().equals(receiverId))
+                .ifPresent(pending -> acceptRequest(pending.getId()));
     }
 
     @Transactional
     public void acceptRequest(Long requestId) {
-        FriendRequest req = requestRepo.findById(requestId).orElse(null);
+        // locked, so a request is accepted at most once even when it is accepted twice at the same time
+        FriendRequest req = requestRepo.findForUpdate(requestId).orElse(null);
         if (req != null ) {
-            User sender = req.getSender();
-            User receiver = req.getReceiver();
-            sender.addFriend(receiver);
-            receiver.addFriend(sender);
-            userRepo.save(sender);
-            userRepo.save(receiver);
+            Long senderId = req.getSender().getUserId();
+            Long receiverId = req.getReceiver().getUserId();
             requestRepo.delete(req);
-
-            createDirectChatForFriends(sender, receiver);
+            userRepo.insertFriendship(senderId, receiverId);
+            friendGraph.connect(senderId, receiverId);
+            friendships.connect(senderId, receiverId);
+            suggestionQueues.removeCandidate(senderId, receiverId);
+            suggestionQueues.removeCandidate(receiverId, senderId);
+
+            // their direct chat and everyone else's suggestions are seen to after the commit
+            eventBus.publish(new FriendshipAccepted(senderId, receiverId));
         }
     }
 
@@ -67,37 +134,80 @@ public class FriendService {
         requestRepo.deleteById(requestId);
     }
 
-    @Transactional
-    public List<User> getFriends(User user) {
-        User managedUser = userRepo.findById(user.getUserId()).orElse(null);
-        return managedUser != null ? managedUser.getFriends() : List.of();
+    // the user's friends as shown in the friend lists, sorted by name
+    public List<UserSummaryDTO> getFriends(User user) {
+        return userRepo.findFriendSummaries(user.getUserId());
     }
 
     public boolean areFriends(User user1, User user2) {
-        User fullUser1 = userRepo.findById(user1.getUserId()).orElse(null);
-        if (fullUser1 == null) return false;
-        return fullUser1.getFriends().contains(user2);
+        return friendships.areFriends(user1.getUserId(), user2.getUserId());
+    }
+
+    // ids of the given users that are friends with the user, one set lookup each
+    public Set<Long> friendIdsAmong(User user, Iterable<User> users) {
+        Set<Long> friendIds = new HashSet<>();
+        for (User other : users) {
+            if (friendships.areFriends(user.getUserId(), other.getUserId())) {
+                friendIds.add(other.getUserId());
+            }
+        }
+        return friendIds;
     }
 
     @Transactional
     public void removeFriend(User user, User friend) {
-        User managedUser = userRepo.findById(user.getUserId()).orElse(null);
-        User managedFriend = userRepo.findById(friend.getUserId()).orElse(null);
-        if (managedUser == null || managedFriend == null) return;
-        managedUser.getFriends().remove(managedFriend);
-        managedFriend.getFriends().remove(managedUser);
-
-        userRepo.save(managedUser);
-        userRepo.save(managedFriend);
+        Long userId = user.getUserId();
+        Long friendId = friend.getUserId();
+        if (userRepo.deleteFriendship(userId, friendId) == 0) return;
+        friendGraph.disconnect(userId, friendId);
+        friendships.disconnect(userId, friendId);
+
+        // they can be suggested to each other again, their friends' queues are dropped after commit
+        suggestionQueues.invalidate(userId);
+        suggestionQueues.invalidate(friendId);
+        eventBus.publish(new FriendshipRemoved(userId, friendId));
     }
 
-    private void createDirectChatForFriends(User user1, User user2) {
-        try {
-            chatService.createDirectChat(user1.getUserId(), user2.getUserId());
-        } catch (Exception e) {
-            System.err.println("Error creating direct chat for new friends: " + e.getMessage());
-            e.printStackTrace();
+    public int getMaxPathDepth() {
+        return maxPathDepth;
+    }
+
+    // mutual friends and a shortest chain of friendships between two users, searched in the friend
+    // graph up to depth friendships (capped at the configured max) and loaded in a single query
+    @Transactional(readOnly = true)
+    public FriendConnectionDTO getConnection(User user, User other, int depth) {
+        int limit = Math.min(depth, maxPathDepth);
+        long[] mutual = friendGraph.mutualFriends(user.getUserId(), other.getUserId());
+        long[] path = friendGraph.shortestPath(user.getUserId(), other.getUserId(), limit);
+
+        List<Long> ids = new ArrayList<>(mutual.length + path.length);
+        for (long id : mutual) {
+            ids.add(id);
+        }
+        for (long id : path) {
+            ids.add(id);
+        }
+        Map<Long, UserSummaryDTO> byId = new HashMap<>();
+        for (User found : userRepo.findAllById(ids)) {
+            byId.put(found.getUserId(), new UserSummaryDTO(found));
+        }
+
+        List<UserSummaryDTO> mutualFriends = new ArrayList<>(mutual.length);
+        for (long id : mutual) {
+            if (byId.containsKey(id)) {
+                mutualFriends.add(byId.get(id));
+            }
+        }
+        List<UserSummaryDTO> chain = new ArrayList<>(path.length);
+        for (long id : path) {
+            if (!byId.containsKey(id)) {
+                // a user on the path is gone, the path is no longer valid
+                chain.clear();
+                break;
+            }
+            chain.add(byId.get(id));
         }
+        return new FriendConnectionDTO(other.getUserId(), mutualFriends, chain, limit);
     }
 
 }
@@ -1,21 +1,30 @@
 package com.friendfinder.services;
 
+import com.friendfinder.chat.MessageWriteBehind;
+import com.friendfinder.dto.ChatSyncDTO;
+import com.friendfinder.dto.MessageCursor;
 import com.friendfinder.dto.MessageDTO;
+import com.friendfinder.dto.MessagePageDTO;
 import com.friendfinder.dto.MessageReadReceiptDTO;
+import com.friendfinder.dto.ReadCursorDTO;
 import com.friendfinder.exceptions.*;
 import com.friendfinder.model.Chat;
+import com.friendfinder.model.ChatReadCursor;
 import com.friendfinder.model.Message;
-import com.friendfinder.model.MessageReadReceipt;
 import com.friendfinder.model.User;
 import com.friendfinder.repository.ChatRepository;
-import com.friendfinder.repository.MessageReadReceiptRepository;
 import com.friendfinder.repository.MessageRepository;
+import com.friendfinder.repository.MessageTombstoneRepository;
 import com.friendfinder.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -23,22 +32,36 @@ import java.util.stream.Collectors;
 @Transactional
 public class MessageService {
 
+    public static final int MAX_PAGE_SIZE = 200;
+    public static final int MAX_SYNC_MESSAGES = 500;
+
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
     private final ChatRepository chatRepository;
     private final MessageProcessor messageProcessor;
     private final ChatService chatService;
-    private final MessageReadReceiptRepository readReceiptRepository;
+    private final ChatActivityService chatActivityService;
+    private final ChatReadCursorService readCursorService;
+    private final ChatSequenceService sequenceService;
+    private final MessageTombstoneRepository tombstoneRepository;
+    private final MessageWriteBehind writeBehind;
 
     @Autowired
     public MessageService(MessageRepository messageRepository, UserRepository userRepository,
-                          ChatRepository chatRepository, MessageProcessor messageProcessor, ChatService chatService, MessageReadReceiptRepository readReceiptRepository) {
+                          ChatRepository chatRepository, MessageProcessor messageProcessor, ChatService chatService,
+                          ChatActivityService chatActivityService, ChatReadCursorService readCursorService,
+                          ChatSequenceService sequenceService, MessageTombstoneRepository tombstoneRepository,
+                          MessageWriteBehind writeBehind) {
         this.messageRepository = messageRepository;
         this.userRepository = userRepository;
         this.chatRepository = chatRepository;
         this.messageProcessor = messageProcessor;
         this.chatService = chatService;
-        this.readReceiptRepository = readReceiptRepository;
+        this.chatActivityService = chatActivityService;
+        this.readCursorService = readCursorService;
+        this.sequenceService = sequenceService;
+        this.tombstoneRepository = tombstoneRepository;
+        this.writeBehind = writeBehind;
     }
 
     // verify access #Helper
@@ -68,13 +91,12 @@ public class MessageService {
 
 
     public MessageDTO saveMessage(MessageDTO messageDTO, Long authenticatedUserId) {
-        Chat chat = chatRepository.findById(messageDTO.getChatId())
-                .orElseThrow(() -> new ChatNotFoundException("Chat with id " + messageDTO.getChatId() + "not found"));
+        // check if sender is part of chat, throws if the chat does not exist
+        verifyUserAccessToMessage(messageDTO.getChatId(), authenticatedUserId);
         User sender = userRepository.findById(authenticatedUserId)
                 .orElseThrow(() -> new UserNotFoundException("User with id " + authenticatedUserId + "not found"));
-
-        // check if sender is part of chat
-        verifyUserAccessToMessage(messageDTO.getChatId(), authenticatedUserId);
+        // membership is known, a reference is enough for the message's foreign key
+        Chat chat = chatRepository.getReferenceById(messageDTO.getChatId());
 
         Message message = new Message(chat, sender, messageDTO.getContent(), messageDTO.getType() != null ? messageDTO.getType().toString() : "CHAT");
         message.setTimestamp(LocalDateTime.now());
@@ -82,29 +104,101 @@ public class MessageService {
         // Process message based on its type #Strategy pattern
         messageProcessor.processMessage(message);
 
+        if (writeBehind.isEnabled()) {
+            // handed back for broadcasting now, written in the background
+            return writeBehind.submit(message);
+        }
+        message.setSequence(sequenceService.nextSequence(chat.getChatId()));
         Message savedMessage = messageRepository.save(message);
+        chatActivityService.messageSaved(savedMessage);
         return new MessageDTO(savedMessage);
 
     }
 
-    // get full chat
-    public List<MessageDTO> getChatMessages(Long chatId, Long requestingUserId) {
-        Chat chat = chatRepository.findById(chatId)
-                .orElseThrow(() -> new ChatNotFoundException("Chat with id " + chatId + "not found"));
+    // true when sent messages are written in the background and come back without an id
+    public boolean isWriteBehind() {
+        return writeBehind.isEnabled();
+    }
 
+    // one page of a chat's history oldest first, the newest page when neither cursor is given
+    @Transactional(readOnly = true)
+    public MessagePageDTO getChatMessages(Long chatId, Long requestingUserId, String before, String after, int limit) {
         verifyUserAccessToMessage(chatId, requestingUserId);
+        if (before != null && after != null) {
+            throw new IllegalArgumentException("Only one of before and after can be given");
+        }
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // one extra row tells whether there is more past the page
+        Pageable page = PageRequest.of(0, size + 1);
+        MessageCursor beforeCursor = MessageCursor.fromToken(before);
+        MessageCursor afterCursor = MessageCursor.fromToken(after);
+        // read before the page, so a sync from them can only repeat changes, never miss one
+        long sequence = sequenceService.currentSequence(chatId);
+        long readSequence = sequenceService.currentReadSequence(chatId);
+
+        List<MessageDTO> messages;
+        boolean hasMoreBefore;
+        boolean hasMoreAfter;
+        if (afterCursor != null) {
+            messages = new ArrayList<>(messageRepository.findPageAfter(chatId, afterCursor.timestamp(), afterCursor.messageId(), page));
+            hasMoreBefore = true;
+            hasMoreAfter = messages.size() > size;
+            if (hasMoreAfter) {
+                messages.remove(size);
+            }
+        } else {
+            messages = new ArrayList<>(beforeCursor != null
+                    ? messageRepository.findPageBefore(chatId, beforeCursor.timestamp(), beforeCursor.messageId(), page)
+                    : messageRepository.findLatestPage(chatId, page));
+            hasMoreBefore = messages.size() > size;
+            hasMoreAfter = beforeCursor != null;
+            if (hasMoreBefore) {
+                messages.remove(size);
+            }
+            Collections.reverse(messages);
+        }
+        return new MessagePageDTO(readCursorService.withReadState(chatId, messages), hasMoreBefore, hasMoreAfter,
+                sequence, readSequence);
+    }
 
-        List<Message> messages = messageRepository.findByChatOrderByTimestampDesc(chat);
+    // changes in the chat after the client's sequence number, at most MAX_SYNC_MESSAGES messages at a
+    // time, and the read cursors that moved after the client's read sequence number
+    @Transactional(readOnly = true)
+    public ChatSyncDTO syncChat(Long chatId, Long userId, long since, long readSince) {
+        if (since < 0 || readSince < 0) {
+            throw new IllegalArgumentException("since and readSince must not be negative");
+        }
+        verifyUserAccessToMessage(chatId, userId);
+        // at most one cursor per participant, so they all come at once
+        long readSequence = sequenceService.currentReadSequence(chatId);
+        List<ReadCursorDTO> cursors = readSince >= readSequence ? new ArrayList<>()
+                : readCursorService.movedSince(chatId, readSince, readSequence).stream()
+                        .map(ReadCursorDTO::new)
+                        .collect(Collectors.toList());
+        long current = sequenceService.currentSequence(chatId);
+        if (since >= current) {
+            return new ChatSyncDTO(chatId, current, false, new ArrayList<>(), new ArrayList<>(), cursors, readSequence);
+        }
 
-        return messages.stream()
-                .map(MessageDTO::new)
-                .collect(Collectors.toList());
+        List<MessageDTO> messages = new ArrayList<>(
+                messageRepository.findChangedSince(chatId, since, current, PageRequest.of(0, MAX_SYNC_MESSAGES + 1)));
+        boolean hasMore = messages.size() > MAX_SYNC_MESSAGES;
+        long upTo = current;
+        if (hasMore) {
+            messages.remove(MAX_SYNC_MESSAGES);
+            // stop at the last message returned, deletions are cut at the same point
+            upTo = messages.get(MAX_SYNC_MESSAGES - 1).getSequence();
+        }
+        return new ChatSyncDTO(chatId, upTo, hasMore, readCursorService.withReadState(chatId, messages),
+                tombstoneRepository.findDeletedMessageIds(chatId, since, upTo), cursors, readSequence);
     }
 
     // get specific message by id
     public MessageDTO getMessageById(Long messageId, Long requestingUserId) {
         Message message = getMessageWithAuth(messageId, requestingUserId);
-        return new MessageDTO(message);
+        MessageDTO messageDTO = new MessageDTO(message);
+        readCursorService.withReadState(message.getChat().getChatId(), List.of(messageDTO));
+        return messageDTO;
     }
 
     // edit message
@@ -118,8 +212,10 @@ public class MessageService {
 
         message.setContent(newContent);
         message.markAsEdited();
+        message.setSequence(sequenceService.nextSequence(message.getChat().getChatId()));
 
         Message updatedMessage = messageRepository.save(message);
+        chatActivityService.messageEdited(updatedMessage);
         return new MessageDTO(updatedMessage);
     }
 
@@ -132,52 +228,55 @@ public class MessageService {
         Message message = messageRepository.findById(messageId)
                 .orElseThrow(() -> new MessageNotFoundException("Message with id " + messageId + "not found"));
 
+        chatActivityService.messageDeleted(message);
+        sequenceService.messageDeleted(message);
         messageRepository.delete(message);
     }
 
-    // mark as read by a specific user
+    // mark as read by a specific user, everything up to the message counts as read
     public void markMessageAsRead(Long messageId, Long userId) {
         Message message = getMessageWithAuth(messageId, userId);
-        User user = userRepository.findById(userId)
+        userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException("User with id " + userId + "not found"));
 
         // sender cant mark as read
-        if (isUserMessageCreator(messageId, userId)) {
+        if (message.getSender().getUserId().equals(userId)) {
             return;
         }
 
-        // avoid duplicate entries
-        if (readReceiptRepository.existsByMessageAndUser(message, user)) {
-            return; // already marked as read
-        }
-
-        MessageReadReceipt receipt = new MessageReadReceipt(message, user, LocalDateTime.now());
-        readReceiptRepository.save(receipt);
+        readCursorService.markRead(message.getChat().getChatId(), userId, messageId);
+    }
 
+    // mark every message in the chat up to and including messageId as read. One membership query, one
+    // lookup that pins the cursor to a message that exists in the chat, then a single cursor upsert.
+    public ChatReadCursor markChatReadUpTo(Long chatId, Long userId, Long messageId) {
+        verifyUserAccessToMessage(chatId, userId);
+        Long lastMessageId = messageRepository.findLastMessageIdUpTo(chatId, messageId);
+        if (lastMessageId == null) {
+            throw new MessageNotFoundException("No message up to id " + messageId + " in chat " + chatId);
+        }
+        return readCursorService.markRead(chatId, userId, lastMessageId);
     }
 
-    // get read receipts for a message
+    // get read receipts for a message, derived from the readers' cursors
     public List<MessageReadReceiptDTO> getMessageReadRecepits(Long messageId, Long requestingUserId) {
         Message message = getMessageWithAuth(messageId, requestingUserId);
 
-        List<MessageReadReceipt> receipts = readReceiptRepository.findByMessage(message);
-        return receipts.stream()
-                .map(MessageReadReceiptDTO::new)
-                .collect(Collectors.toList());
+        return readCursorService.receiptsFor(message);
     }
 
 
 
     // get unread messages
     public List<MessageDTO> getUnreadMessages(Long chatId, Long userId) {
-        Chat chat = chatRepository.findById(chatId)
+        chatRepository.findById(chatId)
                 .orElseThrow(() -> new ChatNotFoundException("Chat with id " + chatId + "not found"));
-        User user = userRepository.findById(userId)
+        userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException("User with id " + userId + "not found"));
 
         verifyUserAccessToMessage(chatId, userId);
 
-        List<Message> unreadMessages = messageRepository.findUnreadMessagesByUserInChat(chat, user);
+        List<Message> unreadMessages = readCursorService.unreadMessages(chatId, userId);
 
         return unreadMessages.stream()
                 .map(MessageDTO::new)
@@ -186,14 +285,14 @@ public class MessageService {
 
     // count unread messages
     public int getUnreadMessageCount(Long chatId, Long userId) {
-        Chat chat = chatRepository.findById(chatId)
+        chatRepository.findById(chatId)
                 .orElseThrow(() -> new ChatNotFoundException("Chat with id " + chatId + "not found"));
-        User user = userRepository.findById(userId)
+        userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException("User with id " + userId + "not found"));
 
         verifyUserAccessToMessage(chatId, userId);
 
-        return messageRepository.countUnreadMessagesByUserInChat(chat, user);
+        return readCursorService.unreadCount(chatId, userId);
 
     }
 
@@ -1,27 +1,80 @@
 package com.friendfinder.services;
 
+import com.friendfinder.events.DomainEventBus;
+import com.friendfinder.events.InterestsChanged;
 import com.friendfinder.exceptions.InvalidEmailException;
 import com.friendfinder.exceptions.InvalidNameException;
-import com.friendfinder.model.FriendRequest;
+import com.friendfinder.graph.FriendGraph;
+import com.friendfinder.graph.FriendshipSet;
+import com.friendfinder.model.Dislike;
 import com.friendfinder.model.Interest;
 import com.friendfinder.model.User;
+import com.friendfinder.repository.ChatReadCursorRepository;
+import com.friendfinder.repository.DislikeRepository;
 import com.friendfinder.repository.FriendRequestRepository;
 import com.friendfinder.repository.UserRepository;
+import com.friendfinder.suggestion.DislikeCache;
+import com.friendfinder.suggestion.DislikeFilter;
+import com.friendfinder.suggestion.InterestIndex;
+import com.friendfinder.suggestion.MinHashIndex;
+import com.friendfinder.suggestion.ScoredCandidates;
+import com.friendfinder.suggestion.SuggestionCursor;
+import com.friendfinder.suggestion.SuggestionPage;
+import com.friendfinder.suggestion.SuggestionQueue;
+import com.friendfinder.suggestion.SuggestionQueueCache;
+import com.friendfinder.suggestion.SuggestionRanker;
+import com.friendfinder.suggestion.TopK;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class UserService {
 
+    private static final int BATCH_SIZE = 50;
+
     @Autowired
     private UserRepository userRepository;
     @Autowired
     private FriendRequestRepository friendRequestRepository;
+    @Autowired
+    private DislikeRepository dislikeRepository;
+    @Autowired
+    private DislikeCache dislikeCache;
+    @Autowired
+    private ChatReadCursorRepository chatReadCursorRepository;
+    @Autowired
+    private InterestIndex interestIndex;
+    @Autowired
+    private SuggestionQueueCache suggestionQueues;
+    @Autowired
+    private FriendGraph friendGraph;
+    @Autowired
+    private FriendshipSet friendships;
+    @Autowired
+    private SuggestionRanker suggestionRanker;
+    @Autowired
+    private MinHashIndex minHashIndex;
+    @Autowired
+    private DomainEventBus eventBus;
+
+    @Value("${friendfinder.suggestions.queue.size:20}")
+    private int queueSize = 20;
+
+    // score added per mutual friend, on the same scale as one shared interest
+    @Value("${friendfinder.suggestions.mutual-friend-weight:1.0}")
+    private float mutualFriendWeight = 1.0f;
 
     public Iterable<User> findAllUsers() {
         return userRepository.findAll();
@@ -41,7 +94,14 @@ public class UserService {
     @Transactional
     public void deleteUser(@Param("email") String email) {
         User user = userRepository.findByEmail(email.toLowerCase());
+        dislikeRepository.deleteAllInvolving(user);
+        chatReadCursorRepository.deleteByUserId(user.getUserId());
+        friendships.remove(user.getUserId(), userRepository.findFriendIds(user.getUserId()));
         userRepository.delete(user);
+        interestIndex.remove(user.getUserId());
+        dislikeCache.remove(user.getUserId());
+        friendGraph.remove(user.getUserId());
+        suggestionQueues.removeCandidateEverywhere(user.getUserId());
         return;
     }
 
@@ -50,44 +110,156 @@ public class UserService {
         User user = userRepository.findByEmail(email.toLowerCase());
         user.setInterests(interests);
         userRepository.save(user);
+        long[] before = interestIndex.bitsetOf(user.getUserId());
+        interestIndex.update(user.getUserId(), interests);
+        // the user's own queue now, everyone sharing an interest once the change is committed
+        suggestionQueues.invalidate(user.getUserId());
+        eventBus.publish(new InterestsChanged(user.getUserId(), before));
         return;
     }
 
+    // head of the user's precomputed suggestion queue, the queue is built or refilled when it runs dry
     @Transactional
-    public List<User> findPotentialFriends(String email, List<String> disliked) {
+    public User nextSuggestion(String email) {
         User user = userRepository.findByEmail(email.toLowerCase());
+        while (true) {
+            long version = suggestionQueues.version();
+            SuggestionQueue queue = suggestionQueues.get(user.getUserId());
+            if (queue == null || (queue.isEmpty() && !queue.isExhausted())) {
+                SuggestionCursor from = queue != null ? queue.getTail() : null;
+                SuggestionPage page = suggestFriends(user, from, queueSize);
+                queue = SuggestionQueue.of(page, queueSize);
+                suggestionQueues.putIfUnchanged(user.getUserId(), queue, version);
+                if (!page.isEmpty()) {
+                    return page.users().get(0);
+                }
+            }
+
+            Long next = queue.peek();
+            if (next == null) {
+                return null;
+            }
+            User candidate = userRepository.findById(next).orElse(null);
+            if (candidate != null) {
+                return candidate;
+            }
+            queue.remove(next);
+        }
+    }
 
-        List<User> allUsers = (List<User>) userRepository.findAll();
-        allUsers.remove(user);
+    // the user passed on someone, they are stored and never suggested to the user again
+    @Transactional
+    public void dislikeUser(Long userId, String email) {
+        User user = userRepository.findById(userId).orElse(null);
+        User passed = userRepository.findByEmail(email.toLowerCase());
+        if (user == null || passed == null || user.getUserId().equals(passed.getUserId())) {
+            return;
+        }
+        if (!dislikeRepository.existsByUserAndDisliked(user, passed)) {
+            dislikeRepository.save(new Dislike(user, passed));
+        }
+        dislikeCache.add(user.getUserId(), passed.getUserId());
+        consumeSuggestion(user.getUserId(), passed.getUserId());
+    }
+
+    // the user swiped on a suggestion, it is taken out of their queue
+    public void consumeSuggestion(Long userId, Long suggestedUserId) {
+        if (userId != null && suggestedUserId != null) {
+            suggestionQueues.removeCandidate(userId, suggestedUserId);
+        }
+    }
+
+    @Transactional
+    public List<User> findPotentialFriends(String email) {
+        return suggestFriends(email, null, Integer.MAX_VALUE).users();
+    }
 
-        List<User> friends = user.getFriends();
-        allUsers.removeAll(friends);
+    // next page of at most limit suggestions after the cursor, ranked by interest similarity plus
+    // weighted mutual friends and then by id
+    @Transactional
+    public SuggestionPage suggestFriends(String email, SuggestionCursor cursor, int limit) {
+        return suggestFriends(userRepository.findByEmail(email.toLowerCase()), cursor, limit);
+    }
 
-        List<FriendRequest> addedFriends = friendRequestRepository.findBySender(user);
-        List<User> addedUsers = new ArrayList<>();
-        for(FriendRequest friendRequest : addedFriends) {
-            addedUsers.add(friendRequest.getReceiver());
+    private SuggestionPage suggestFriends(User user, SuggestionCursor cursor, int limit) {
+        if (cursor == null) {
+            cursor = SuggestionCursor.start();
         }
+        Set<Long> excluded = excludedFromSuggestions(user);
+        DislikeFilter dislikes = dislikeCache.get(user.getUserId());
 
-        allUsers.removeAll(addedUsers);
+        // bounded heap over the users from the requesting user's postings lists, or their LSH buckets in
+        // approximate mode, and friends of friends. Ids that no longer load (users deleted or never
+        // committed) are skipped and the heap is refilled after them.
+        InterestIndex.Overlap overlap = minHashIndex.isEnabled()
+                ? minHashIndex.overlapping(user.getUserId())
+                : interestIndex.overlapping(user.getUserId());
+        ScoredCandidates candidates = ScoredCandidates.merge(overlap, suggestionRanker.score(user.getUserId(), overlap),
+                friendGraph.friendsOfFriends(user.getUserId()), mutualFriendWeight);
+        List<SuggestionPage.Suggestion> suggestions = new ArrayList<>();
+        SuggestionCursor next = cursor;
+        boolean more = true;
+        while (more && suggestions.size() < limit) {
+            TopK top = suggestionRanker.top(candidates, limit - suggestions.size(), next,
+                    id -> excluded.contains(id) || dislikes.contains(id));
+            more = top.isFull() && top.size() > 0;
+            float[] scores = new float[top.size()];
+            long[] ids = new long[top.size()];
+            int count = top.drainTo(scores, ids);
 
-        if (disliked != null) {
-            allUsers.removeIf(u -> disliked.contains(u.getEmail()));
+            List<Long> rankedIds = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                rankedIds.add(ids[i]);
+            }
+            Map<Long, User> rankedUsers = findUsersById(rankedIds);
+            for (int i = 0; i < count; i++) {
+                User candidate = rankedUsers.get(ids[i]);
+                if (candidate != null) {
+                    suggestions.add(new SuggestionPage.Suggestion(candidate, scores[i]));
+                }
+                next = new SuggestionCursor(scores[i], ids[i]);
+            }
         }
 
+        // users without shared interests or mutual friends score 0 and are paged in by id once the ranked candidates run out
+        long after = cursor.getScore() > 0 ? Long.MIN_VALUE : cursor.getUserId();
+        while (suggestions.size() < limit) {
+            List<User> batch = userRepository.findByUserIdGreaterThan(after, PageRequest.of(0, BATCH_SIZE, Sort.by("userId")));
+            for (User candidate : batch) {
+                after = candidate.getUserId();
+                if (excluded.contains(after) || dislikes.contains(after) || candidates.contains(after)) {
+                    continue;
+                }
+                suggestions.add(new SuggestionPage.Suggestion(candidate, 0f));
+                next = new SuggestionCursor(0f, after);
+                if (suggestions.size() >= limit) {
+                    break;
+                }
+            }
+            if (batch.size() < BATCH_SIZE) {
+                break;
+            }
+        }
+        return new SuggestionPage(suggestions, next);
+    }
 
-        List<Interest> userInterests = user.getInterests();
+    // the user, their friends and users they already sent a request to. Users they passed on are
+    // checked against their dislike filter.
+    private Set<Long> excludedFromSuggestions(User user) {
+        Set<Long> excluded = new HashSet<>();
+        excluded.add(user.getUserId());
+        excluded.addAll(userRepository.findFriendIds(user.getUserId()));
+        excluded.addAll(friendRequestRepository.findReceiverIdsBySender(user));
+        return excluded;
+    }
 
-        return allUsers.stream()
-                .sorted((u1, u2) -> {
-                    long matches1 = u1.getInterests().stream()
-                            .filter(userInterests::contains)
-                            .count();
-                    long matches2 = u2.getInterests().stream()
-                            .filter(userInterests::contains)
-                            .count();
-                    return Long.compare(matches2, matches1); // descending order
-                })
-                .toList();
+    private Map<Long, User> findUsersById(List<Long> ids) {
+        Map<Long, User> byId = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (User user : userRepository.findAllById(ids)) {
+                byId.put(user.getUserId(), user);
+            }
+        }
+        return byId;
     }
 }
@@ -0,0 +1,28 @@
+package com.friendfinder.strategy;
+
+import org.springframework.stereotype.Component;
+
+// cosine of the idf weighted interest vectors. A vector has component idf for every interest held,
+// so the weight of an interest is idf squared and the norms are the square roots of the user weights.
+@Component
+public class CosineSimilarityStrategy implements SimilarityStrategy {
+
+    @Override
+    public float interestWeight(int usersWithInterest, int totalUsers) {
+        float idf = IdfSimilarityStrategy.idf(usersWithInterest, totalUsers);
+        return idf * idf;
+    }
+
+    @Override
+    public float similarity(float sharedWeight, float userWeight, float candidateWeight) {
+        if (userWeight <= 0f || candidateWeight <= 0f) {
+            return 0f;
+        }
+        return (float) (sharedWeight / Math.sqrt((double) userWeight * candidateWeight));
+    }
+
+    @Override
+    public String getName() {
+        return "cosine";
+    }
+}
@@ -0,0 +1,32 @@
+package com.friendfinder.strategy;
+
+import org.springframework.stereotype.Component;
+
+// shared interests weighted by inverse document frequency, so a rare interest counts more than one
+// everybody has. Scaled so an interest held by a single user weighs 1.
+@Component
+public class IdfSimilarityStrategy implements SimilarityStrategy {
+
+    @Override
+    public float interestWeight(int usersWithInterest, int totalUsers) {
+        return idf(usersWithInterest, totalUsers);
+    }
+
+    @Override
+    public float similarity(float sharedWeight, float userWeight, float candidateWeight) {
+        return sharedWeight;
+    }
+
+    @Override
+    public String getName() {
+        return "idf";
+    }
+
+    static float idf(int usersWithInterest, int totalUsers) {
+        if (totalUsers <= 1) {
+            return 1f;
+        }
+        int holders = Math.max(1, Math.min(usersWithInterest, totalUsers));
+        return (float) (Math.log1p((double) totalUsers / holders) / Math.log1p(totalUsers));
+    }
+}
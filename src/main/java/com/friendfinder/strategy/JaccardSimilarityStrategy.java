@@ -0,0 +1,24 @@
+package com.friendfinder.strategy;
+
+import org.springframework.stereotype.Component;
+
+// shared interests over the interests of both users together
+@Component
+public class JaccardSimilarityStrategy implements SimilarityStrategy {
+
+    @Override
+    public float interestWeight(int usersWithInterest, int totalUsers) {
+        return 1f;
+    }
+
+    @Override
+    public float similarity(float sharedWeight, float userWeight, float candidateWeight) {
+        float union = userWeight + candidateWeight - sharedWeight;
+        return union > 0f ? sharedWeight / union : 0f;
+    }
+
+    @Override
+    public String getName() {
+        return "jaccard";
+    }
+}
@@ -0,0 +1,23 @@
+package com.friendfinder.strategy;
+
+import org.springframework.stereotype.Component;
+
+// number of shared interests
+@Component
+public class OverlapSimilarityStrategy implements SimilarityStrategy {
+
+    @Override
+    public float interestWeight(int usersWithInterest, int totalUsers) {
+        return 1f;
+    }
+
+    @Override
+    public float similarity(float sharedWeight, float userWeight, float candidateWeight) {
+        return sharedWeight;
+    }
+
+    @Override
+    public String getName() {
+        return "overlap";
+    }
+}
@@ -0,0 +1,9 @@
+package com.friendfinder.strategy;
+
+// How much two users' interests have in common. Every interest gets a weight from how many users
+// hold it, the score is built from the summed weights of the shared interests and of each user's interests.
+public interface SimilarityStrategy {
+    float interestWeight(int usersWithInterest, int totalUsers);
+    float similarity(float sharedWeight, float userWeight, float candidateWeight);
+    String getName();
+}
@@ -0,0 +1,63 @@
+package com.friendfinder.suggestion;
+
+import com.friendfinder.repository.DislikeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Dislike filters of recently active users, loaded from the dislikes table on first use and
+// evicted least recently used first
+@Component
+public class DislikeCache {
+
+    private final DislikeRepository dislikeRepository;
+    private final Map<Long, DislikeFilter> filters;
+
+    public DislikeCache(DislikeRepository dislikeRepository,
+                        @Value("${friendfinder.suggestions.dislikes.max-users:1000}") int maxUsers) {
+        this.dislikeRepository = dislikeRepository;
+        this.filters = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, DislikeFilter> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    public DislikeFilter get(Long userId) {
+        if (userId == null) {
+            return DislikeFilter.empty();
+        }
+        synchronized (this) {
+            DislikeFilter filter = filters.get(userId);
+            if (filter != null) {
+                return filter;
+            }
+        }
+        List<Long> ids = dislikeRepository.findDislikedIdsByUserId(userId);
+        DislikeFilter loaded = DislikeFilter.of(ids.stream().mapToLong(Long::longValue).toArray());
+        synchronized (this) {
+            // a dislike added while loading already went into the cached filter
+            return filters.merge(userId, loaded, (cached, fresh) -> cached);
+        }
+    }
+
+    // record a new dislike in the cached filter, users without one load it from the table later
+    public synchronized void add(Long userId, Long dislikedId) {
+        DislikeFilter filter = filters.get(userId);
+        if (filter != null) {
+            filters.put(userId, filter.with(dislikedId));
+        }
+    }
+
+    public synchronized void remove(Long userId) {
+        filters.remove(userId);
+    }
+
+    public synchronized int size() {
+        return filters.size();
+    }
+}
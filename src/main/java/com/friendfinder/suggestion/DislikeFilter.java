@@ -0,0 +1,77 @@
+package com.friendfinder.suggestion;
+
+import java.util.Arrays;
+
+// The users one user passed on, as a sorted id array behind a Bloom filter. Most candidates in a scan
+// were never disliked, the filter answers those with a couple of bit tests and only a possible hit
+// goes on to the binary search. Never modified, adding an id returns a new filter.
+public final class DislikeFilter {
+
+    private static final int BITS_PER_ID = 10;
+    private static final int HASHES = 7;
+    private static final DislikeFilter EMPTY = new DislikeFilter(new long[0]);
+
+    private final long[] ids;
+    private final long[] bits;
+
+    private DislikeFilter(long[] sortedIds) {
+        this.ids = sortedIds;
+        this.bits = new long[Math.max(1, (sortedIds.length * BITS_PER_ID + 63) / 64)];
+        for (long id : sortedIds) {
+            long hash = Hashing.mix(id);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < HASHES; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bits.length * 64);
+                bits[bit >>> 6] |= 1L << bit;
+            }
+        }
+    }
+
+    public static DislikeFilter empty() {
+        return EMPTY;
+    }
+
+    public static DislikeFilter of(long[] ids) {
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[n++] = sorted[i];
+            }
+        }
+        return n == 0 ? EMPTY : new DislikeFilter(Arrays.copyOf(sorted, n));
+    }
+
+    public boolean contains(long id) {
+        if (ids.length == 0 || !mightContain(id)) {
+            return false;
+        }
+        return Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    public DislikeFilter with(long id) {
+        if (contains(id)) {
+            return this;
+        }
+        return new DislikeFilter(InterestIndex.with(ids, id));
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    boolean mightContain(long id) {
+        long hash = Hashing.mix(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < HASHES; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bits.length * 64);
+            if ((bits[bit >>> 6] & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,18 @@
+package com.friendfinder.suggestion;
+
+// spreads ids and interest ids over all 64 bits for the min-hash signatures and the dislike filter
+final class Hashing {
+
+    private Hashing() {
+    }
+
+    // 64 bit finaliser from MurmurHash3
+    static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb93e53e6ee4fL;
+        x ^= x >>> 33;
+        return x;
+    }
+}
@@ -0,0 +1,319 @@
+package com.friendfinder.suggestion;
+
+import com.friendfinder.model.Interest;
+import com.friendfinder.repository.UserRepository;
+import com.friendfinder.utils.TransactionUndo;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+// In-memory interest bitsets, one long[] per user with bit n set when the user has interest id n,
+// plus the inverted postings: for every interest the sorted ids of the users holding it, and the
+// number of users per interest id for weighting.
+@Component
+public class InterestIndex {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final UserRepository userRepository;
+    private final Map<Long, long[]> bitsets = new ConcurrentHashMap<>();
+    private final Map<Long, long[]> postings = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile int[] userCounts = new int[0];
+    private volatile long version;
+    private volatile boolean loaded;
+
+    public InterestIndex(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    // told about every change after the index was loaded, with the user's bitset before and after
+    public interface Listener {
+        void interestsChanged(long userId, long[] before, long[] after);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    // every user with at least one interest and their bitset
+    public void forEachUser(BiConsumer<Long, long[]> action) {
+        ensureLoaded();
+        bitsets.forEach(action);
+    }
+
+    // bitset of a user, empty if the user has no interests
+    public long[] bitsetOf(Long userId) {
+        ensureLoaded();
+        if (userId == null) {
+            return EMPTY;
+        }
+        return bitsets.getOrDefault(userId, EMPTY);
+    }
+
+    // number of interests two users have in common
+    public int sharedInterests(Long userId, Long otherUserId) {
+        return sharedInterests(bitsetOf(userId), bitsetOf(otherUserId));
+    }
+
+    public static int sharedInterests(long[] a, long[] b) {
+        int words = Math.min(a.length, b.length);
+        int shared = 0;
+        for (int i = 0; i < words; i++) {
+            shared += Long.bitCount(a[i] & b[i]);
+        }
+        return shared;
+    }
+
+    // sorted ids of the users holding an interest
+    public long[] postingsOf(Long interestId) {
+        ensureLoaded();
+        return postings.getOrDefault(interestId, EMPTY);
+    }
+
+    // number of users holding each interest, indexed by interest id. Never modified, updates swap in a copy.
+    public int[] userCounts() {
+        ensureLoaded();
+        return userCounts;
+    }
+
+    // number of users with at least one interest
+    public int userTotal() {
+        ensureLoaded();
+        return bitsets.size();
+    }
+
+    // bumped on every change, lets derived tables such as interest weights know when to rebuild
+    public long version() {
+        ensureLoaded();
+        return version;
+    }
+
+    // users sharing at least one interest with the given user in ascending id order, with the
+    // number of shared interests for each. Only the user's own postings lists are touched.
+    public Overlap overlapping(Long userId) {
+        long[] bits = bitsetOf(userId);
+        int k = 0;
+        long[][] lists = new long[cardinality(bits)][];
+        for (int word = 0; word < bits.length; word++) {
+            for (long w = bits[word]; w != 0; w &= w - 1) {
+                lists[k++] = postingsOf((long) word << 6 | Long.numberOfTrailingZeros(w));
+            }
+        }
+
+        // k-way merge of the sorted lists, counting how many lists each user appears in
+        int total = 0;
+        for (long[] list : lists) {
+            total += list.length;
+        }
+        long[] ids = new long[total];
+        int[] shared = new int[total];
+        int[] pos = new int[k];
+        int n = 0;
+        while (true) {
+            long min = Long.MAX_VALUE;
+            for (int j = 0; j < k; j++) {
+                if (pos[j] < lists[j].length && lists[j][pos[j]] < min) {
+                    min = lists[j][pos[j]];
+                }
+            }
+            if (min == Long.MAX_VALUE) {
+                break;
+            }
+            int count = 0;
+            for (int j = 0; j < k; j++) {
+                if (pos[j] < lists[j].length && lists[j][pos[j]] == min) {
+                    pos[j]++;
+                    count++;
+                }
+            }
+            if (min != userId) {
+                ids[n] = min;
+                shared[n] = count;
+                n++;
+            }
+        }
+        return new Overlap(ids, shared, n);
+    }
+
+    // result of merging postings lists, only the first size entries are used
+    public record Overlap(long[] userIds, int[] shared, int size) {
+
+        // true if the user shares at least one interest
+        public boolean contains(long userId) {
+            return Arrays.binarySearch(userIds, 0, size, userId) >= 0;
+        }
+    }
+
+    // replace the interests of a user, called whenever a user's interests change
+    public synchronized void update(Long userId, Collection<Interest> interests) {
+        if (userId == null) {
+            return;
+        }
+        ensureLoaded();
+        long[] bits = EMPTY;
+        if (interests != null) {
+            for (Interest interest : interests) {
+                if (interest != null && interest.getId() != null) {
+                    bits = set(bits, interest.getId());
+                }
+            }
+        }
+        replace(userId, bits);
+    }
+
+    public synchronized void remove(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        ensureLoaded();
+        replace(userId, EMPTY);
+    }
+
+    private void replace(long userId, long[] bits) {
+        long[] previous = bitsets.getOrDefault(userId, EMPTY);
+        if (Arrays.equals(previous, bits)) {
+            return;
+        }
+        apply(userId, previous, bits);
+        // put the old bitset back unless a later change replaced this one already
+        TransactionUndo.onRollback(() -> {
+            synchronized (this) {
+                if (Arrays.equals(bitsets.getOrDefault(userId, EMPTY), bits)) {
+                    apply(userId, bits, previous);
+                }
+            }
+        });
+    }
+
+    private void apply(long userId, long[] previous, long[] bits) {
+        if (bits.length == 0) {
+            bitsets.remove(userId);
+        } else {
+            bitsets.put(userId, bits);
+        }
+        updatePostings(userId, previous, bits);
+        for (Listener listener : listeners) {
+            listener.interestsChanged(userId, previous, bits);
+        }
+    }
+
+    public static int cardinality(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // move the user between postings lists for every interest that was added or removed
+    private void updatePostings(long userId, long[] before, long[] after) {
+        int words = Math.max(before.length, after.length);
+        int[] counts = Arrays.copyOf(userCounts, Math.max(userCounts.length, after.length * 64));
+        for (int word = 0; word < words; word++) {
+            long old = word < before.length ? before[word] : 0L;
+            long now = word < after.length ? after[word] : 0L;
+            for (long w = old & ~now; w != 0; w &= w - 1) {
+                long interestId = (long) word << 6 | Long.numberOfTrailingZeros(w);
+                long[] list = without(postings.getOrDefault(interestId, EMPTY), userId);
+                counts[(int) interestId]--;
+                if (list.length == 0) {
+                    postings.remove(interestId);
+                } else {
+                    postings.put(interestId, list);
+                }
+            }
+            for (long w = now & ~old; w != 0; w &= w - 1) {
+                long interestId = (long) word << 6 | Long.numberOfTrailingZeros(w);
+                postings.put(interestId, with(postings.getOrDefault(interestId, EMPTY), userId));
+                counts[(int) interestId]++;
+            }
+        }
+        userCounts = counts;
+        version++;
+    }
+
+    // load every (user, interest) pair in a single query the first time the index is used
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            Map<Long, long[]> built = new HashMap<>();
+            Map<Long, long[]> lists = new HashMap<>();
+            Map<Long, Integer> sizes = new HashMap<>();
+            List<Object[]> pairs = userRepository.findAllUserInterestIds();
+            for (Object[] row : pairs) {
+                Long userId = (Long) row[0];
+                Long interestId = (Long) row[1];
+                built.put(userId, set(built.getOrDefault(userId, EMPTY), interestId));
+                sizes.merge(interestId, 1, Integer::sum);
+            }
+            for (Map.Entry<Long, Integer> entry : sizes.entrySet()) {
+                lists.put(entry.getKey(), new long[entry.getValue()]);
+                entry.setValue(0);
+            }
+            for (Object[] row : pairs) {
+                Long interestId = (Long) row[1];
+                int at = sizes.merge(interestId, 1, Integer::sum) - 1;
+                lists.get(interestId)[at] = (Long) row[0];
+            }
+            int[] counts = new int[0];
+            for (Map.Entry<Long, long[]> entry : lists.entrySet()) {
+                Arrays.sort(entry.getValue());
+                int interestId = entry.getKey().intValue();
+                if (interestId >= counts.length) {
+                    counts = Arrays.copyOf(counts, interestId + 1);
+                }
+                counts[interestId] = entry.getValue().length;
+            }
+            bitsets.putAll(built);
+            postings.putAll(lists);
+            userCounts = counts;
+            version++;
+            loaded = true;
+        }
+    }
+
+    static long[] with(long[] sorted, long id) {
+        int at = Arrays.binarySearch(sorted, id);
+        if (at >= 0) {
+            return sorted;
+        }
+        at = -at - 1;
+        long[] copy = new long[sorted.length + 1];
+        System.arraycopy(sorted, 0, copy, 0, at);
+        copy[at] = id;
+        System.arraycopy(sorted, at, copy, at + 1, sorted.length - at);
+        return copy;
+    }
+
+    static long[] without(long[] sorted, long id) {
+        int at = Arrays.binarySearch(sorted, id);
+        if (at < 0) {
+            return sorted;
+        }
+        long[] copy = new long[sorted.length - 1];
+        System.arraycopy(sorted, 0, copy, 0, at);
+        System.arraycopy(sorted, at + 1, copy, at, sorted.length - at - 1);
+        return copy;
+    }
+
+    // copy-on-write so readers never see a half updated bitset
+    private static long[] set(long[] bits, long interestId) {
+        int word = (int) (interestId >>> 6);
+        long[] copy = Arrays.copyOf(bits, Math.max(bits.length, word + 1));
+        copy[word] |= 1L << interestId;
+        return copy;
+    }
+}
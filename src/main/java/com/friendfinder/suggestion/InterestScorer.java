@@ -0,0 +1,95 @@
+package com.friendfinder.suggestion;
+
+import com.friendfinder.strategy.SimilarityStrategy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Scores the users from an interest overlap with the configured similarity strategy. The weight of
+// every interest is precomputed from the index's user counts and only rebuilt after the index changed.
+@Component
+public class InterestScorer {
+
+    private final InterestIndex interestIndex;
+    private final SimilarityStrategy strategy;
+    private volatile Weights weights;
+
+    public InterestScorer(InterestIndex interestIndex, List<SimilarityStrategy> strategies,
+                          @Value("${friendfinder.suggestions.similarity:idf}") String similarity) {
+        this.interestIndex = interestIndex;
+        this.strategy = strategies.stream()
+                .filter(s -> s.getName().equalsIgnoreCase(similarity))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Unknown similarity strategy: " + similarity));
+    }
+
+    public SimilarityStrategy getStrategy() {
+        return strategy;
+    }
+
+    // score of every user in the overlap against the given user, in the overlap's order
+    public float[] score(Long userId, InterestIndex.Overlap overlap) {
+        float[] scores = new float[overlap.size()];
+        score(userId, overlap, 0, overlap.size(), scores);
+        return scores;
+    }
+
+    // scores the overlap entries from (inclusive) to to (exclusive) into the same positions of scores
+    public void score(Long userId, InterestIndex.Overlap overlap, int from, int to, float[] scores) {
+        float[] table = weights();
+        long[] bits = interestIndex.bitsetOf(userId);
+        float userWeight = weightOf(bits, table);
+
+        for (int i = from; i < to; i++) {
+            long[] other = interestIndex.bitsetOf(overlap.userIds()[i]);
+            float shared = 0f;
+            float candidateWeight = 0f;
+            for (int word = 0; word < other.length; word++) {
+                long both = word < bits.length ? bits[word] & other[word] : 0L;
+                for (long w = both; w != 0; w &= w - 1) {
+                    shared += weight(table, word << 6 | Long.numberOfTrailingZeros(w));
+                }
+                for (long w = other[word]; w != 0; w &= w - 1) {
+                    candidateWeight += weight(table, word << 6 | Long.numberOfTrailingZeros(w));
+                }
+            }
+            scores[i] = strategy.similarity(shared, userWeight, candidateWeight);
+        }
+    }
+
+    // weight per interest id, rebuilt when the index version moved since the last build
+    float[] weights() {
+        long version = interestIndex.version();
+        Weights current = weights;
+        if (current != null && current.version == version) {
+            return current.table;
+        }
+        int[] counts = interestIndex.userCounts();
+        int total = interestIndex.userTotal();
+        float[] table = new float[counts.length];
+        for (int id = 0; id < counts.length; id++) {
+            table[id] = strategy.interestWeight(counts[id], total);
+        }
+        weights = new Weights(version, table);
+        return table;
+    }
+
+    private static float weightOf(long[] bits, float[] table) {
+        float sum = 0f;
+        for (int word = 0; word < bits.length; word++) {
+            for (long w = bits[word]; w != 0; w &= w - 1) {
+                sum += weight(table, word << 6 | Long.numberOfTrailingZeros(w));
+            }
+        }
+        return sum;
+    }
+
+    // an interest added after the table was built has no weight yet, it counts as unweighted until the rebuild
+    private static float weight(float[] table, int interestId) {
+        return interestId < table.length ? table[interestId] : 1f;
+    }
+
+    private record Weights(long version, float[] table) {
+    }
+}
@@ -0,0 +1,181 @@
+package com.friendfinder.suggestion;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Approximate candidate generation for large populations. Every user gets a MinHash signature of
+// bands * rows values over their interest ids, users whose signatures agree on all rows of some band
+// land in the same bucket and only bucket mates are scored. More bands raise recall, more rows per
+// band make buckets smaller and faster. Only used when friendfinder.suggestions.mode=approximate.
+@Component
+public class MinHashIndex implements InterestIndex.Listener {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final InterestIndex interestIndex;
+    private final boolean enabled;
+    private final int bands;
+    private final int rows;
+    private final long[] seeds;
+    private final Map<Long, int[]> signatures = new ConcurrentHashMap<>();
+    private final Map<Long, long[]>[] buckets;
+    private volatile boolean loaded;
+
+    public MinHashIndex(InterestIndex interestIndex,
+                        @Value("${friendfinder.suggestions.mode:exact}") String mode,
+                        @Value("${friendfinder.suggestions.lsh.bands:16}") int bands,
+                        @Value("${friendfinder.suggestions.lsh.rows:2}") int rows) {
+        if (!mode.equalsIgnoreCase("exact") && !mode.equalsIgnoreCase("approximate")) {
+            throw new IllegalStateException("Unknown suggestion mode: " + mode);
+        }
+        if (bands < 1 || rows < 1) {
+            throw new IllegalStateException("LSH bands and rows must be positive");
+        }
+        this.interestIndex = interestIndex;
+        this.enabled = mode.equalsIgnoreCase("approximate");
+        this.bands = bands;
+        this.rows = rows;
+        this.seeds = new long[bands * rows];
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < seeds.length; i++) {
+            seed = Hashing.mix(seed + i);
+            seeds[i] = seed;
+        }
+        @SuppressWarnings("unchecked")
+        Map<Long, long[]>[] tables = new Map[bands];
+        for (int band = 0; band < bands; band++) {
+            tables[band] = new HashMap<>();
+        }
+        this.buckets = tables;
+        if (enabled) {
+            interestIndex.addListener(this);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // users sharing a bucket with the given user in ascending id order, with their exact number of
+    // shared interests. Users that share interests but no bucket are missed, that is the trade-off.
+    public InterestIndex.Overlap overlapping(Long userId) {
+        ensureLoaded();
+        long[] bits = interestIndex.bitsetOf(userId);
+        int[] signature = userId != null ? signatures.get(userId) : null;
+        if (signature == null) {
+            return new InterestIndex.Overlap(EMPTY, new int[0], 0);
+        }
+
+        long[] found;
+        synchronized (this) {
+            int total = 0;
+            long[][] mates = new long[bands][];
+            for (int band = 0; band < bands; band++) {
+                mates[band] = buckets[band].getOrDefault(bandKey(signature, band), EMPTY);
+                total += mates[band].length;
+            }
+            found = new long[total];
+            int at = 0;
+            for (long[] list : mates) {
+                System.arraycopy(list, 0, found, at, list.length);
+                at += list.length;
+            }
+        }
+        Arrays.sort(found);
+
+        long[] ids = new long[found.length];
+        int[] shared = new int[found.length];
+        int n = 0;
+        for (int i = 0; i < found.length; i++) {
+            if (found[i] == userId || (i > 0 && found[i] == found[i - 1])) {
+                continue;
+            }
+            int count = InterestIndex.sharedInterests(bits, interestIndex.bitsetOf(found[i]));
+            if (count > 0) {
+                ids[n] = found[i];
+                shared[n] = count;
+                n++;
+            }
+        }
+        return new InterestIndex.Overlap(ids, shared, n);
+    }
+
+    @Override
+    public synchronized void interestsChanged(long userId, long[] before, long[] after) {
+        if (!loaded) {
+            return;
+        }
+        place(userId, after);
+    }
+
+    // signature of a bitset, the minimum of every hash function over the interest ids in the set
+    int[] signature(long[] bits) {
+        int[] signature = new int[seeds.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int word = 0; word < bits.length; word++) {
+            for (long w = bits[word]; w != 0; w &= w - 1) {
+                long interestId = (long) word << 6 | Long.numberOfTrailingZeros(w);
+                for (int i = 0; i < seeds.length; i++) {
+                    int hash = (int) (Hashing.mix(interestId ^ seeds[i]) >>> 33);
+                    if (hash < signature[i]) {
+                        signature[i] = hash;
+                    }
+                }
+            }
+        }
+        return signature;
+    }
+
+    // move the user from the buckets of their old signature to the buckets of the new one
+    private void place(long userId, long[] bits) {
+        int[] previous = signatures.remove(userId);
+        if (previous != null) {
+            for (int band = 0; band < bands; band++) {
+                long key = bandKey(previous, band);
+                long[] list = InterestIndex.without(buckets[band].getOrDefault(key, EMPTY), userId);
+                if (list.length == 0) {
+                    buckets[band].remove(key);
+                } else {
+                    buckets[band].put(key, list);
+                }
+            }
+        }
+        if (InterestIndex.cardinality(bits) == 0) {
+            return;
+        }
+        int[] signature = signature(bits);
+        signatures.put(userId, signature);
+        for (int band = 0; band < bands; band++) {
+            long key = bandKey(signature, band);
+            buckets[band].put(key, InterestIndex.with(buckets[band].getOrDefault(key, EMPTY), userId));
+        }
+    }
+
+    private long bandKey(int[] signature, int band) {
+        long key = band;
+        for (int row = band * rows; row < (band + 1) * rows; row++) {
+            key = Hashing.mix(key * 31 + signature[row]);
+        }
+        return key;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        // load the interest index first, its update lock is held while it calls interestsChanged
+        interestIndex.userTotal();
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            interestIndex.forEachUser(this::place);
+            loaded = true;
+        }
+    }
+}
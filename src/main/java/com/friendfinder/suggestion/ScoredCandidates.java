@@ -0,0 +1,38 @@
+package com.friendfinder.suggestion;
+
+import com.friendfinder.graph.FriendGraph;
+
+import java.util.Arrays;
+
+// Candidates from the interest postings and the friends of friends walk merged into one list in
+// ascending id order. A candidate scores its interest similarity plus mutualWeight per mutual friend.
+public record ScoredCandidates(long[] userIds, float[] scores, int size) {
+
+    public static ScoredCandidates merge(InterestIndex.Overlap overlap, float[] similarity,
+                                         FriendGraph.Mutual mutual, float mutualWeight) {
+        long[] ids = new long[overlap.size() + mutual.size()];
+        float[] scores = new float[ids.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < overlap.size() || j < mutual.size()) {
+            long a = i < overlap.size() ? overlap.userIds()[i] : Long.MAX_VALUE;
+            long b = j < mutual.size() ? mutual.userIds()[j] : Long.MAX_VALUE;
+            float score = 0f;
+            if (a <= b) {
+                score += similarity[i++];
+            }
+            if (b <= a) {
+                score += mutualWeight * mutual.mutualFriends()[j++];
+            }
+            ids[n] = Math.min(a, b);
+            scores[n] = score;
+            n++;
+        }
+        return new ScoredCandidates(ids, scores, n);
+    }
+
+    public boolean contains(long userId) {
+        return Arrays.binarySearch(userIds, 0, size, userId) >= 0;
+    }
+}
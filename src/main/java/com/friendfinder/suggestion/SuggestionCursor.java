@@ -0,0 +1,76 @@
+package com.friendfinder.suggestion;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+// Position in the suggestion ranking (score descending, user id ascending).
+// The next page starts strictly after the last suggestion handed out, so nothing is rescored twice.
+public final class SuggestionCursor implements Serializable {
+
+    private final float score;
+    private final long userId;
+
+    public SuggestionCursor(float score, long userId) {
+        this.score = score;
+        this.userId = userId;
+    }
+
+    // cursor before the first suggestion
+    public static SuggestionCursor start() {
+        return new SuggestionCursor(Float.POSITIVE_INFINITY, Long.MIN_VALUE);
+    }
+
+    public float getScore() {
+        return score;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    // true if the candidate comes after this position in the ranking
+    public boolean isBefore(float candidateScore, long candidateUserId) {
+        return TopK.ranksBefore(score, userId, candidateScore, candidateUserId);
+    }
+
+    // opaque token for clients, decode with fromToken
+    public String toToken() {
+        ByteBuffer buffer = ByteBuffer.allocate(Float.BYTES + Long.BYTES);
+        buffer.putFloat(score).putLong(userId);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    public static SuggestionCursor fromToken(String token) {
+        if (token == null || token.isBlank()) {
+            return start();
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(token));
+            return new SuggestionCursor(buffer.getFloat(), buffer.getLong());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid suggestion cursor: " + token);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SuggestionCursor)) return false;
+        SuggestionCursor that = (SuggestionCursor) o;
+        return Float.compare(score, that.score) == 0 && userId == that.userId;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Float.hashCode(score) + Long.hashCode(userId);
+    }
+
+    @Override
+    public String toString() {
+        return "SuggestionCursor{" +
+                "score=" + score +
+                ", userId=" + userId +
+                '}';
+    }
+}
@@ -0,0 +1,60 @@
+package com.friendfinder.suggestion;
+
+import com.friendfinder.events.DomainEventBus;
+import com.friendfinder.events.FriendshipAccepted;
+import com.friendfinder.events.FriendshipRemoved;
+import com.friendfinder.events.InterestsChanged;
+import com.friendfinder.events.UserRegistered;
+import com.friendfinder.graph.FriendGraph;
+import org.springframework.stereotype.Component;
+
+// Drops the suggestion queues of everyone else affected by a new user, changed interests or a new or
+// ended friendship. Walking every cached queue is the slow part of those changes, so it runs after
+// they commit. The users making the change have their own queues fixed at once by the services.
+@Component
+public class SuggestionInvalidation {
+
+    private final SuggestionQueueCache suggestionQueues;
+    private final InterestIndex interestIndex;
+    private final FriendGraph friendGraph;
+
+    public SuggestionInvalidation(DomainEventBus eventBus, SuggestionQueueCache suggestionQueues,
+                                  InterestIndex interestIndex, FriendGraph friendGraph) {
+        this.suggestionQueues = suggestionQueues;
+        this.interestIndex = interestIndex;
+        this.friendGraph = friendGraph;
+        eventBus.subscribe(UserRegistered.class, this::userRegistered);
+        eventBus.subscribe(InterestsChanged.class, this::interestsChanged);
+        eventBus.subscribe(FriendshipAccepted.class, this::friendshipAccepted);
+        eventBus.subscribe(FriendshipRemoved.class, this::friendshipRemoved);
+    }
+
+    // the new user can now be suggested to anyone sharing an interest
+    void userRegistered(UserRegistered event) {
+        suggestionQueues.invalidateUsersSharing(interestIndex.bitsetOf(event.userId()));
+    }
+
+    // scores against the user changed for everyone sharing an old or a new interest
+    void interestsChanged(InterestsChanged event) {
+        suggestionQueues.invalidateUsersSharing(event.previousInterests());
+        suggestionQueues.invalidateUsersSharing(interestIndex.bitsetOf(event.userId()));
+    }
+
+    void friendshipAccepted(FriendshipAccepted event) {
+        invalidateFriendsOf(event.senderId(), event.receiverId());
+    }
+
+    void friendshipRemoved(FriendshipRemoved event) {
+        invalidateFriendsOf(event.userId(), event.friendId());
+    }
+
+    // mutual friend counts changed for everyone one hop away from either user
+    private void invalidateFriendsOf(Long userId, Long otherUserId) {
+        for (long friendId : friendGraph.friendsOf(userId)) {
+            suggestionQueues.invalidate(friendId);
+        }
+        for (long friendId : friendGraph.friendsOf(otherUserId)) {
+            suggestionQueues.invalidate(friendId);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.friendfinder.suggestion;
+
+import com.friendfinder.model.User;
+
+import java.util.List;
+
+// One page of suggestions best first, next is the cursor to continue from
+public record SuggestionPage(List<Suggestion> suggestions, SuggestionCursor next) {
+
+    public record Suggestion(User user, float score) { }
+
+    public List<User> users() {
+        return suggestions.stream()
+                .map(Suggestion::user)
+                .toList();
+    }
+
+    public boolean isEmpty() {
+        return suggestions.isEmpty();
+    }
+}
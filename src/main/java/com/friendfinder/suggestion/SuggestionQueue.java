@@ -0,0 +1,68 @@
+package com.friendfinder.suggestion;
+
+import java.util.List;
+
+// Precomputed suggestions for one user, consumed from the head as the user swipes.
+// Holds primitive ids only, the entities are loaded when a suggestion is shown.
+public class SuggestionQueue {
+
+    private static final long REMOVED = Long.MIN_VALUE;
+
+    private final long[] ids;
+    private final SuggestionCursor tail;
+    private final boolean exhausted;
+    private int head;
+
+    // tail is the cursor after the last entry, exhausted means nothing ranks after it
+    public SuggestionQueue(long[] ids, SuggestionCursor tail, boolean exhausted) {
+        this.ids = ids;
+        this.tail = tail;
+        this.exhausted = exhausted;
+    }
+
+    // queue from a page that was asked for capacity suggestions
+    public static SuggestionQueue of(SuggestionPage page, int capacity) {
+        List<SuggestionPage.Suggestion> suggestions = page.suggestions();
+        long[] ids = new long[suggestions.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = suggestions.get(i).user().getUserId();
+        }
+        return new SuggestionQueue(ids, page.next(), ids.length < capacity);
+    }
+
+    public synchronized boolean isEmpty() {
+        skipRemoved();
+        return head >= ids.length;
+    }
+
+    // id of the next suggestion, or null if the queue is empty
+    public synchronized Long peek() {
+        skipRemoved();
+        return head < ids.length ? ids[head] : null;
+    }
+
+    // drop a suggestion wherever it is in the queue, returns true if it was queued
+    public synchronized boolean remove(long userId) {
+        for (int i = head; i < ids.length; i++) {
+            if (ids[i] == userId) {
+                ids[i] = REMOVED;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public SuggestionCursor getTail() {
+        return tail;
+    }
+
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    private void skipRemoved() {
+        while (head < ids.length && ids[head] == REMOVED) {
+            head++;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.friendfinder.suggestion;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+// Suggestion queues per user with LRU eviction, so only recently active users keep one in memory.
+// Every invalidation bumps a version, a queue built against an older version is not cached.
+@Component
+public class SuggestionQueueCache {
+
+    private final InterestIndex interestIndex;
+    private final Map<Long, SuggestionQueue> queues;
+    private long version;
+
+    public SuggestionQueueCache(InterestIndex interestIndex,
+                                @Value("${friendfinder.suggestions.queue.max-users:1000}") int maxUsers) {
+        this.interestIndex = interestIndex;
+        this.queues = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, SuggestionQueue> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    public synchronized SuggestionQueue get(Long userId) {
+        return queues.get(userId);
+    }
+
+    public synchronized long version() {
+        return version;
+    }
+
+    // cache a freshly built queue unless something was invalidated while it was being built
+    public synchronized boolean putIfUnchanged(Long userId, SuggestionQueue queue, long builtAtVersion) {
+        if (builtAtVersion != version) {
+            return false;
+        }
+        queues.put(userId, queue);
+        return true;
+    }
+
+    // the user's ranking changed, their queue is rebuilt on the next request
+    public synchronized void invalidate(Long userId) {
+        version++;
+        queues.remove(userId);
+    }
+
+    public synchronized void invalidateIf(LongPredicate affected) {
+        version++;
+        queues.keySet().removeIf(affected::test);
+    }
+
+    // drop the queues of every user holding one of the given interests, e.g. because a user
+    // with those interests registered or changed interests
+    public void invalidateUsersSharing(long[] interests) {
+        if (InterestIndex.cardinality(interests) == 0) {
+            return;
+        }
+        invalidateIf(cachedUserId ->
+                InterestIndex.sharedInterests(interests, interestIndex.bitsetOf(cachedUserId)) > 0);
+    }
+
+    // candidate is no longer a valid suggestion for this user
+    public synchronized void removeCandidate(Long userId, Long candidateId) {
+        version++;
+        SuggestionQueue queue = queues.get(userId);
+        if (queue != null) {
+            queue.remove(candidateId);
+        }
+    }
+
+    // candidate is no longer a valid suggestion for anybody, e.g. the user was deleted
+    public synchronized void removeCandidateEverywhere(Long candidateId) {
+        version++;
+        queues.remove(candidateId);
+        for (SuggestionQueue queue : queues.values()) {
+            queue.remove(candidateId);
+        }
+    }
+
+    public synchronized int size() {
+        return queues.size();
+    }
+}
@@ -0,0 +1,140 @@
+package com.friendfinder.suggestion;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongPredicate;
+
+// Scores and ranks suggestion candidates. Small candidate lists run on the calling thread, larger ones
+// are split into partitions of at most threshold candidates on a dedicated fork-join pool, each with its
+// own top-k heap, and the heaps are merged. The ranking is a total order (score, then id) and every score
+// is computed the same way in any partition, so the result is identical to the sequential one.
+@Component
+public class SuggestionRanker {
+
+    private final InterestScorer interestScorer;
+    private final int threshold;
+    private final ForkJoinPool pool;
+
+    public SuggestionRanker(InterestScorer interestScorer,
+                            @Value("${friendfinder.suggestions.parallel.threshold:20000}") int threshold,
+                            @Value("${friendfinder.suggestions.parallel.pool-size:0}") int poolSize) {
+        if (threshold < 1) {
+            throw new IllegalStateException("Parallel threshold must be positive");
+        }
+        this.interestScorer = interestScorer;
+        this.threshold = threshold;
+        this.pool = new ForkJoinPool(poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors());
+    }
+
+    // interest similarity of every user in the overlap, see InterestScorer
+    public float[] score(Long userId, InterestIndex.Overlap overlap) {
+        float[] scores = new float[overlap.size()];
+        if (overlap.size() <= threshold) {
+            interestScorer.score(userId, overlap, 0, overlap.size(), scores);
+        } else {
+            pool.invoke(new ScoreTask(userId, overlap, scores, 0, overlap.size()));
+        }
+        return scores;
+    }
+
+    // the k best candidates ranking after the cursor that are not excluded
+    public TopK top(ScoredCandidates candidates, int k, SuggestionCursor after, LongPredicate excluded) {
+        if (candidates.size() <= threshold) {
+            return top(candidates, k, after, excluded, 0, candidates.size());
+        }
+        return pool.invoke(new TopTask(candidates, k, after, excluded, 0, candidates.size()));
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static TopK top(ScoredCandidates candidates, int k, SuggestionCursor after, LongPredicate excluded,
+                            int from, int to) {
+        TopK top = new TopK(Math.min(k, to - from));
+        for (int i = from; i < to; i++) {
+            long id = candidates.userIds()[i];
+            float score = candidates.scores()[i];
+            if (after.isBefore(score, id) && !excluded.test(id)) {
+                top.offer(score, id);
+            }
+        }
+        return top;
+    }
+
+    private class ScoreTask extends RecursiveAction {
+
+        private final Long userId;
+        private final InterestIndex.Overlap overlap;
+        private final float[] scores;
+        private final int from;
+        private final int to;
+
+        ScoreTask(Long userId, InterestIndex.Overlap overlap, float[] scores, int from, int to) {
+            this.userId = userId;
+            this.overlap = overlap;
+            this.scores = scores;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                interestScorer.score(userId, overlap, from, to, scores);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ScoreTask(userId, overlap, scores, from, middle),
+                    new ScoreTask(userId, overlap, scores, middle, to));
+        }
+    }
+
+    private class TopTask extends RecursiveTask<TopK> {
+
+        private final ScoredCandidates candidates;
+        private final int k;
+        private final SuggestionCursor after;
+        private final LongPredicate excluded;
+        private final int from;
+        private final int to;
+
+        TopTask(ScoredCandidates candidates, int k, SuggestionCursor after, LongPredicate excluded, int from, int to) {
+            this.candidates = candidates;
+            this.k = k;
+            this.after = after;
+            this.excluded = excluded;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected TopK compute() {
+            if (to - from <= threshold) {
+                return top(candidates, k, after, excluded, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            TopTask left = new TopTask(candidates, k, after, excluded, from, middle);
+            left.fork();
+            TopK right = new TopTask(candidates, k, after, excluded, middle, to).compute();
+            TopK merged = new TopK(Math.min(k, to - from));
+            merged.addAll(left.join());
+            merged.addAll(right);
+            return merged;
+        }
+    }
+}
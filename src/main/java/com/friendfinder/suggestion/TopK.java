@@ -0,0 +1,104 @@
+package com.friendfinder.suggestion;
+
+// Bounded min-heap over primitive arrays keeping the k best (score, userId) pairs.
+// The worst kept pair sits at the root so a better candidate replaces it in O(log k).
+public class TopK {
+
+    private final float[] scores;
+    private final long[] ids;
+    private int size;
+
+    public TopK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative");
+        }
+        this.scores = new float[k];
+        this.ids = new long[k];
+    }
+
+    // higher score first, lower id first within a tie
+    public static boolean ranksBefore(float score, long userId, float otherScore, long otherUserId) {
+        return score > otherScore || (score == otherScore && userId < otherUserId);
+    }
+
+    public void offer(float score, long userId) {
+        if (size < scores.length) {
+            scores[size] = score;
+            ids[size] = userId;
+            siftUp(size++);
+        } else if (size > 0 && ranksBefore(score, userId, scores[0], ids[0])) {
+            scores[0] = score;
+            ids[0] = userId;
+            siftDown(0);
+        }
+    }
+
+    // offers every pair kept by another heap, used to merge per partition heaps
+    public void addAll(TopK other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.scores[i], other.ids[i]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == scores.length;
+    }
+
+    // empties the heap into the given arrays, best candidate first
+    public int drainTo(float[] scoresOut, long[] idsOut) {
+        int count = size;
+        for (int i = count - 1; i >= 0; i--) {
+            scoresOut[i] = scores[0];
+            idsOut[i] = ids[0];
+            size--;
+            scores[0] = scores[size];
+            ids[0] = ids[size];
+            siftDown(0);
+        }
+        return count;
+    }
+
+    // the heap is ordered so the worst candidate wins, i.e. a parent never ranks before its children
+    private boolean worse(int a, int b) {
+        return ranksBefore(scores[b], ids[b], scores[a], ids[a]);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(i, parent)) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                break;
+            }
+            int child = left + 1 < size && worse(left + 1, left) ? left + 1 : left;
+            if (!worse(child, i)) {
+                break;
+            }
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int a, int b) {
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+    }
+}
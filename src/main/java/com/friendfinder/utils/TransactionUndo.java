@@ -0,0 +1,28 @@
+package com.friendfinder.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// For in-memory copies of the database, such as the friend graph and the interest index. They change
+// at once, so the transaction making a change sees it, and register the opposite change here to be
+// run if that transaction rolls back. The undo runs after the transaction has finished, so it does
+// not register an undo of its own. Outside a transaction a change is simply kept.
+public final class TransactionUndo {
+
+    private TransactionUndo() {
+    }
+
+    public static void onRollback(Runnable undo) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    undo.run();
+                }
+            }
+        });
+    }
+}
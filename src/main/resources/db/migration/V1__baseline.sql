@@ -0,0 +1,146 @@
+-- Schema as it was when ddl-auto=update managed it. Every statement is guarded with IF NOT EXISTS,
+-- so on a database created by ddl-auto it only fills in what is missing. The foreign keys keep the
+-- names Hibernate generated for them back then.
+
+CREATE SEQUENCE IF NOT EXISTS chat_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS chat_read_cursor_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS dislike_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS friend_request_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS interest_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS message_read_receipt_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS message_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS message_tombstone_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS user_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS user_table (
+    user_id BIGINT NOT NULL,
+    email VARCHAR(255),
+    name VARCHAR(255),
+    password VARCHAR(255),
+    PRIMARY KEY (user_id)
+);
+
+CREATE TABLE IF NOT EXISTS interest_table (
+    interest_id BIGINT NOT NULL,
+    name VARCHAR(255) UNIQUE,
+    PRIMARY KEY (interest_id)
+);
+
+CREATE TABLE IF NOT EXISTS user_interest (
+    interest_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS friends_relation (
+    friend_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS friend_requests (
+    id BIGINT NOT NULL,
+    receiver_user_id BIGINT,
+    sender_user_id BIGINT,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS dislikes (
+    id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    disliked_id BIGINT NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id),
+    UNIQUE (user_id, disliked_id)
+);
+
+CREATE TABLE IF NOT EXISTS chat (
+    chat_id BIGINT NOT NULL,
+    created_at TIMESTAMP(6),
+    chat_name VARCHAR(255),
+    chat_type VARCHAR(255),
+    PRIMARY KEY (chat_id)
+);
+
+CREATE TABLE IF NOT EXISTS chat_participants (
+    chat_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    PRIMARY KEY (chat_id, user_id)
+);
+
+CREATE TABLE IF NOT EXISTS message (
+    message_id BIGINT NOT NULL,
+    chat_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    content TEXT NOT NULL,
+    timestamp TIMESTAMP(6),
+    message_type VARCHAR(255),
+    is_edited BOOLEAN,
+    edited_at TIMESTAMP(6),
+    seq_no BIGINT,
+    PRIMARY KEY (message_id)
+);
+
+CREATE TABLE IF NOT EXISTS message_read_receipt (
+    id BIGINT NOT NULL,
+    message_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    read_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS chat_activity (
+    chat_id BIGINT NOT NULL,
+    last_message_id BIGINT,
+    last_message_preview VARCHAR(200),
+    last_sender_id BIGINT,
+    last_activity_at TIMESTAMP(6) NOT NULL,
+    message_count BIGINT NOT NULL,
+    last_sequence BIGINT NOT NULL,
+    PRIMARY KEY (chat_id)
+);
+
+CREATE TABLE IF NOT EXISTS chat_read_cursors (
+    id BIGINT NOT NULL,
+    chat_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    last_read_message_id BIGINT NOT NULL,
+    read_at TIMESTAMP(6) NOT NULL,
+    seq_no BIGINT,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_chat_read_cursor UNIQUE (chat_id, user_id)
+);
+
+CREATE TABLE IF NOT EXISTS message_tombstones (
+    id BIGINT NOT NULL,
+    chat_id BIGINT NOT NULL,
+    message_id BIGINT NOT NULL,
+    seq_no BIGINT NOT NULL,
+    deleted_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- columns added to existing tables while ddl-auto was still in charge
+ALTER TABLE message ADD COLUMN IF NOT EXISTS seq_no BIGINT;
+ALTER TABLE chat_activity ADD COLUMN IF NOT EXISTS last_sequence BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE chat_read_cursors ADD COLUMN IF NOT EXISTS seq_no BIGINT;
+
+CREATE INDEX IF NOT EXISTS idx_chat_activity_last_activity ON chat_activity (last_activity_at);
+CREATE INDEX IF NOT EXISTS idx_chat_read_cursor_seq ON chat_read_cursors (chat_id, seq_no);
+CREATE INDEX IF NOT EXISTS idx_message_chat_message ON message (chat_id, message_id);
+CREATE INDEX IF NOT EXISTS idx_message_chat_timestamp ON message (chat_id, timestamp, message_id);
+CREATE INDEX IF NOT EXISTS idx_message_chat_seq ON message (chat_id, seq_no);
+CREATE INDEX IF NOT EXISTS idx_message_tombstone_seq ON message_tombstones (chat_id, seq_no);
+
+ALTER TABLE chat_participants ADD CONSTRAINT IF NOT EXISTS FK3kjy4ugf7x84sy8io7gqd3n7t FOREIGN KEY (user_id) REFERENCES user_table;
+ALTER TABLE chat_participants ADD CONSTRAINT IF NOT EXISTS FK44t5cpu2fejyqk36kb8pico4u FOREIGN KEY (chat_id) REFERENCES chat;
+ALTER TABLE dislikes ADD CONSTRAINT IF NOT EXISTS FKnd4rfb8ekchu4sxv76scfaffr FOREIGN KEY (disliked_id) REFERENCES user_table;
+ALTER TABLE dislikes ADD CONSTRAINT IF NOT EXISTS FK88gamnhuh22tng3ga4b2cmojf FOREIGN KEY (user_id) REFERENCES user_table;
+ALTER TABLE friend_requests ADD CONSTRAINT IF NOT EXISTS FKfacbaxjlp9gygqmntdoaka12o FOREIGN KEY (receiver_user_id) REFERENCES user_table;
+ALTER TABLE friend_requests ADD CONSTRAINT IF NOT EXISTS FKcofmp8e099vwx2i2ad5rqvxwn FOREIGN KEY (sender_user_id) REFERENCES user_table;
+ALTER TABLE friends_relation ADD CONSTRAINT IF NOT EXISTS FKepxyprfwil7g6mvlq4ejpv31l FOREIGN KEY (friend_id) REFERENCES user_table;
+ALTER TABLE friends_relation ADD CONSTRAINT IF NOT EXISTS FKr1u0lj00nwvgn9scq6rw11h19 FOREIGN KEY (user_id) REFERENCES user_table;
+ALTER TABLE message ADD CONSTRAINT IF NOT EXISTS FKmejd0ykokrbuekwwgd5a5xt8a FOREIGN KEY (chat_id) REFERENCES chat;
+ALTER TABLE message ADD CONSTRAINT IF NOT EXISTS FK9nnuwmtpv43anoa9gflhed0yv FOREIGN KEY (user_id) REFERENCES user_table;
+ALTER TABLE message_read_receipt ADD CONSTRAINT IF NOT EXISTS FKdy2m9a1pslrt547egonsa37q4 FOREIGN KEY (message_id) REFERENCES message;
+ALTER TABLE message_read_receipt ADD CONSTRAINT IF NOT EXISTS FKi6js1sdee164p4093ppaad2ic FOREIGN KEY (user_id) REFERENCES user_table;
+ALTER TABLE user_interest ADD CONSTRAINT IF NOT EXISTS FKmbn2cjav2us2esvuo0q1wg94w FOREIGN KEY (interest_id) REFERENCES interest_table;
+ALTER TABLE user_interest ADD CONSTRAINT IF NOT EXISTS FK1wjvypga27h5tut95e9h27r72 FOREIGN KEY (user_id) REFERENCES user_table;
@@ -0,0 +1,22 @@
+-- Indexes and constraints the hot queries depend on. Duplicates that ddl-auto let in are removed
+-- first, keeping the oldest row, so the unique indexes can be built on an existing database.
+
+-- message(chat_id, timestamp) is covered by idx_message_chat_timestamp from V1
+
+-- one read receipt per user and message
+DELETE FROM message_read_receipt r WHERE EXISTS (
+    SELECT 1 FROM message_read_receipt o
+    WHERE o.message_id = r.message_id AND o.user_id = r.user_id AND o.id < r.id);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_read_receipt_message_user ON message_read_receipt (message_id, user_id);
+
+-- the inbox and membership queries start from the user
+CREATE INDEX IF NOT EXISTS idx_chat_participants_user ON chat_participants (user_id);
+
+-- one request per sender and receiver
+DELETE FROM friend_requests f WHERE EXISTS (
+    SELECT 1 FROM friend_requests o
+    WHERE o.sender_user_id = f.sender_user_id AND o.receiver_user_id = f.receiver_user_id AND o.id < f.id);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_friend_request_sender_receiver ON friend_requests (sender_user_id, receiver_user_id);
+
+-- log in looks users up by email
+CREATE UNIQUE INDEX IF NOT EXISTS uk_user_email ON user_table (email);
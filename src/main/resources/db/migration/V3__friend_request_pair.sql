@@ -0,0 +1,29 @@
+-- At most one pending friend request per pair of users, whichever way it was sent, so a request and
+-- its mutual counterpart can never both be pending. The unordered pair is kept in generated columns
+-- for the unique index.
+ALTER TABLE friend_requests ADD COLUMN IF NOT EXISTS low_user_id BIGINT
+    GENERATED ALWAYS AS (LEAST(sender_user_id, receiver_user_id));
+ALTER TABLE friend_requests ADD COLUMN IF NOT EXISTS high_user_id BIGINT
+    GENERATED ALWAYS AS (GREATEST(sender_user_id, receiver_user_id));
+
+-- requests sent both ways before, the older one stays pending
+DELETE FROM friend_requests f WHERE EXISTS (
+    SELECT 1 FROM friend_requests o
+    WHERE o.low_user_id = f.low_user_id AND o.high_user_id = f.high_user_id AND o.id < f.id);
+
+-- requests between users who became friends anyway
+DELETE FROM friend_requests f WHERE EXISTS (
+    SELECT 1 FROM friends_relation r
+    WHERE r.user_id = f.sender_user_id AND r.friend_id = f.receiver_user_id);
+
+DROP INDEX IF EXISTS uk_friend_request_sender_receiver;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_friend_request_pair ON friend_requests (low_user_id, high_user_id);
+
+-- one friends_relation row per direction, rows are written by single statements that skip existing ones
+DELETE FROM friends_relation r WHERE EXISTS (
+    SELECT 1 FROM friends_relation o
+    WHERE o.user_id = r.user_id AND o.friend_id = r.friend_id AND o._ROWID_ < r._ROWID_);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_friends_relation_pair ON friends_relation (user_id, friend_id);
+
+-- requests are inserted by a single MERGE that takes its id straight from the sequence
+ALTER SEQUENCE friend_request_seq INCREMENT BY 1;
@@ -0,0 +1,11 @@
+-- Domain events stored by the transaction that raised them and handled after it commits
+CREATE SEQUENCE IF NOT EXISTS outbox_event_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGINT NOT NULL,
+    event_type VARCHAR(100) NOT NULL,
+    payload VARCHAR(4000) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    attempts INTEGER NOT NULL,
+    PRIMARY KEY (id)
+);
@@ -0,0 +1,18 @@
+-- At most one direct chat per pair of users, keyed on the unordered pair so finding it is a single
+-- index lookup. The pair is taken from the participants of the existing direct chats.
+ALTER TABLE chat ADD COLUMN IF NOT EXISTS low_user_id BIGINT;
+ALTER TABLE chat ADD COLUMN IF NOT EXISTS high_user_id BIGINT;
+
+UPDATE chat c SET
+    low_user_id = (SELECT MIN(p.user_id) FROM chat_participants p WHERE p.chat_id = c.chat_id),
+    high_user_id = (SELECT MAX(p.user_id) FROM chat_participants p WHERE p.chat_id = c.chat_id)
+WHERE c.chat_type = 'DIRECT'
+    AND (SELECT COUNT(*) FROM chat_participants p WHERE p.chat_id = c.chat_id) = 2;
+
+-- direct chats created twice for a pair keep their messages, the oldest becomes the pair's chat
+UPDATE chat c SET low_user_id = NULL, high_user_id = NULL
+WHERE c.low_user_id IS NOT NULL AND EXISTS (
+    SELECT 1 FROM chat o
+    WHERE o.low_user_id = c.low_user_id AND o.high_user_id = c.high_user_id AND o.chat_id < c.chat_id);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_chat_direct_pair ON chat (low_user_id, high_user_id);
@@ -0,0 +1,7 @@
+-- Read cursors get their sequence numbers from a counter of their own on the chat row, so moving a
+-- cursor does not lock the activity row every message in the chat waits on. It starts above the
+-- numbers the cursors were given from the message sequence.
+ALTER TABLE chat ADD COLUMN IF NOT EXISTS read_sequence BIGINT DEFAULT 0 NOT NULL;
+
+UPDATE chat c SET read_sequence = COALESCE(
+    (SELECT MAX(r.seq_no) FROM chat_read_cursors r WHERE r.chat_id = c.chat_id), 0);
@@ -0,0 +1,5 @@
+-- When an outbox event is next due for handling. Set a little after the commit for new events, so the
+-- poller only takes those the direct handling lost, and pushed back further after every failure.
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS next_attempt_at TIMESTAMP(6);
+
+UPDATE outbox_events SET next_attempt_at = created_at WHERE next_attempt_at IS NULL;
@@ -0,0 +1,11 @@
+-- Every chat has an activity row, so the inbox sorts on last_activity_at alone and the index serves it.
+-- Chats without messages start from their creation time. Those with messages are filled in by
+-- ReadModelBackfill, which also restores their last message and count.
+INSERT INTO chat_activity (chat_id, last_activity_at, message_count, last_sequence)
+SELECT c.chat_id, COALESCE(c.created_at, CURRENT_TIMESTAMP), 0, 0 FROM chat c
+WHERE NOT EXISTS (SELECT 1 FROM chat_activity a WHERE a.chat_id = c.chat_id)
+  AND NOT EXISTS (SELECT 1 FROM message m WHERE m.chat_id = c.chat_id);
+
+-- ties on the activity time are broken by the chat id, as the inbox orders them
+DROP INDEX IF EXISTS idx_chat_activity_last_activity;
+CREATE INDEX idx_chat_activity_last_activity ON chat_activity (last_activity_at, chat_id);
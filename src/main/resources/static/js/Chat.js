@@ -4,6 +4,16 @@ let currentUserId = null;
 let activeChatId = null;
 let stompClient = null;
 let subscription = null;
+let readSubscription = null;
+let lastReadSent = 0;
+let olderCursor = null;
+let loadingOlder = false;
+let lastSequence = 0;
+let lastReadSequence = 0;
+// furthest message id each other participant of the open chat has read
+let readUpTo = {};
+
+const PAGE_SIZE = 50;
 
 // ----- HELPER FUNCTIONS -----
 
@@ -88,6 +98,10 @@ function selectChat(chatId) {
 
     console.log('Selecting chat:', chatId);
     activeChatId = chatId;
+    lastReadSent = 0;
+    lastSequence = 0;
+    lastReadSequence = 0;
+    readUpTo = {};
 
     // Mark active in sidebar
     document.querySelectorAll('#chatList li').forEach(li => {
@@ -127,28 +141,37 @@ function selectChat(chatId) {
         })
         .catch(err => console.error('Failed to load chat details:', err));
 
-    // Fetch messages
-    fetch(`/api/chats/${chatId}/messages?userId=${currentUserId}`)
+    // Fetch newest page of messages, older pages load when scrolling up
+    olderCursor = null;
+    fetch(`/api/chats/${chatId}/messages?userId=${currentUserId}&limit=${PAGE_SIZE}`)
         .then(res => {
             if (!res.ok) {
                 throw new Error('HTTP ' + res.status);
             }
             return res.json();
         })
-        .then(messages => {
-            console.log('Loaded messages:', messages);
+        .then(page => {
+            console.log('Loaded messages:', page);
             const container = document.getElementById('chatMessages');
-            if (!container) return;
+            if (!container || activeChatId !== chatId) return;
 
             container.innerHTML = '';
+            const messages = page.messages || [];
+            olderCursor = page.hasMoreBefore ? page.before : null;
+            // the chat's own sequence numbers, also set for an empty chat or one without numbered messages
+            lastSequence = Math.max(lastSequence, page.sequence || 0);
+            lastReadSequence = Math.max(lastReadSequence, page.readSequence || 0);
 
-            if (!messages || messages.length === 0) {
+            if (messages.length === 0) {
                 container.innerHTML = '<div class="no-messages">No messages yet</div>';
                 return;
             }
 
+            messages.forEach(trackReceipts);
             messages.forEach(appendMessage);
+            messages.forEach(trackSequence);
             container.scrollTop = container.scrollHeight;
+            markReadUpTo(chatId, Math.max(...messages.map(m => m.messageId || 0)));
         })
         .catch(err => console.error('Failed to load messages:', err));
 
@@ -174,6 +197,8 @@ function connectSocket() {
         console.log('✓ Connected to WebSocket');
         if (activeChatId) {
             subscribeToChat(activeChatId);
+            // catch up on whatever happened while the connection was down
+            syncChat(activeChatId);
         }
     }, (error) => {
         console.error('✗ WebSocket connection error:', error);
@@ -193,13 +218,152 @@ function subscribeToChat(chatId) {
         console.log('Unsubscribing from previous chat');
         subscription.unsubscribe();
     }
+    if (readSubscription) {
+        readSubscription.unsubscribe();
+    }
 
     console.log('Subscribing to /topic/chat/' + chatId);
 
     subscription = stompClient.subscribe('/topic/chat/' + chatId, (message) => {
         console.log('Received WebSocket message:', message.body);
         const msg = JSON.parse(message.body);
-        appendMessage(msg);
+        showMessage(msg);
+        trackSequence(msg);
+        if (msg.senderId !== currentUserId) {
+            markReadUpTo(chatId, msg.messageId);
+        }
+    });
+    readSubscription = stompClient.subscribe('/topic/chat/' + chatId + '/read', (message) => {
+        applyReadCursor(JSON.parse(message.body));
+    });
+}
+
+// ----- SYNC AFTER RECONNECT -----
+
+function trackSequence(msg) {
+    if (msg.sequence && msg.sequence > lastSequence) {
+        lastSequence = msg.sequence;
+    }
+}
+
+// fetch only the changes since lastSequence and lastReadSequence and apply them to the open chat
+function syncChat(chatId) {
+    fetch(`/api/chats/${chatId}/sync?userId=${currentUserId}&since=${lastSequence}&readSince=${lastReadSequence}`)
+        .then(res => {
+            if (!res.ok) {
+                throw new Error('HTTP ' + res.status);
+            }
+            return res.json();
+        })
+        .then(delta => {
+            if (activeChatId !== chatId) return;
+
+            (delta.messages || []).forEach(trackReceipts);
+            (delta.messages || []).forEach(showMessage);
+            (delta.readCursors || []).forEach(applyReadCursor);
+            (delta.deletedMessageIds || []).forEach(id => {
+                const el = document.querySelector(`#chatMessages [data-message-id="${id}"]`);
+                if (el) el.remove();
+            });
+            lastSequence = Math.max(lastSequence, delta.sequence);
+            lastReadSequence = Math.max(lastReadSequence, delta.readSequence || 0);
+
+            const fromOthers = (delta.messages || []).filter(m => m.senderId !== currentUserId);
+            if (fromOthers.length > 0) {
+                markReadUpTo(chatId, Math.max(...fromOthers.map(m => m.messageId)));
+            }
+            if (delta.hasMore) {
+                syncChat(chatId);
+            }
+        })
+        .catch(err => console.error('Failed to sync chat:', err));
+}
+
+// ----- READ STATE -----
+
+// one call marks everything up to the message as read, older ids are skipped
+function markReadUpTo(chatId, messageId) {
+    if (!messageId || messageId <= lastReadSent) return;
+    lastReadSent = messageId;
+
+    if (stompClient && stompClient.connected) {
+        stompClient.send('/app/chat.readUpTo', {}, JSON.stringify({
+            chatID: chatId,
+            userID: currentUserId,
+            messageID: messageId
+        }));
+        return;
+    }
+    fetch(`/api/chats/${chatId}/read?userId=${currentUserId}&upTo=${messageId}`, { method: 'POST' })
+        .catch(err => console.error('Failed to mark messages as read:', err));
+}
+
+// the receipts a message was loaded with tell how far its readers have got
+function trackReceipts(msg) {
+    (msg.readReceipts || []).forEach(receipt => noteRead(receipt.userId, msg.messageId));
+}
+
+function noteRead(userId, messageId) {
+    if (userId === currentUserId || !messageId) return false;
+    if ((readUpTo[userId] || 0) >= messageId) return false;
+    readUpTo[userId] = messageId;
+    return true;
+}
+
+// a participant's read cursor moved, refresh the receipts under our own messages
+function applyReadCursor(cursor) {
+    if (String(cursor.chatId) !== String(activeChatId)) return;
+    if (noteRead(cursor.userId, cursor.lastReadMessageId)) {
+        document.querySelectorAll('#chatMessages .message-row.own[data-message-id]').forEach(row => {
+            const receipt = row.querySelector('.message-receipt');
+            if (receipt) receipt.textContent = receiptText(Number(row.dataset.messageId));
+        });
+    }
+}
+
+function receiptText(messageId) {
+    const readers = Object.values(readUpTo).filter(upTo => upTo >= messageId).length;
+    return readers > 0 ? 'Seen by ' + readers : '';
+}
+
+// ----- OLDER MESSAGES (INFINITE SCROLL) -----
+
+function loadOlderMessages() {
+    if (!activeChatId || !olderCursor || loadingOlder) return;
+    loadingOlder = true;
+    const chatId = activeChatId;
+
+    fetch(`/api/chats/${chatId}/messages?userId=${currentUserId}&limit=${PAGE_SIZE}`
+            + `&before=${encodeURIComponent(olderCursor)}`)
+        .then(res => {
+            if (!res.ok) {
+                throw new Error('HTTP ' + res.status);
+            }
+            return res.json();
+        })
+        .then(page => {
+            const container = document.getElementById('chatMessages');
+            if (!container || activeChatId !== chatId) return;
+
+            // keep the messages on screen where they are while older ones go in above
+            const fromBottom = container.scrollHeight - container.scrollTop;
+            const first = container.firstChild;
+            (page.messages || []).forEach(trackReceipts);
+            (page.messages || []).forEach(msg => container.insertBefore(createMessageElement(msg), first));
+            container.scrollTop = container.scrollHeight - fromBottom;
+            olderCursor = page.hasMoreBefore ? page.before : null;
+        })
+        .catch(err => console.error('Failed to load older messages:', err))
+        .finally(() => { loadingOlder = false; });
+}
+
+function setupInfiniteScroll() {
+    const container = document.getElementById('chatMessages');
+    if (!container) return;
+    container.addEventListener('scroll', () => {
+        if (container.scrollTop < 50) {
+            loadOlderMessages();
+        }
     });
 }
 
@@ -209,20 +373,55 @@ function appendMessage(msg) {
     const container = document.getElementById('chatMessages');
     if (!container) return;
 
+    const placeholder = container.querySelector('.no-messages');
+    if (placeholder) {
+        placeholder.remove();
+    }
+    container.appendChild(createMessageElement(msg));
+    container.scrollTop = container.scrollHeight;
+}
+
+// replace the message if it is already shown (an edit, or a message that was broadcast before it
+// was written and now has its id), append it otherwise
+function showMessage(msg) {
+    let existing = msg.messageId
+        ? document.querySelector(`#chatMessages [data-message-id="${msg.messageId}"]`)
+        : null;
+    if (!existing && msg.sequence) {
+        existing = document.querySelector(`#chatMessages [data-sequence="${msg.sequence}"]:not([data-message-id])`);
+    }
+    if (existing) {
+        existing.replaceWith(createMessageElement(msg));
+        return;
+    }
+    appendMessage(msg);
+}
+
+// a message broadcast before it was written has a sequence number but no id yet
+function setMessageKeys(element, msg) {
+    if (msg.messageId) {
+        element.dataset.messageId = msg.messageId;
+    }
+    if (msg.sequence) {
+        element.dataset.sequence = msg.sequence;
+    }
+}
+
+function createMessageElement(msg) {
     // FIXED: Check if it's a system message
     if (msg.type === 'JOIN' || msg.type === 'LEAVE' || msg.type === 'SYSTEM') {
         const systemDiv = document.createElement('div');
         systemDiv.className = 'system-message';
         systemDiv.textContent = msg.content;
-        container.appendChild(systemDiv);
-        container.scrollTop = container.scrollHeight;
-        return;
+        setMessageKeys(systemDiv, msg);
+        return systemDiv;
     }
 
     const isOwn = msg.senderId === currentUserId;
 
     const row = document.createElement('div');
     row.className = 'message-row ' + (isOwn ? 'own' : 'other');
+    setMessageKeys(row, msg);
 
     const bubble = document.createElement('div');
     bubble.className = 'message-bubble';
@@ -248,6 +447,13 @@ function appendMessage(msg) {
     meta.appendChild(senderSpan);
     meta.appendChild(timeSpan);
 
+    if (isOwn && msg.messageId) {
+        const receiptSpan = document.createElement('span');
+        receiptSpan.className = 'message-receipt';
+        receiptSpan.textContent = receiptText(msg.messageId);
+        meta.appendChild(receiptSpan);
+    }
+
     const textDiv = document.createElement('div');
     textDiv.className = 'message-text';
     textDiv.textContent = msg.content || '';
@@ -255,8 +461,7 @@ function appendMessage(msg) {
     bubble.appendChild(meta);
     bubble.appendChild(textDiv);
     row.appendChild(bubble);
-    container.appendChild(row);
-    container.scrollTop = container.scrollHeight;
+    return row;
 }
 
 // ----- SEND MESSAGE -----
@@ -329,6 +534,7 @@ document.addEventListener('DOMContentLoaded', () => {
 
     loadChats();
     setupForm();
+    setupInfiniteScroll();
     connectSocket();
 });
 
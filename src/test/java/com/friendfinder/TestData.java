@@ -0,0 +1,34 @@
+package com.friendfinder;
+
+import com.friendfinder.dto.MessageDTO;
+import com.friendfinder.model.User;
+import com.friendfinder.repository.UserRepository;
+import com.friendfinder.services.MessageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// users and messages for the tests that run against the application context
+@Component
+public class TestData {
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private MessageService messageService;
+
+    public User user(String email, String name) {
+        User user = new User();
+        user.setEmail(email);
+        user.setName(name);
+        return userRepo.save(user);
+    }
+
+    // sent the way a client sends it, through the message service
+    public MessageDTO send(Long chatId, User sender, String content) {
+        MessageDTO message = new MessageDTO();
+        message.setChatId(chatId);
+        message.setContent(content);
+        return messageService.saveMessage(message, sender.getUserId());
+    }
+}
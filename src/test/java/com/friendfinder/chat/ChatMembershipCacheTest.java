@@ -0,0 +1,73 @@
+package com.friendfinder.chat;
+
+import com.friendfinder.exceptions.ChatNotFoundException;
+import com.friendfinder.repository.ChatRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ChatMembershipCacheTest {
+
+    private ChatRepository chatRepository;
+    private ChatMembershipCache cache;
+
+    @BeforeEach
+    void setUp() {
+        chatRepository = mock(ChatRepository.class);
+        cache = new ChatMembershipCache(chatRepository, 2);
+        when(chatRepository.findParticipantIds(1L)).thenReturn(List.of(30L, 10L, 20L));
+        when(chatRepository.findParticipantIds(2L)).thenReturn(List.of(10L));
+        when(chatRepository.findParticipantIds(3L)).thenReturn(List.of(40L));
+    }
+
+    @Test
+    void loadsOnceThenAnswersFromTheCache() {
+        assertTrue(cache.isMember(1L, 20L));
+        assertFalse(cache.isMember(1L, 25L));
+        assertTrue(cache.isMember(1L, 30L));
+
+        verify(chatRepository, times(1)).findParticipantIds(1L);
+        assertEquals(1, cache.misses());
+        assertEquals(2, cache.hits());
+        assertArrayEquals(new long[]{10L, 20L, 30L}, cache.members(1L));
+    }
+
+    @Test
+    void invalidateReloadsTheChat() {
+        assertFalse(cache.isMember(2L, 50L));
+        when(chatRepository.findParticipantIds(2L)).thenReturn(List.of(10L, 50L));
+
+        cache.invalidate(2L);
+
+        assertTrue(cache.isMember(2L, 50L));
+        verify(chatRepository, times(2)).findParticipantIds(2L);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedChat() {
+        cache.members(1L);
+        cache.members(2L);
+        cache.members(1L);
+        cache.members(3L);
+
+        assertEquals(2, cache.size());
+        cache.members(1L);
+        verify(chatRepository, times(1)).findParticipantIds(1L);
+        cache.members(2L);
+        verify(chatRepository, times(2)).findParticipantIds(2L);
+    }
+
+    @Test
+    void missingChatThrowsAndIsNotCached() {
+        when(chatRepository.findParticipantIds(9L)).thenReturn(List.of());
+        when(chatRepository.existsById(9L)).thenReturn(false);
+
+        assertThrows(ChatNotFoundException.class, () -> cache.isMember(9L, 1L));
+        assertEquals(0, cache.size());
+        assertFalse(cache.isMember(1L, null));
+    }
+}
@@ -0,0 +1,75 @@
+package com.friendfinder.chat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private PendingMessage message(long sequence, String content) {
+        return new PendingMessage(7L, 3L, sequence, LocalDateTime.of(2024, 5, 1, 12, 0, 30), "CHAT", content);
+    }
+
+    @Test
+    void lineRoundTripKeepsTabsAndNewlines() {
+        PendingMessage message = message(4, "hej\tmed\ndig æøå");
+
+        assertEquals(message, PendingMessage.fromJournalLine(message.toJournalLine()));
+    }
+
+    @Test
+    void unreadableLinesAreSkipped() {
+        assertNull(PendingMessage.fromJournalLine(""));
+        assertNull(PendingMessage.fromJournalLine("7\t3\tx\t2024-05-01T12:00:30\tCHAT\taGVq"));
+        // cut off in the middle of the timestamp
+        assertNull(PendingMessage.fromJournalLine("7\t3\t4\t2024-05-01T1\tCHAT\taGVq"));
+        assertNull(PendingMessage.fromJournalLine("7\t3\t4\t2024-05-01T12:00:30\tCHAT\t!!"));
+    }
+
+    @Test
+    void entriesNotWrittenAreReadByTheNextRun() throws Exception {
+        try (MessageJournal journal = new MessageJournal(directory, false, 2)) {
+            long first = journal.append(message(1, "one"));
+            journal.append(message(2, "two"));
+            journal.append(message(3, "three"));
+            journal.written(first);
+        }
+
+        try (MessageJournal next = new MessageJournal(directory, false, 2)) {
+            assertEquals(List.of(1L, 2L, 3L), next.readPrevious().stream().map(PendingMessage::sequence).toList());
+            next.deletePrevious();
+            assertTrue(next.readPrevious().isEmpty());
+        }
+    }
+
+    @Test
+    void writtenSegmentsAreCleanedUp() throws Exception {
+        try (MessageJournal journal = new MessageJournal(directory, true, 2)) {
+            long first = journal.append(message(1, "one"));
+            long second = journal.append(message(2, "two"));
+            long third = journal.append(message(3, "three"));
+            assertEquals(first, second);
+            assertNotEquals(first, third);
+
+            journal.written(first);
+            journal.written(second);
+            journal.written(third);
+
+            // the full segment is gone and the current one is empty again
+            try (var files = Files.list(directory)) {
+                List<Path> left = files.toList();
+                assertEquals(1, left.size());
+                assertEquals(0, Files.size(left.get(0)));
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.friendfinder.chat;
+
+import com.friendfinder.TestData;
+import com.friendfinder.dto.MessageDTO;
+import com.friendfinder.model.ChatActivity;
+import com.friendfinder.model.User;
+import com.friendfinder.repository.ChatActivityRepository;
+import com.friendfinder.services.ChatSequenceService;
+import com.friendfinder.services.ChatService;
+import com.friendfinder.services.MessageService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@SpringBootTest
+class MessageWriteBehindTest {
+
+    @DynamicPropertySource
+    static void writeBehind(DynamicPropertyRegistry registry) throws Exception {
+        String journal = Files.createTempDirectory("message-journal").toString();
+        registry.add("friendfinder.chats.write-behind.enabled", () -> "true");
+        registry.add("friendfinder.chats.write-behind.batch-size", () -> "16");
+        registry.add("friendfinder.chats.write-behind.journal-dir", () -> journal);
+    }
+
+    @Autowired
+    private MessageWriteBehind writeBehind;
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private ChatSequenceService sequenceService;
+
+    @Autowired
+    private ChatActivityRepository activityRepo;
+
+    @Autowired
+    private TestData data;
+
+    @Test
+    void burstIsAcceptedAtOnceAndWrittenInChatOrder() throws Exception {
+        User me = data.user("wb-me@dtu.dk", "Me");
+        User alice = data.user("wb-alice@dtu.dk", "Alice");
+        User bob = data.user("wb-bob@dtu.dk", "Bob");
+        Long chatId = chatService.createGroupChat("Burst", me.getUserId(),
+                Set.of(alice.getUserId(), bob.getUserId())).getChatId();
+
+        ExecutorService senders = Executors.newFixedThreadPool(3);
+        List<Future<List<MessageDTO>>> sent = new ArrayList<>();
+        for (User sender : List.of(me, alice, bob)) {
+            sent.add(senders.submit(() -> {
+                List<MessageDTO> mine = new ArrayList<>();
+                for (int i = 0; i < 40; i++) {
+                    mine.add(data.send(chatId, sender, sender.getName() + " " + i));
+                }
+                return mine;
+            }));
+        }
+        senders.shutdown();
+        assertTrue(senders.awaitTermination(30, TimeUnit.SECONDS));
+        for (Future<List<MessageDTO>> future : sent) {
+            for (MessageDTO accepted : future.get()) {
+                assertNull(accepted.getMessageId());
+                assertNotNull(accepted.getSequence());
+            }
+        }
+
+        assertTrue(writeBehind.awaitWritten(10_000));
+        List<MessageDTO> stored = messageService.syncChat(chatId, me.getUserId(), 0, 0).getMessages();
+        assertEquals(120, stored.size());
+        for (int i = 0; i < stored.size(); i++) {
+            // sequence numbers without gaps, ids handed out in the same order
+            assertEquals(i + 1L, stored.get(i).getSequence());
+            if (i > 0) {
+                assertTrue(stored.get(i).getMessageId() > stored.get(i - 1).getMessageId());
+            }
+        }
+        ChatActivity activity = activityRepo.findById(chatId).orElseThrow();
+        assertEquals(120, activity.getMessageCount());
+        assertEquals(120, activity.getLastSequence());
+        assertEquals(stored.get(119).getMessageId(), activity.getLastMessageId());
+    }
+
+    @Test
+    void syncStopsBelowTheOldestChangeNotWrittenYet() {
+        User me = data.user("wb-sync@dtu.dk", "Me");
+        User alice = data.user("wb-sync-alice@dtu.dk", "Alice");
+        Long chatId = chatService.createDirectChat(me.getUserId(), alice.getUserId()).getChatId();
+
+        long first = sequenceService.allocate(chatId);
+        long second = sequenceService.allocate(chatId);
+        sequenceService.completed(chatId, second);
+        assertEquals(first - 1, sequenceService.currentSequence(chatId));
+
+        sequenceService.completed(chatId, first);
+        assertEquals(second, sequenceService.currentSequence(chatId));
+    }
+
+    @Test
+    void replayWritesOnlyWhatIsMissing() throws Exception {
+        User me = data.user("wb-replay@dtu.dk", "Me");
+        User alice = data.user("wb-replay-alice@dtu.dk", "Alice");
+        Long chatId = chatService.createDirectChat(me.getUserId(), alice.getUserId()).getChatId();
+        MessageDTO sent = data.send(chatId, alice, "before the crash");
+        assertTrue(writeBehind.awaitWritten(10_000));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<PendingMessage> journaled = List.of(
+                new PendingMessage(chatId, alice.getUserId(), sent.getSequence(), now, "CHAT", "before the crash"),
+                new PendingMessage(chatId, me.getUserId(), sent.getSequence() + 1, now, "CHAT", "lost in the crash"));
+
+        assertEquals(0, writeBehind.replay(journaled));
+        List<MessageDTO> stored = messageService.getChatMessages(chatId, me.getUserId(), null, null, 10).getMessages();
+        assertEquals(List.of("before the crash", "lost in the crash"),
+                stored.stream().map(MessageDTO::getContent).toList());
+    }
+}
@@ -0,0 +1,85 @@
+package com.friendfinder.config;
+
+import com.friendfinder.model.Interest;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Inserts the same number of rows once one statement at a time, which is all IDENTITY ids allowed,
+// and once with the configured JDBC batching that pooled sequence ids make possible
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class InsertBatchingBenchmarkTest {
+
+    private static final int ROWS = 5_000;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM interest_table WHERE name LIKE 'bench-%'");
+    }
+
+    // rows inserted per second, the number of statements prepared goes to statements[0]
+    private double insert(String run, Integer batchSize, long[] statements) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (batchSize != null) {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            }
+            for (int i = 0; i < ROWS; i++) {
+                Interest interest = new Interest();
+                interest.setName("bench-" + run + "-" + i);
+                entityManager.persist(interest);
+            }
+        });
+        long nanos = System.nanoTime() - start;
+        statements[0] = statistics.getPrepareStatementCount();
+        return ROWS / (nanos / 1e9);
+    }
+
+    @Test
+    void batchedInsertsNeedFarFewerStatements() {
+        long[] single = new long[1];
+        long[] batched = new long[1];
+        // warm up both paths first
+        insert("warmup-single", 1, single);
+        insert("warmup-batched", null, batched);
+
+        double singleRate = insert("single", 1, single);
+        double batchedRate = insert("batched", null, batched);
+
+        System.out.printf("Insert benchmark over %d rows: one at a time %.0f rows/s with %d statements, "
+                        + "batched %.0f rows/s with %d statements%n",
+                ROWS, singleRate, single[0], batchedRate, batched[0]);
+
+        assertTrue(single[0] >= ROWS, "single inserts prepared " + single[0] + " statements");
+        assertTrue(batched[0] * 10 < single[0], "batched inserts prepared " + batched[0] + " statements");
+    }
+}
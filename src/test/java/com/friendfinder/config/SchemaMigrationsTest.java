@@ -0,0 +1,102 @@
+package com.friendfinder.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaMigrationsTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private SchemaMigrations migrations;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:migrations-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        migrations = new SchemaMigrations(dataSource, "classpath:db/migration");
+    }
+
+    private int indexCount(String name) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES WHERE INDEX_NAME = UPPER(?)", Integer.class, name);
+    }
+
+    @Test
+    void emptyDatabaseGetsEveryVersionAndTheRequiredIndexes() throws Exception {
+        migrations.migrate();
+
+        assertEquals(8, migrations.currentVersion());
+        for (String index : SchemaMigrations.REQUIRED_INDEXES) {
+            assertTrue(indexCount(index) > 0, index);
+        }
+    }
+
+    @Test
+    void databaseCreatedByDdlAutoIsUpgradedInPlace() throws Exception {
+        new ResourceDatabasePopulator(new ClassPathResource("db/ddl-auto-schema.sql")).execute(dataSource);
+        jdbcTemplate.update("INSERT INTO user_table (user_id, email, name, password) VALUES (1, 'a@x.com', 'A', 'p')");
+        jdbcTemplate.update("INSERT INTO user_table (user_id, email, name, password) VALUES (2, 'b@x.com', 'B', 'p')");
+        // the same request sent twice before anything stopped it
+        jdbcTemplate.update("INSERT INTO friend_requests (id, sender_user_id, receiver_user_id) VALUES (1, 1, 2)");
+        jdbcTemplate.update("INSERT INTO friend_requests (id, sender_user_id, receiver_user_id) VALUES (2, 1, 2)");
+        // and answered by one the other way
+        jdbcTemplate.update("INSERT INTO friend_requests (id, sender_user_id, receiver_user_id) VALUES (3, 2, 1)");
+        // and a direct chat created twice for them
+        for (long chatId = 1; chatId <= 2; chatId++) {
+            jdbcTemplate.update("INSERT INTO chat (chat_id, chat_name, chat_type) VALUES (?, 'A & B', 'DIRECT')", chatId);
+            jdbcTemplate.update("INSERT INTO chat_participants (chat_id, user_id) VALUES (?, 1), (?, 2)", chatId, chatId);
+        }
+
+        migrations.migrate();
+
+        assertEquals(8, migrations.currentVersion());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friend_requests", Integer.class));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_table", Integer.class));
+        // the older chat is the pair's, the other keeps its messages without the key
+        assertEquals(1L, jdbcTemplate.queryForObject(
+                "SELECT chat_id FROM chat WHERE low_user_id = 1 AND high_user_id = 2", Long.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat WHERE low_user_id IS NULL", Integer.class));
+        // neither chat has messages, both get their activity row for the inbox
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_activity", Integer.class));
+        assertEquals(1L, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'MESSAGE' AND COLUMN_NAME = 'SEQ_NO'",
+                Long.class));
+    }
+
+    @Test
+    void appliedMigrationsAreNotRunAgain() throws Exception {
+        migrations.migrate();
+        jdbcTemplate.update("INSERT INTO interest_table (interest_id, name) VALUES (1, 'Kept')");
+
+        migrations.migrate();
+
+        assertEquals(8, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM schema_history", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM interest_table", Integer.class));
+    }
+
+    @Test
+    void migrationChangedAfterItWasAppliedStopsTheStartup() throws Exception {
+        migrations.migrate();
+        jdbcTemplate.update("UPDATE schema_history SET checksum = checksum + 1 WHERE version = 1");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, migrations::migrate);
+        assertTrue(e.getMessage().contains("V1__baseline.sql"));
+    }
+
+    @Test
+    void missingHotPathIndexStopsTheStartup() throws Exception {
+        migrations.migrate();
+        jdbcTemplate.execute("DROP INDEX idx_chat_participants_user");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, migrations::migrate);
+        assertTrue(e.getMessage().contains("idx_chat_participants_user"));
+    }
+}
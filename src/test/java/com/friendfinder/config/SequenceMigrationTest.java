@@ -0,0 +1,70 @@
+package com.friendfinder.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@SpringBootTest
+class SequenceMigrationTest {
+
+    // interest_seq is a pooled sequence
+    private static final int ALLOCATION_SIZE = 50;
+
+    @Autowired
+    private SequenceMigration sequenceMigration;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM interest_table WHERE name = 'Written before sequences'");
+        jdbcTemplate.update("DELETE FROM friend_requests WHERE id = 200000");
+    }
+
+    private long baseValue() {
+        return baseValue("INTEREST_SEQ");
+    }
+
+    private long baseValue(String sequence) {
+        return jdbcTemplate.queryForObject(
+                "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = ?", Long.class, sequence);
+    }
+
+    @Test
+    void sequenceBehindItsTableIsMovedPastTheLargestId() {
+        // a row written while the table still had an identity column
+        jdbcTemplate.update("INSERT INTO interest_table (interest_id, name) VALUES (100000, 'Written before sequences')");
+
+        sequenceMigration.migrate();
+
+        long base = baseValue();
+        assertTrue(base >= 100000 + ALLOCATION_SIZE);
+        // the next pooled block starts after the existing id
+        long next = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR interest_seq", Long.class);
+        assertTrue(next - ALLOCATION_SIZE + 1 > 100000);
+
+        // already in step, nothing moves
+        sequenceMigration.migrate();
+        assertEquals(next + ALLOCATION_SIZE, baseValue());
+    }
+
+    @Test
+    void sequenceThatHandsOutSingleIdsIsOnlyMovedOnce() {
+        jdbcTemplate.update("INSERT INTO friend_requests (id) VALUES (200000)");
+
+        sequenceMigration.migrate();
+        long base = baseValue("FRIEND_REQUEST_SEQ");
+        assertEquals(200001, base);
+
+        // a second start leaves it alone instead of skipping ids again
+        sequenceMigration.migrate();
+        assertEquals(base, baseValue("FRIEND_REQUEST_SEQ"));
+    }
+}
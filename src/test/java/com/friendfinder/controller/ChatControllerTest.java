@@ -1,11 +1,14 @@
 package com.friendfinder.controller;
 
 import com.friendfinder.dto.ChatDTO;
+import com.friendfinder.dto.ChatSyncDTO;
 import com.friendfinder.dto.MessageDTO;
+import com.friendfinder.dto.MessagePageDTO;
 import com.friendfinder.dto.request.CreateGroupChatRequest;
 import com.friendfinder.dto.request.EditMessageRequest;
 import com.friendfinder.dto.request.SendMessageRequest;
 import com.friendfinder.exceptions.*;
+import com.friendfinder.model.ChatReadCursor;
 import com.friendfinder.services.ChatService;
 import com.friendfinder.services.MessageService;
 import org.junit.jupiter.api.Test;
@@ -16,6 +19,7 @@ import org.springframework.http.MediaType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Set;
 
@@ -207,17 +211,44 @@ class ChatControllerTest {
 
     @Test
     void getChatMessages_returns200() throws Exception {
-        when(messageService.getChatMessages(5L, 1L))
-                .thenReturn(List.of(new MessageDTO()));
+        when(messageService.getChatMessages(5L, 1L, null, null, 50))
+                .thenReturn(new MessagePageDTO(List.of(), false, false, 7L, 2L));
 
         mockMvc.perform(get("/api/chats/5/messages")
                         .param("userId", "1"))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.messages").isArray())
+                .andExpect(jsonPath("$.sequence").value(7))
+                .andExpect(jsonPath("$.readSequence").value(2));
+    }
+
+    @Test
+    void getChatMessages_passesCursorAndLimit() throws Exception {
+        when(messageService.getChatMessages(5L, 1L, "abc", null, 20))
+                .thenReturn(new MessagePageDTO(List.of(), true, true, 7L, 2L));
+
+        mockMvc.perform(get("/api/chats/5/messages")
+                        .param("userId", "1")
+                        .param("before", "abc")
+                        .param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hasMoreBefore").value(true));
+    }
+
+    @Test
+    void getChatMessages_badCursor_returns400() throws Exception {
+        when(messageService.getChatMessages(5L, 1L, "bad", null, 50))
+                .thenThrow(new IllegalArgumentException("Invalid message cursor"));
+
+        mockMvc.perform(get("/api/chats/5/messages")
+                        .param("userId", "1")
+                        .param("before", "bad"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
     void getChatMessages_notFound_returns404() throws Exception {
-        when(messageService.getChatMessages(5L, 1L))
+        when(messageService.getChatMessages(5L, 1L, null, null, 50))
                 .thenThrow(new ChatNotFoundException("no chat"));
 
         mockMvc.perform(get("/api/chats/5/messages")
@@ -227,7 +258,7 @@ class ChatControllerTest {
 
     @Test
     void getChatMessages_forbidden_returns403() throws Exception {
-        when(messageService.getChatMessages(5L, 1L))
+        when(messageService.getChatMessages(5L, 1L, null, null, 50))
                 .thenThrow(new UnauthorizedMessageAccessException("forbidden"));
 
         mockMvc.perform(get("/api/chats/5/messages")
@@ -256,6 +287,30 @@ class ChatControllerTest {
                 .andExpect(status().isCreated());
     }
 
+    @Test
+    void sendMessageHttp_writeBehind_returns202() throws Exception {
+        String json = """
+        {
+          "content": "Hello",
+          "type": "CHAT"
+        }
+        """;
+
+        MessageDTO accepted = new MessageDTO();
+        accepted.setChatId(5L);
+        accepted.setSequence(12L);
+
+        when(messageService.saveMessage(any(MessageDTO.class), eq(1L))).thenReturn(accepted);
+        when(messageService.isWriteBehind()).thenReturn(true);
+
+        mockMvc.perform(post("/api/chats/5/messages")
+                        .param("userId", "1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.sequence").value(12));
+    }
+
     @Test
     void sendMessageHttp_notFound_returns404() throws Exception {
         String json = """
@@ -352,6 +407,67 @@ class ChatControllerTest {
                 .andExpect(status().isConflict());
     }
 
+    @Test
+    void syncChat_returnsDelta() throws Exception {
+        when(messageService.syncChat(5L, 1L, 10L, 3L))
+                .thenReturn(new ChatSyncDTO(5L, 12L, false, List.of(), List.of(7L), List.of(), 4L));
+
+        mockMvc.perform(get("/api/chats/5/sync")
+                        .param("userId", "1")
+                        .param("since", "10")
+                        .param("readSince", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sequence").value(12))
+                .andExpect(jsonPath("$.readSequence").value(4))
+                .andExpect(jsonPath("$.deletedMessageIds[0]").value(7));
+    }
+
+    @Test
+    void syncChat_notInChat_returns403() throws Exception {
+        when(messageService.syncChat(5L, 1L, 10L, 0L))
+                .thenThrow(new UserNotInChatException("not in chat"));
+
+        mockMvc.perform(get("/api/chats/5/sync")
+                        .param("userId", "1")
+                        .param("since", "10"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void markReadUpToHttp_returnsCursor() throws Exception {
+        ChatReadCursor cursor = new ChatReadCursor(5L, 1L);
+        cursor.advanceTo(100L, LocalDateTime.now());
+        when(messageService.markChatReadUpTo(5L, 1L, 120L)).thenReturn(cursor);
+
+        mockMvc.perform(post("/api/chats/5/read")
+                        .param("userId", "1")
+                        .param("upTo", "120"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastReadMessageId").value(100));
+    }
+
+    @Test
+    void markReadUpToHttp_notInChat_returns403() throws Exception {
+        when(messageService.markChatReadUpTo(5L, 1L, 120L))
+                .thenThrow(new UserNotInChatException("not in chat"));
+
+        mockMvc.perform(post("/api/chats/5/read")
+                        .param("userId", "1")
+                        .param("upTo", "120"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void markReadUpToHttp_noMessage_returns404() throws Exception {
+        when(messageService.markChatReadUpTo(5L, 1L, 120L))
+                .thenThrow(new MessageNotFoundException("none"));
+
+        mockMvc.perform(post("/api/chats/5/read")
+                        .param("userId", "1")
+                        .param("upTo", "120"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void editMessage_returns200() throws Exception {
         String json = """
@@ -17,6 +17,7 @@ import org.springframework.mock.web.MockHttpSession;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.List;
+import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -109,7 +110,7 @@ class UserControllerTest {
         when(userService.findAllUsers()).thenReturn(List.of(currentUser));
         when(friendService.getPendingRequestsAsSender(any(User.class))).thenReturn(List.of());
         when(friendService.getPendingRequestsAsReceiver(any(User.class))).thenReturn(List.of());
-        when(friendService.getFriends(any(User.class))).thenReturn(List.of());
+        when(friendService.friendIdsAmong(any(User.class), any())).thenReturn(Set.of());
 
         MockHttpSession session = new MockHttpSession();
         session.setAttribute("auth", new AuthenticatorService.Auth(currentUser));
@@ -117,7 +118,7 @@ class UserControllerTest {
         mockMvc.perform(get("/users/all").session(session))
                 .andExpect(status().isOk())
                 .andExpect(view().name("users"))
-                .andExpect(model().attributeExists("users", "currentUser", "sentRequestEmails", "friendEmails"));
+                .andExpect(model().attributeExists("users", "currentUser", "sentRequestEmails", "friendIds"));
     }
 
     // -------------------------------------------------------
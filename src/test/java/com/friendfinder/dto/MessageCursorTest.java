@@ -0,0 +1,28 @@
+package com.friendfinder.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageCursorTest {
+
+    @Test
+    void token_roundTripsTimestampAndId() {
+        MessageCursor cursor = new MessageCursor(LocalDateTime.of(2024, 5, 17, 12, 30, 15, 123456000), 42L);
+
+        assertEquals(cursor, MessageCursor.fromToken(cursor.toToken()));
+    }
+
+    @Test
+    void fromToken_missingTokenIsNull() {
+        assertNull(MessageCursor.fromToken(null));
+        assertNull(MessageCursor.fromToken(" "));
+    }
+
+    @Test
+    void fromToken_rejectsGarbage() {
+        assertThrows(IllegalArgumentException.class, () -> MessageCursor.fromToken("not-a-cursor"));
+    }
+}
@@ -0,0 +1,60 @@
+package com.friendfinder.dto.request;
+
+import org.junit.jupiter.api.Test;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReadUpToRequestTest {
+
+    private final Validator validator;
+
+    public ReadUpToRequestTest() {
+        ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
+        this.validator = factory.getValidator();
+    }
+
+    @Test
+    void validRequest_passesValidation() {
+        ReadUpToRequest request = new ReadUpToRequest(1L, 2L, 3L);
+
+        Set<ConstraintViolation<ReadUpToRequest>> violations = validator.validate(request);
+        assertTrue(violations.isEmpty());
+    }
+
+    @Test
+    void nullChatID_failsValidation() {
+        ReadUpToRequest request = new ReadUpToRequest(null, 2L, 3L);
+
+        Set<ConstraintViolation<ReadUpToRequest>> violations = validator.validate(request);
+        assertTrue(violations.stream()
+                .anyMatch(v -> v.getMessage().equals("Chat ID is required")));
+    }
+
+    @Test
+    void nullMessageID_failsValidation() {
+        ReadUpToRequest request = new ReadUpToRequest(1L, 2L, null);
+
+        Set<ConstraintViolation<ReadUpToRequest>> violations = validator.validate(request);
+        assertTrue(violations.stream()
+                .anyMatch(v -> v.getMessage().equals("Message ID is required")));
+    }
+
+    @Test
+    void gettersAndSetters_work() {
+        ReadUpToRequest request = new ReadUpToRequest();
+        request.setChatID(10L);
+        request.setUserID(20L);
+        request.setMessageID(30L);
+
+        assertEquals(10L, request.getChatID());
+        assertEquals(20L, request.getUserID());
+        assertEquals(30L, request.getMessageID());
+        assertTrue(request.toString().contains("30"));
+    }
+}
@@ -0,0 +1,277 @@
+package com.friendfinder.events;
+
+import com.friendfinder.model.Chat;
+import com.friendfinder.model.FriendRequest;
+import com.friendfinder.model.User;
+import com.friendfinder.repository.ChatRepository;
+import com.friendfinder.repository.FriendRequestRepository;
+import com.friendfinder.repository.OutboxEventRepository;
+import com.friendfinder.repository.UserRepository;
+import com.friendfinder.services.FriendService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs in its own context, and so its own database, because events are only handled once the
+// transaction that published them commits. One worker and a queue of one make a full queue easy to set up.
+@ActiveProfiles("test")
+@SpringBootTest(properties = {"spring.jpa.show-sql=false", "friendfinder.events.workers=1",
+        "friendfinder.events.queue-capacity=1"})
+class DomainEventBusTest {
+
+    // ids far above any real user, so the subscribers of the application ignore them
+    private static final AtomicLong IDS = new AtomicLong(1_000_000_000L);
+
+    @Autowired
+    private DomainEventBus eventBus;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FriendService friendService;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private FriendRequestRepository requestRepo;
+
+    @Autowired
+    private ChatRepository chatRepo;
+
+    @Autowired
+    private OutboxEventRepository outboxRepo;
+
+    private int outboxRows(long userId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events WHERE payload LIKE ?",
+                Integer.class, "%" + userId + "%");
+    }
+
+    private Queue<Long> recordRegistrations() {
+        Queue<Long> seen = new ConcurrentLinkedQueue<>();
+        eventBus.subscribe(UserRegistered.class, event -> seen.add(event.userId()));
+        return seen;
+    }
+
+    @Test
+    void committedEventIsHandledAndRemovedFromTheOutbox() throws Exception {
+        Queue<Long> seen = recordRegistrations();
+        long userId = IDS.incrementAndGet();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            eventBus.publish(new UserRegistered(userId));
+            // stored with the transaction, not handled before it commits
+            assertTrue(outboxRepo.findAll().stream().anyMatch(row -> row.getPayload().contains(String.valueOf(userId))));
+            assertFalse(seen.contains(userId));
+        });
+
+        assertTrue(eventBus.awaitHandled(5000));
+        assertTrue(seen.contains(userId));
+        assertEquals(0, outboxRows(userId));
+    }
+
+    @Test
+    void rolledBackEventIsNeitherStoredNorHandled() throws Exception {
+        Queue<Long> seen = recordRegistrations();
+        long userId = IDS.incrementAndGet();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            eventBus.publish(new UserRegistered(userId));
+            status.setRollbackOnly();
+        });
+
+        assertTrue(eventBus.awaitHandled(5000));
+        assertFalse(seen.contains(userId));
+        assertEquals(0, outboxRows(userId));
+    }
+
+    @Test
+    void failedEventStaysInTheOutboxAndOtherSubscribersStillRun() throws Exception {
+        long userId = IDS.incrementAndGet();
+        eventBus.subscribe(UserRegistered.class, event -> {
+            if (event.userId() == userId) {
+                throw new IllegalStateException("subscriber down");
+            }
+        });
+        Queue<Long> seen = recordRegistrations();
+
+        transactionTemplate.executeWithoutResult(status -> eventBus.publish(new UserRegistered(userId)));
+
+        assertTrue(eventBus.awaitHandled(5000));
+        assertTrue(seen.contains(userId));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT attempts FROM outbox_events WHERE payload LIKE ?",
+                Integer.class, "%" + userId + "%"));
+    }
+
+    @Test
+    void failedEventIsRetriedByThePollerOnceItsBackoffHasPassed() throws Exception {
+        long userId = IDS.incrementAndGet();
+        AtomicInteger calls = new AtomicInteger();
+        eventBus.subscribe(UserRegistered.class, event -> {
+            if (event.userId() == userId && calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("subscriber down");
+            }
+        });
+
+        transactionTemplate.executeWithoutResult(status -> eventBus.publish(new UserRegistered(userId)));
+        assertTrue(eventBus.awaitHandled(5000));
+        assertEquals(1, calls.get());
+        assertTrue(jdbcTemplate.queryForObject("SELECT next_attempt_at > CURRENT_TIMESTAMP FROM outbox_events "
+                + "WHERE payload LIKE ?", Boolean.class, "%" + userId + "%"));
+
+        // not due yet
+        eventBus.poll();
+        assertTrue(eventBus.awaitHandled(5000));
+        assertEquals(1, calls.get());
+
+        jdbcTemplate.update("UPDATE outbox_events SET next_attempt_at = DATEADD(SECOND, -1, CURRENT_TIMESTAMP) "
+                + "WHERE payload LIKE ?", "%" + userId + "%");
+        eventBus.poll();
+        assertTrue(eventBus.awaitHandled(5000));
+        assertEquals(2, calls.get());
+        assertEquals(0, outboxRows(userId));
+    }
+
+    @Test
+    void eventsLeftInTheOutboxAreHandledOnStart() throws Exception {
+        Queue<Long> seen = recordRegistrations();
+        long userId = IDS.incrementAndGet();
+        // as left behind by a crash between the commit and the handling
+        jdbcTemplate.update("INSERT INTO outbox_events (id, event_type, payload, created_at, attempts) "
+                        + "VALUES (NEXT VALUE FOR outbox_event_seq, 'UserRegistered', ?, CURRENT_TIMESTAMP, 0)",
+                "{\"userId\":" + userId + "}");
+
+        eventBus.start();
+
+        assertTrue(eventBus.awaitHandled(5000));
+        assertTrue(seen.contains(userId));
+        assertEquals(0, outboxRows(userId));
+    }
+
+    @Test
+    void eventOfAnUnknownTypeIsGivenUpOn() throws Exception {
+        jdbcTemplate.update("INSERT INTO outbox_events (id, event_type, payload, created_at, attempts) "
+                + "VALUES (NEXT VALUE FOR outbox_event_seq, 'NoSuchEvent', '{}', CURRENT_TIMESTAMP, 0)");
+
+        eventBus.poll();
+
+        assertTrue(eventBus.awaitHandled(5000));
+        assertEquals(DomainEventBus.MAX_ATTEMPTS, jdbcTemplate.queryForObject(
+                "SELECT attempts FROM outbox_events WHERE event_type = 'NoSuchEvent'", Integer.class));
+    }
+
+    @Test
+    void acceptedFriendshipGetsItsDirectChatAfterCommit() throws Exception {
+        User sender = new User();
+        sender.setEmail("outbox-sender@dtu.dk");
+        sender.setName("Sender");
+        User receiver = new User();
+        receiver.setEmail("outbox-receiver@dtu.dk");
+        receiver.setName("Receiver");
+        User savedSender = userRepo.save(sender);
+        User savedReceiver = userRepo.save(receiver);
+        FriendRequest request = requestRepo.save(new FriendRequest(savedSender, savedReceiver));
+
+        friendService.acceptRequest(request.getId());
+
+        assertTrue(eventBus.awaitHandled(5000));
+        List<Chat> chats = chatRepo.findByParticipantsUserId(savedSender.getUserId());
+        assertEquals(1, chats.size());
+        assertEquals("DIRECT", chats.get(0).getChatType());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events WHERE event_type = 'FriendshipAccepted'",
+                Integer.class));
+    }
+
+    @Test
+    void eventsThatDoNotFitTheQueueAreLeftToThePoller() throws Exception {
+        // keeps the only worker busy, the next event fills the queue
+        long blockerId = IDS.incrementAndGet();
+        CountDownLatch blocking = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        eventBus.subscribe(UserRegistered.class, event -> {
+            if (event.userId() == blockerId) {
+                blocking.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        transactionTemplate.executeWithoutResult(status -> eventBus.publish(new UserRegistered(blockerId)));
+        assertTrue(blocking.await(5, TimeUnit.SECONDS));
+        transactionTemplate.executeWithoutResult(status -> eventBus.publish(new UserRegistered(IDS.incrementAndGet())));
+        // the committing thread's transaction is over, whatever its handlers write there is lost
+        Queue<String> handledOn = new ConcurrentLinkedQueue<>();
+        eventBus.subscribe(FriendshipAccepted.class, event -> handledOn.add(Thread.currentThread().getName()));
+
+        User sender = new User();
+        sender.setEmail("outbox-full-sender@dtu.dk");
+        sender.setName("Sender");
+        User receiver = new User();
+        receiver.setEmail("outbox-full-receiver@dtu.dk");
+        receiver.setName("Receiver");
+        User savedSender = userRepo.save(sender);
+        User savedReceiver = userRepo.save(receiver);
+        friendService.acceptRequest(requestRepo.save(new FriendRequest(savedSender, savedReceiver)).getId());
+
+        release.countDown();
+        assertTrue(eventBus.awaitHandled(5000));
+        assertTrue(handledOn.isEmpty());
+        assertTrue(chatRepo.findByParticipantsUserId(savedSender.getUserId()).isEmpty());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events WHERE event_type = 'FriendshipAccepted'",
+                Integer.class));
+
+        jdbcTemplate.update("UPDATE outbox_events SET next_attempt_at = DATEADD(SECOND, -1, CURRENT_TIMESTAMP) "
+                + "WHERE event_type = 'FriendshipAccepted'");
+        eventBus.poll();
+
+        assertTrue(eventBus.awaitHandled(5000));
+        List<Chat> chats = chatRepo.findByParticipantsUserId(savedSender.getUserId());
+        assertEquals(1, chats.size());
+        assertEquals("DIRECT", chats.get(0).getChatType());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events WHERE event_type = 'FriendshipAccepted'",
+                Integer.class));
+        assertTrue(handledOn.stream().allMatch(thread -> thread.startsWith("domain-events-")));
+    }
+
+    @Test
+    void removedFriendshipIsPublishedAndHandledAfterCommit() throws Exception {
+        Queue<Long> removed = new ConcurrentLinkedQueue<>();
+        eventBus.subscribe(FriendshipRemoved.class, event -> removed.add(event.friendId()));
+        User user = new User();
+        user.setEmail("outbox-remover@dtu.dk");
+        user.setName("Remover");
+        User friend = new User();
+        friend.setEmail("outbox-removed@dtu.dk");
+        friend.setName("Removed");
+        User savedUser = userRepo.save(user);
+        User savedFriend = userRepo.save(friend);
+        friendService.acceptRequest(requestRepo.save(new FriendRequest(savedUser, savedFriend)).getId());
+        assertTrue(eventBus.awaitHandled(5000));
+
+        friendService.removeFriend(savedUser, savedFriend);
+
+        assertTrue(eventBus.awaitHandled(5000));
+        assertTrue(removed.contains(savedFriend.getUserId()));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events WHERE event_type = 'FriendshipRemoved'",
+                Integer.class));
+    }
+}
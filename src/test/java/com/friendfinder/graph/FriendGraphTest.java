@@ -0,0 +1,199 @@
+package com.friendfinder.graph;
+
+import com.friendfinder.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FriendGraphTest {
+
+    private UserRepository userRepository;
+    private FriendGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        // 1 - 2, 1 - 3, 2 - 4, 3 - 4, 3 - 5, stored in both directions like friends_relation
+        List<Object[]> pairs = new ArrayList<>();
+        long[][] edges = {{1, 2}, {1, 3}, {2, 4}, {3, 4}, {3, 5}};
+        for (long[] edge : edges) {
+            pairs.add(new Object[]{edge[0], edge[1]});
+            pairs.add(new Object[]{edge[1], edge[0]});
+        }
+        when(userRepository.findAllFriendIdPairs()).thenReturn(pairs);
+        graph = new FriendGraph(userRepository);
+    }
+
+    @Test
+    void loadsRowsOnFirstUse() {
+        assertArrayEquals(new long[]{2L, 3L}, graph.friendsOf(1L));
+        assertArrayEquals(new long[]{1L, 4L, 5L}, graph.friendsOf(3L));
+        assertEquals(5, graph.userCount());
+        assertEquals(5, graph.friendshipCount());
+        verify(userRepository, times(1)).findAllFriendIdPairs();
+    }
+
+    @Test
+    void countsMutualFriendsOfFriends() {
+        FriendGraph.Mutual mutual = graph.friendsOfFriends(1L);
+
+        assertEquals(2, mutual.size());
+        assertEquals(4L, mutual.userIds()[0]);
+        assertEquals(2, mutual.mutualFriends()[0]);
+        assertEquals(5L, mutual.userIds()[1]);
+        assertEquals(1, mutual.mutualFriends()[1]);
+        assertFalse(mutual.contains(2L));
+        assertFalse(mutual.contains(1L));
+    }
+
+    @Test
+    void connectAndDisconnectUpdateBothRows() {
+        graph.connect(1L, 4L);
+        assertTrue(graph.areFriends(4L, 1L));
+        assertFalse(graph.friendsOfFriends(1L).contains(4L));
+
+        graph.disconnect(4L, 1L);
+        assertFalse(graph.areFriends(1L, 4L));
+        assertTrue(graph.friendsOfFriends(1L).contains(4L));
+    }
+
+    @Test
+    void removingUserDropsTheirFriendships() {
+        graph.remove(3L);
+
+        assertArrayEquals(new long[]{2L}, graph.friendsOf(1L));
+        assertArrayEquals(new long[0], graph.friendsOf(5L));
+        assertEquals(0, graph.friendsOfFriends(5L).size());
+    }
+
+    @Test
+    void unknownUserHasNoFriends() {
+        assertArrayEquals(new long[0], graph.friendsOf(99L));
+        assertEquals(0, graph.friendsOfFriends(null).size());
+        assertFalse(graph.areFriends(1L, 99L));
+    }
+
+    @Test
+    void intersectsFriendLists() {
+        assertArrayEquals(new long[]{2L, 3L}, graph.mutualFriends(1L, 4L));
+        assertArrayEquals(new long[0], graph.mutualFriends(2L, 5L));
+    }
+
+    @Test
+    void findsShortestPathWithinDepth() {
+        assertArrayEquals(new long[]{1L, 3L, 5L}, graph.shortestPath(1L, 5L, 6));
+        assertArrayEquals(new long[]{5L, 3L, 1L}, graph.shortestPath(5L, 1L, 6));
+        assertEquals(4, graph.shortestPath(2L, 5L, 6).length);
+        assertArrayEquals(new long[]{4L}, graph.shortestPath(4L, 4L, 6));
+    }
+
+    @Test
+    void stopsAtMaxDepth() {
+        assertArrayEquals(new long[0], graph.shortestPath(2L, 5L, 2));
+        assertArrayEquals(new long[]{1L, 2L}, graph.shortestPath(1L, 2L, 1));
+
+        graph.connect(6L, 7L);
+        assertArrayEquals(new long[0], graph.shortestPath(1L, 7L, 6));
+    }
+
+    @Test
+    void changesAreUndoneWhenTheTransactionRollsBack() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            graph.connect(1L, 5L);
+            graph.disconnect(1L, 2L);
+            graph.remove(4L);
+            assertTrue(graph.areFriends(1L, 5L));
+            assertFalse(graph.areFriends(1L, 2L));
+            assertArrayEquals(new long[0], graph.friendsOf(4L));
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertFalse(graph.areFriends(1L, 5L));
+        assertTrue(graph.areFriends(1L, 2L));
+        assertArrayEquals(new long[]{2L, 3L}, graph.friendsOf(4L));
+        assertEquals(5, graph.friendshipCount());
+    }
+
+    @Test
+    void usersAddedSinceTheLoadAreWalkedToo() {
+        graph.connect(5L, 6L);
+        graph.connect(6L, 7L);
+
+        FriendGraph.Mutual mutual = graph.friendsOfFriends(7L);
+        assertEquals(1, mutual.size());
+        assertEquals(5L, mutual.userIds()[0]);
+        assertTrue(graph.friendsOfFriends(3L).contains(6L));
+        assertArrayEquals(new long[]{1L, 3L, 5L, 6L, 7L}, graph.shortestPath(1L, 7L, 6));
+        assertEquals(7, graph.userCount());
+        assertEquals(7, graph.friendshipCount());
+    }
+
+    @Test
+    void matchesPlainSetsAcrossMerges() {
+        Map<Long, TreeSet<Long>> expected = new TreeMap<>();
+        long[][] edges = {{1, 2}, {1, 3}, {2, 4}, {3, 4}, {3, 5}};
+        for (long[] edge : edges) {
+            expected.computeIfAbsent(edge[0], id -> new TreeSet<>()).add(edge[1]);
+            expected.computeIfAbsent(edge[1], id -> new TreeSet<>()).add(edge[0]);
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < FriendGraph.MERGE_THRESHOLD * 5; i++) {
+            long a = 1 + random.nextInt(3000);
+            long b = 1 + random.nextInt(3000);
+            if (random.nextInt(3) == 0) {
+                graph.disconnect(a, b);
+                expected.getOrDefault(a, new TreeSet<>()).remove(b);
+                expected.getOrDefault(b, new TreeSet<>()).remove(a);
+            } else if (a != b) {
+                graph.connect(a, b);
+                expected.computeIfAbsent(a, id -> new TreeSet<>()).add(b);
+                expected.computeIfAbsent(b, id -> new TreeSet<>()).add(a);
+            }
+        }
+
+        int users = 0;
+        int rows = 0;
+        for (long id = 1; id <= 3000; id++) {
+            TreeSet<Long> friends = expected.getOrDefault(id, new TreeSet<>());
+            assertArrayEquals(friends.stream().mapToLong(Long::longValue).toArray(), graph.friendsOf(id));
+            users += friends.isEmpty() ? 0 : 1;
+            rows += friends.size();
+
+            Map<Long, Integer> twoHops = new TreeMap<>();
+            for (long friend : friends) {
+                for (long candidate : expected.get(friend)) {
+                    if (candidate != id && !friends.contains(candidate)) {
+                        twoHops.merge(candidate, 1, Integer::sum);
+                    }
+                }
+            }
+            FriendGraph.Mutual mutual = graph.friendsOfFriends(id);
+            assertEquals(twoHops.size(), mutual.size());
+            int i = 0;
+            for (Map.Entry<Long, Integer> entry : twoHops.entrySet()) {
+                assertEquals(entry.getKey(), mutual.userIds()[i]);
+                assertEquals(entry.getValue(), mutual.mutualFriends()[i]);
+                i++;
+            }
+        }
+        assertEquals(users, graph.userCount());
+        assertEquals(rows / 2, graph.friendshipCount());
+    }
+}
@@ -0,0 +1,176 @@
+package com.friendfinder.graph;
+
+import com.friendfinder.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FriendshipSetTest {
+
+    private UserRepository userRepository;
+    private FriendshipSet friendships;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        // 1 - 2 and 2 - 3, stored in both directions like friends_relation
+        List<Object[]> pairs = new ArrayList<>();
+        long[][] edges = {{1, 2}, {2, 3}};
+        for (long[] edge : edges) {
+            pairs.add(new Object[]{edge[0], edge[1]});
+            pairs.add(new Object[]{edge[1], edge[0]});
+        }
+        when(userRepository.findAllFriendIdPairs()).thenReturn(pairs);
+        friendships = new FriendshipSet(userRepository);
+        friendships.load();
+    }
+
+    @Test
+    void loadsEveryFriendshipOnceWhicheverWayItIsStored() {
+        assertTrue(friendships.areFriends(1L, 2L));
+        assertTrue(friendships.areFriends(2L, 1L));
+        assertTrue(friendships.areFriends(3L, 2L));
+        assertFalse(friendships.areFriends(1L, 3L));
+        assertEquals(2, friendships.size());
+    }
+
+    @Test
+    void connectAndDisconnectWorkInBothDirections() {
+        friendships.connect(3L, 1L);
+        assertTrue(friendships.areFriends(1L, 3L));
+
+        friendships.disconnect(2L, 1L);
+        assertFalse(friendships.areFriends(1L, 2L));
+        assertTrue(friendships.areFriends(2L, 3L));
+        assertEquals(2, friendships.size());
+    }
+
+    @Test
+    void userIsNeverTheirOwnFriend() {
+        friendships.connect(4L, 4L);
+
+        assertFalse(friendships.areFriends(4L, 4L));
+        assertFalse(friendships.areFriends(null, 1L));
+        assertEquals(2, friendships.size());
+    }
+
+    @Test
+    void removingAUserDropsAllTheirFriendships() {
+        friendships.remove(2L, List.of(1L, 3L));
+
+        assertFalse(friendships.areFriends(1L, 2L));
+        assertFalse(friendships.areFriends(2L, 3L));
+        assertEquals(0, friendships.size());
+    }
+
+    @Test
+    void packsBothOrdersToTheSameKey() {
+        assertEquals(FriendshipSet.pack(7, 9), FriendshipSet.pack(9, 7));
+        assertNotEquals(FriendshipSet.pack(7, 9), FriendshipSet.pack(7, 10));
+        assertThrows(IllegalArgumentException.class, () -> FriendshipSet.pack(1, FriendshipSet.MAX_USER_ID + 1));
+        assertFalse(friendships.areFriends(1L, FriendshipSet.MAX_USER_ID + 1));
+    }
+
+    @Test
+    void agreesWithAHashSetThroughGrowthAndRemovals() {
+        Random random = new Random(42);
+        Set<Long> expected = new HashSet<>();
+        expected.add(FriendshipSet.pack(1, 2));
+        expected.add(FriendshipSet.pack(2, 3));
+        for (int i = 0; i < 50_000; i++) {
+            long a = 1 + random.nextInt(400);
+            long b = 1 + random.nextInt(400);
+            if (a == b) {
+                continue;
+            }
+            if (random.nextInt(3) == 0) {
+                friendships.disconnect(a, b);
+                expected.remove(FriendshipSet.pack(a, b));
+            } else {
+                friendships.connect(a, b);
+                expected.add(FriendshipSet.pack(a, b));
+            }
+        }
+        assertEquals(expected.size(), friendships.size());
+        for (long a = 1; a <= 400; a++) {
+            for (long b = a + 1; b <= 400; b++) {
+                assertEquals(expected.contains(FriendshipSet.pack(a, b)), friendships.areFriends(a, b), a + " - " + b);
+            }
+        }
+    }
+
+    @Test
+    void changesAreUndoneWhenTheTransactionRollsBack() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            friendships.connect(1L, 3L);
+            friendships.disconnect(1L, 2L);
+            assertTrue(friendships.areFriends(1L, 3L));
+            assertFalse(friendships.areFriends(1L, 2L));
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertFalse(friendships.areFriends(1L, 3L));
+        assertTrue(friendships.areFriends(1L, 2L));
+    }
+
+    @Test
+    void readersSeeStableFriendshipsWhileOthersChange() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                long base = 1000 + t * 10_000;
+                writers.add(pool.submit(() -> {
+                    for (long id = base; id < base + 5_000; id++) {
+                        friendships.connect(id, id + 1);
+                        if (id % 2 == 0) {
+                            friendships.disconnect(id, id + 1);
+                        }
+                    }
+                }));
+            }
+            List<Future<Boolean>> readers = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                readers.add(pool.submit(() -> {
+                    for (int i = 0; i < 200_000; i++) {
+                        if (!friendships.areFriends(1L, 2L) || !friendships.areFriends(3L, 2L)
+                                || friendships.areFriends(1L, 3L)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+            for (Future<Boolean> reader : readers) {
+                assertTrue(reader.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        // 2 loaded, then every odd id kept its friendship with the next one
+        assertEquals(2 + 2 * 2_500, friendships.size());
+    }
+}
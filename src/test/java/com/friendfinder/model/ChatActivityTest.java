@@ -0,0 +1,89 @@
+package com.friendfinder.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ChatActivityTest {
+
+    private Message message(Long id, String content, LocalDateTime at) {
+        Message message = mock(Message.class);
+        when(message.getMessageId()).thenReturn(id);
+        when(message.getContent()).thenReturn(content);
+        when(message.getTimestamp()).thenReturn(at);
+        return message;
+    }
+
+    private ChatActivity activity(LocalDateTime createdAt) {
+        Chat chat = mock(Chat.class);
+        when(chat.getChatId()).thenReturn(7L);
+        when(chat.getCreatedAt()).thenReturn(createdAt);
+        return new ChatActivity(chat);
+    }
+
+    @Test
+    void newActivity_startsAtChatCreation() {
+        LocalDateTime created = LocalDateTime.now().minusDays(1);
+        ChatActivity activity = activity(created);
+
+        assertEquals(7L, activity.getChatId());
+        assertEquals(created, activity.getLastActivityAt());
+        assertEquals(0, activity.getMessageCount());
+        assertNull(activity.getLastMessageId());
+    }
+
+    @Test
+    void recordMessage_keepsNewestMessageAndCountsAll() {
+        LocalDateTime now = LocalDateTime.now();
+        ChatActivity activity = activity(now.minusDays(1));
+
+        activity.recordMessage(message(1L, "first", now.minusMinutes(5)));
+        activity.recordMessage(message(3L, "newest", now));
+        activity.recordMessage(message(2L, "late arrival", now.minusMinutes(1)));
+
+        assertEquals(3, activity.getMessageCount());
+        assertEquals(3L, activity.getLastMessageId());
+        assertEquals("newest", activity.getLastMessagePreview());
+        assertEquals(now, activity.getLastActivityAt());
+    }
+
+    @Test
+    void showMessage_null_clearsPreviewButKeepsActivityTime() {
+        LocalDateTime now = LocalDateTime.now();
+        ChatActivity activity = activity(now.minusDays(1));
+        activity.recordMessage(message(1L, "only", now));
+
+        activity.messageRemoved();
+        activity.showMessage(null);
+
+        assertEquals(0, activity.getMessageCount());
+        assertNull(activity.getLastMessageId());
+        assertNull(activity.getLastMessagePreview());
+        assertEquals(now, activity.getLastActivityAt());
+    }
+
+    @Test
+    void nextSequence_countsUpFromZero() {
+        ChatActivity activity = activity(LocalDateTime.now());
+
+        assertEquals(0, activity.getLastSequence());
+        assertEquals(1, activity.nextSequence());
+        assertEquals(2, activity.nextSequence());
+        assertEquals(2, activity.getLastSequence());
+    }
+
+    @Test
+    void preview_truncatesLongContent() {
+        String longContent = "x".repeat(ChatActivity.PREVIEW_LENGTH + 50);
+
+        String preview = ChatActivity.preview(longContent);
+
+        assertEquals(ChatActivity.PREVIEW_LENGTH, preview.length());
+        assertTrue(preview.endsWith("…"));
+        assertEquals("short", ChatActivity.preview("short"));
+        assertNull(ChatActivity.preview(null));
+    }
+}
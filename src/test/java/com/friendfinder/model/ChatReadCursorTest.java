@@ -0,0 +1,38 @@
+package com.friendfinder.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChatReadCursorTest {
+
+    @Test
+    void newCursor_hasReadNothing() {
+        ChatReadCursor cursor = new ChatReadCursor(1L, 2L);
+
+        assertEquals(1L, cursor.getChatId());
+        assertEquals(2L, cursor.getUserId());
+        assertEquals(0L, cursor.getLastReadMessageId());
+        assertFalse(cursor.hasRead(1L));
+    }
+
+    @Test
+    void advanceTo_onlyMovesForward() {
+        ChatReadCursor cursor = new ChatReadCursor(1L, 2L);
+        LocalDateTime first = LocalDateTime.now().minusMinutes(1);
+        LocalDateTime later = LocalDateTime.now();
+
+        assertTrue(cursor.advanceTo(10L, first));
+        assertFalse(cursor.advanceTo(5L, later));
+        assertFalse(cursor.advanceTo(10L, later));
+
+        assertEquals(10L, cursor.getLastReadMessageId());
+        assertEquals(first, cursor.getReadAt());
+        assertTrue(cursor.hasRead(5L));
+        assertTrue(cursor.hasRead(10L));
+        assertFalse(cursor.hasRead(11L));
+        assertFalse(cursor.hasRead(null));
+    }
+}
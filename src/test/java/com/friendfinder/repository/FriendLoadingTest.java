@@ -0,0 +1,151 @@
+package com.friendfinder.repository;
+
+import com.friendfinder.TestData;
+import com.friendfinder.dto.MessageDTO;
+import com.friendfinder.dto.UserSummaryDTO;
+import com.friendfinder.graph.FriendshipSet;
+import com.friendfinder.model.Message;
+import com.friendfinder.model.User;
+import com.friendfinder.services.ChatService;
+import com.friendfinder.services.FriendService;
+import com.friendfinder.services.MessageService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// counts what Hibernate actually loads, so an eager friend list cannot creep back in unnoticed
+@ActiveProfiles("test")
+@SpringBootTest
+@Transactional  // roll back after each test
+class FriendLoadingTest {
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private MessageRepository messageRepo;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private FriendService friendService;
+
+    @Autowired
+    private FriendshipSet friendships;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TestData data;
+
+    private Statistics statistics;
+    private User sender;
+    private User alice;
+    private User bob;
+    private User carol;
+
+    private void befriend(User a, User b) {
+        a.addFriend(b);
+        b.addFriend(a);
+        userRepo.save(a);
+        userRepo.save(b);
+        friendships.connect(a.getUserId(), b.getUserId());
+    }
+
+    @BeforeEach
+    void setUp() {
+        sender = data.user("sender@dtu.dk", "Sender");
+        alice = data.user("alice@dtu.dk", "Alice");
+        bob = data.user("bob@dtu.dk", "Bob");
+        carol = data.user("carol@dtu.dk", "Carol");
+        befriend(sender, bob);
+        befriend(sender, alice);
+        // friends of friends, which an eager friend list would load as well
+        befriend(alice, carol);
+        befriend(bob, carol);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    // start from an empty persistence context with fresh counters
+    private void startCounting() {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    void loadingAMessageDoesNotLoadTheSendersFriends() {
+        Long chatId = chatService.createDirectChat(sender.getUserId(), alice.getUserId()).getChatId();
+        MessageDTO sent = new MessageDTO();
+        sent.setChatId(chatId);
+        sent.setContent("hello");
+        Long messageId = messageService.saveMessage(sent, sender.getUserId()).getMessageId();
+        startCounting();
+
+        Message message = messageRepo.findById(messageId).orElseThrow();
+
+        assertEquals("Sender", message.getSender().getName());
+        assertFalse(Hibernate.isInitialized(message.getSender().getFriends()));
+        assertEquals(0, statistics.getCollectionLoadCount());
+        // the message and its sender, nothing from the sender's friend graph
+        assertEquals(2, statistics.getEntityLoadCount());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void loadingAUserDoesNotLoadTheirFriends() {
+        startCounting();
+
+        User found = userRepo.findByEmail("sender@dtu.dk");
+
+        assertFalse(Hibernate.isInitialized(found.getFriends()));
+        assertEquals(1, statistics.getEntityLoadCount());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void friendListIsOneQueryAndNoEntities() {
+        startCounting();
+
+        List<UserSummaryDTO> friends = friendService.getFriends(sender);
+
+        assertEquals(List.of("Alice", "Bob"), friends.stream().map(UserSummaryDTO::getName).toList());
+        assertEquals("alice@dtu.dk", friends.get(0).getEmail());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void friendshipChecksDoNotQuery() {
+        startCounting();
+
+        assertTrue(friendService.areFriends(sender, bob));
+        assertFalse(friendService.areFriends(alice, bob));
+        assertEquals(Set.of(alice.getUserId()), friendService.friendIdsAmong(sender, List.of(alice, carol)));
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+}
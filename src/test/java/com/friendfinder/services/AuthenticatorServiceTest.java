@@ -1,9 +1,11 @@
 package com.friendfinder.services;
 
+import com.friendfinder.events.DomainEventBus;
 import com.friendfinder.exceptions.InvalidEmailException;
 import com.friendfinder.exceptions.InvalidPasswordException;
 import com.friendfinder.model.User;
 import com.friendfinder.repository.UserRepository;
+import com.friendfinder.suggestion.InterestIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -31,6 +33,14 @@ public class AuthenticatorServiceTest {
         var encField = AuthenticatorService.class.getDeclaredField("passwordEncoder");
         encField.setAccessible(true);
         encField.set(service, passwordEncoder);
+
+        var indexField = AuthenticatorService.class.getDeclaredField("interestIndex");
+        indexField.setAccessible(true);
+        indexField.set(service, mock(InterestIndex.class));
+
+        var busField = AuthenticatorService.class.getDeclaredField("eventBus");
+        busField.setAccessible(true);
+        busField.set(service, mock(DomainEventBus.class));
     }
 
     @Test
@@ -0,0 +1,258 @@
+package com.friendfinder.services;
+
+import com.friendfinder.TestData;
+import com.friendfinder.dto.ChatDTO;
+import com.friendfinder.dto.MessageDTO;
+import com.friendfinder.exceptions.ChatNotFoundException;
+import com.friendfinder.exceptions.MessageNotFoundException;
+import com.friendfinder.exceptions.UserNotInChatException;
+import com.friendfinder.model.ChatActivity;
+import com.friendfinder.model.Message;
+import com.friendfinder.model.MessageReadReceipt;
+import com.friendfinder.model.User;
+import com.friendfinder.repository.ChatActivityRepository;
+import com.friendfinder.repository.ChatRepository;
+import com.friendfinder.repository.MessageReadReceiptRepository;
+import com.friendfinder.repository.MessageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@SpringBootTest
+@Transactional  // roll back after each test
+class ChatInboxTest {
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private ChatActivityService activityService;
+
+    @Autowired
+    private ChatActivityRepository activityRepo;
+
+    @Autowired
+    private ChatRepository chatRepo;
+
+    @Autowired
+    private MessageRepository messageRepo;
+
+    @Autowired
+    private MessageReadReceiptRepository receiptRepo;
+
+    @Autowired
+    private ChatReadCursorService cursorService;
+
+    @Autowired
+    private TestData data;
+
+    private Message message(Long chatId, User sender, String content, LocalDateTime at) {
+        Message message = new Message(chatRepo.findById(chatId).orElseThrow(), sender, content);
+        message.setTimestamp(at);
+        Message saved = messageRepo.save(message);
+        activityService.messageSaved(saved);
+        return saved;
+    }
+
+    @Test
+    void inboxHasParticipantsLastMessageAndUnreadCount() {
+        User me = data.user("me@dtu.dk", "Me");
+        User alice = data.user("alice@dtu.dk", "Alice");
+        User bob = data.user("bob@dtu.dk", "Bob");
+        Long direct = chatService.createDirectChat(me.getUserId(), alice.getUserId()).getChatId();
+        Long group = chatService.createGroupChat("Study group", me.getUserId(),
+                Set.of(alice.getUserId(), bob.getUserId())).getChatId();
+        Long quiet = chatService.createDirectChat(alice.getUserId(), bob.getUserId()).getChatId();
+
+        LocalDateTime start = LocalDateTime.now().minusHours(1);
+        Message first = message(direct, alice, "first", start);
+        message(direct, me, "reply", start.plusMinutes(1));
+        message(direct, alice, "latest", start.plusMinutes(2));
+        message(group, bob, "group hello", start);
+        message(quiet, bob, "not mine", start);
+        cursorService.markRead(direct, me.getUserId(), first.getMessageId());
+
+        List<ChatDTO> inbox = chatService.getUserChats(me.getUserId());
+
+        assertEquals(2, inbox.size());
+        ChatDTO directChat = inbox.stream().filter(c -> c.getChatId().equals(direct)).findFirst().orElseThrow();
+        ChatDTO groupChat = inbox.stream().filter(c -> c.getChatId().equals(group)).findFirst().orElseThrow();
+
+        assertEquals("latest", directChat.getLastMessage().getContent());
+        assertEquals("Alice", directChat.getLastMessage().getSenderName());
+        assertEquals(1, directChat.getUnreadCount());
+        assertEquals(2, directChat.getParticipantCount());
+
+        assertEquals("group hello", groupChat.getLastMessage().getContent());
+        assertEquals(1, groupChat.getUnreadCount());
+        assertEquals(3, groupChat.getParticipantCount());
+        assertTrue(groupChat.getParticipantUsernames().containsAll(List.of("Me", "Alice", "Bob")));
+    }
+
+    @Test
+    void inboxIsOrderedByMostRecentActivity() {
+        User me = data.user("me@dtu.dk", "Me");
+        User alice = data.user("alice@dtu.dk", "Alice");
+        User bob = data.user("bob@dtu.dk", "Bob");
+        Long withAlice = chatService.createDirectChat(me.getUserId(), alice.getUserId()).getChatId();
+        Long withBob = chatService.createDirectChat(me.getUserId(), bob.getUserId()).getChatId();
+        Long empty = chatService.createGroupChat("Empty", me.getUserId(), Set.of(alice.getUserId())).getChatId();
+
+        LocalDateTime start = LocalDateTime.now().minusHours(1);
+        message(withBob, bob, "older", start);
+        message(withAlice, alice, "newer", start.plusMinutes(5));
+
+        List<Long> order = chatService.getUserChats(me.getUserId()).stream().map(ChatDTO::getChatId).toList();
+        // the empty chat was created just now, after both messages were sent
+        assertEquals(List.of(empty, withAlice, withBob), order);
+
+        message(withBob, bob, "newest", LocalDateTime.now().plusMinutes(1));
+        order = chatService.getUserChats(me.getUserId()).stream().map(ChatDTO::getChatId).toList();
+        assertEquals(List.of(withBob, empty, withAlice), order);
+    }
+
+    @Test
+    void messageServiceKeepsActivityInStepWithEditsAndDeletes() {
+        User me = data.user("me@dtu.dk", "Me");
+        User alice = data.user("alice@dtu.dk", "Alice");
+        Long chatId = chatService.createDirectChat(me.getUserId(), alice.getUserId()).getChatId();
+
+        MessageDTO first = data.send(chatId, alice, "hello");
+        MessageDTO second = data.send(chatId, me, "hi there");
+
+        ChatActivity activity = activityRepo.findById(chatId).orElseThrow();
+        assertEquals(2, activity.getMessageCount());
+        assertEquals(second.getMessageId(), activity.getLastMessageId());
+        assertEquals(me.getUserId(), activity.getLastSenderId());
+
+        messageService.editMessage(second.getMessageId(), me.getUserId(), "hi again");
+        assertEquals("hi again", activityRepo.findById(chatId).orElseThrow().getLastMessagePreview());
+
+        messageService.deleteMessage(second.getMessageId(), me.getUserId());
+        activity = activityRepo.findById(chatId).orElseThrow();
+        assertEquals(1, activity.getMessageCount());
+        assertEquals(first.getMessageId(), activity.getLastMessageId());
+        assertEquals("hello", activity.getLastMessagePreview());
+
+        ChatDTO inboxChat = chatService.getUserChats(me.getUserId()).get(0);
+        assertEquals("hello", inboxChat.getLastMessage().getContent());
+    }
+
+    @Test
+    void backfillCreatesActivityForChatsWrittenBeforeIt() {
+        User me = data.user("me@dtu.dk", "Me");
+        User alice = data.user("alice@dtu.dk", "Alice");
+        Long chatId = chatService.createDirectChat(me.getUserId(), alice.getUserId()).getChatId();
+        // chats of that time came without an activity row
+        activityRepo.deleteById(chatId);
+        LocalDateTime start = LocalDateTime.now().minusHours(1);
+        for (String content : List.of("one", "two", "three")) {
+            Message message = new Message(chatRepo.findById(chatId).orElseThrow(), alice, content);
+            message.setTimestamp(start);
+            messageRepo.save(message);
+            start = start.plusMinutes(1);
+        }
+
+        assertEquals(1, activityService.backfill());
+
+        ChatActivity activity = activityRepo.findById(chatId).orElseThrow();
+        assertEquals(3, activity.getMessageCount());
+        assertEquals("three", activity.getLastMessagePreview());
+        assertEquals(0, activityService.backfill());
+    }
+
+    @Test
+    void readCursorDrivesUnreadCountsAndSeenBy() {
+        User me = data.user("me@dtu.dk", "Me");
+        User alice = data.user("alice@dtu.dk", "Alice");
+        User bob = data.user("bob@dtu.dk", "Bob");
+        Long group = chatService.createGroupChat("Study group", me.getUserId(),
+                Set.of(alice.getUserId(), bob.getUserId())).getChatId();
+
+        MessageDTO one = data.send(group, alice, "one");
+        MessageDTO two = data.send(group, alice, "two");
+        MessageDTO three = data.send(group, bob, "three");
+        assertEquals(3, messageService.getUnreadMessageCount(group, me.getUserId()));
+
+        messageService.markMessageAsRead(two.getMessageId(), me.getUserId());
+        // marking an older message does not move the cursor back
+        messageService.markMessageAsRead(one.getMessageId(), me.getUserId());
+
+        assertEquals(1, messageService.getUnreadMessageCount(group, me.getUserId()));
+        assertEquals(List.of(three.getMessageId()), messageService.getUnreadMessages(group, me.getUserId())
+                .stream().map(MessageDTO::getMessageId).toList());
+        assertEquals(List.of("Me"), messageService.getMessageReadRecepits(one.getMessageId(), me.getUserId())
+                .stream().map(r -> r.getUsername()).toList());
+        assertTrue(messageService.getMessageReadRecepits(three.getMessageId(), me.getUserId()).isEmpty());
+
+        messageService.markMessageAsRead(three.getMessageId(), alice.getUserId());
+        assertEquals(0, messageService.getUnreadMessageCount(group, alice.getUserId()));
+        // alice sent two herself, so only me counts as a reader
+        assertEquals(1, messageService.getMessageById(two.getMessageId(), me.getUserId()).getReadCount());
+        assertEquals(1, messageService.getMessageById(three.getMessageId(), me.getUserId()).getReadCount());
+
+        ChatDTO inboxChat = chatService.getUserChats(me.getUserId()).get(0);
+        assertEquals(1, inboxChat.getUnreadCount());
+        assertEquals(1, inboxChat.getLastMessage().getReadCount());
+    }
+
+    @Test
+    void backfillTurnsOldReceiptsIntoCursors() {
+        User me = data.user("me@dtu.dk", "Me");
+        User alice = data.user("alice@dtu.dk", "Alice");
+        Long chatId = chatService.createDirectChat(me.getUserId(), alice.getUserId()).getChatId();
+        // chats of that time came without an activity row
+        activityRepo.deleteById(chatId);
+        LocalDateTime start = LocalDateTime.now().minusHours(1);
+        Message first = message(chatId, alice, "first", start);
+        Message second = message(chatId, alice, "second", start.plusMinutes(1));
+        message(chatId, alice, "third", start.plusMinutes(2));
+        receiptRepo.save(new MessageReadReceipt(first, me, start.plusMinutes(3)));
+        receiptRepo.save(new MessageReadReceipt(second, me, start.plusMinutes(4)));
+
+        assertEquals(1, cursorService.backfill());
+
+        assertEquals(second.getMessageId(), cursorService.lastReadMessageId(chatId, me.getUserId()));
+        assertEquals(1, cursorService.unreadCount(chatId, me.getUserId()));
+        assertEquals(0, cursorService.backfill());
+    }
+
+    @Test
+    void markChatReadUpTo_readsEverythingUpToTheMessage() {
+        User me = data.user("me@dtu.dk", "Me");
+        User alice = data.user("alice@dtu.dk", "Alice");
+        User bob = data.user("bob@dtu.dk", "Bob");
+        Long chatId = chatService.createDirectChat(me.getUserId(), alice.getUserId()).getChatId();
+        data.send(chatId, alice, "one");
+        MessageDTO two = data.send(chatId, alice, "two");
+        MessageDTO three = data.send(chatId, alice, "three");
+
+        assertEquals(two.getMessageId(),
+                messageService.markChatReadUpTo(chatId, me.getUserId(), two.getMessageId()).getLastReadMessageId());
+        assertEquals(1, messageService.getUnreadMessageCount(chatId, me.getUserId()));
+
+        // an id past the end of the chat is pinned to the newest message
+        assertEquals(three.getMessageId(),
+                messageService.markChatReadUpTo(chatId, me.getUserId(), three.getMessageId() + 1000).getLastReadMessageId());
+        assertEquals(0, messageService.getUnreadMessageCount(chatId, me.getUserId()));
+
+        assertThrows(UserNotInChatException.class,
+                () -> messageService.markChatReadUpTo(chatId, bob.getUserId(), three.getMessageId()));
+        assertThrows(ChatNotFoundException.class,
+                () -> messageService.markChatReadUpTo(-1L, me.getUserId(), three.getMessageId()));
+        assertThrows(MessageNotFoundException.class,
+                () -> messageService.markChatReadUpTo(chatId, me.getUserId(), 0L));
+    }
+}
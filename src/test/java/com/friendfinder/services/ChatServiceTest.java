@@ -1,6 +1,8 @@
 package com.friendfinder.services;
 
+import com.friendfinder.chat.ChatMembershipCache;
 import com.friendfinder.dto.ChatDTO;
+import com.friendfinder.dto.MessageDTO;
 import com.friendfinder.exceptions.ChatNotFoundException;
 import com.friendfinder.exceptions.DuplicateParticipantException;
 import com.friendfinder.exceptions.UserNotFoundException;
@@ -8,12 +10,16 @@ import com.friendfinder.exceptions.UserNotInChatException;
 import com.friendfinder.factory.ChatFactory;
 import com.friendfinder.model.Chat;
 import com.friendfinder.model.User;
+import com.friendfinder.repository.ChatActivityRepository;
+import com.friendfinder.repository.ChatReadCursorRepository;
 import com.friendfinder.repository.ChatRepository;
 import com.friendfinder.repository.MessageRepository;
+import com.friendfinder.repository.MessageTombstoneRepository;
 import com.friendfinder.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDateTime;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -25,6 +31,9 @@ class ChatServiceTest {
     private UserRepository userRepository;
     private MessageRepository messageRepository;
     private ChatFactory chatFactory;
+    private ChatActivityRepository chatActivityRepository;
+    private ChatReadCursorRepository chatReadCursorRepository;
+    private MessageTombstoneRepository messageTombstoneRepository;
 
     private ChatService chatService;
 
@@ -34,8 +43,13 @@ class ChatServiceTest {
         userRepository = mock(UserRepository.class);
         messageRepository = mock(MessageRepository.class);
         chatFactory = mock(ChatFactory.class);
+        chatActivityRepository = mock(ChatActivityRepository.class);
+        chatReadCursorRepository = mock(ChatReadCursorRepository.class);
+        messageTombstoneRepository = mock(MessageTombstoneRepository.class);
 
-        chatService = new ChatService(chatRepository, userRepository, messageRepository, chatFactory);
+        chatService = new ChatService(chatRepository, userRepository, messageRepository, chatFactory,
+                chatActivityRepository, chatReadCursorRepository, messageTombstoneRepository,
+                new ChatMembershipCache(chatRepository, 100));
     }
 
     // ---------- getChatById ----------
@@ -49,6 +63,44 @@ class ChatServiceTest {
                 () -> chatService.getChatById(chatId));
     }
 
+    // ---------- getUserChats ----------
+
+    @Test
+    void getUserChats_assemblesInboxFromProjectionQueries() {
+        Long userId = 1L;
+        LocalDateTime created = LocalDateTime.now();
+        when(chatRepository.findInboxChats(userId)).thenReturn(List.of(
+                new Object[]{10L, "Direct Chat", "DIRECT", created},
+                new Object[]{20L, "Group", "GROUP", created}));
+        when(chatRepository.findInboxParticipants(userId)).thenReturn(List.of(
+                new Object[]{10L, 1L, "Me"},
+                new Object[]{10L, 2L, "You"},
+                new Object[]{20L, 1L, "Me"}));
+        MessageDTO last = new MessageDTO(5L, 10L, 2L, "You", "hi", created, "CHAT", false, null, 0L, 1L);
+        when(messageRepository.findInboxLastMessages(userId)).thenReturn(List.of(last));
+        when(messageRepository.countInboxUnread(userId)).thenReturn(List.<Object[]>of(new Object[]{10L, 3L}));
+
+        List<ChatDTO> chats = chatService.getUserChats(userId);
+
+        assertEquals(2, chats.size());
+        assertEquals(List.of(1L, 2L), chats.get(0).getParticipantIds());
+        assertEquals(List.of("Me", "You"), chats.get(0).getParticipantUsernames());
+        assertEquals(2, chats.get(0).getParticipantCount());
+        assertSame(last, chats.get(0).getLastMessage());
+        assertEquals(3, chats.get(0).getUnreadCount());
+        assertNull(chats.get(1).getLastMessage());
+        assertEquals(0, chats.get(1).getUnreadCount());
+        verify(messageRepository, never()).findTopByChatOrderByTimestampDesc(any());
+    }
+
+    @Test
+    void getUserChats_skipsRemainingQueries_whenUserHasNoChats() {
+        when(chatRepository.findInboxChats(1L)).thenReturn(List.of());
+
+        assertTrue(chatService.getUserChats(1L).isEmpty());
+        verifyNoInteractions(messageRepository);
+    }
+
     // ---------- createDirectChat ----------
 
     @Test
@@ -94,8 +146,10 @@ class ChatServiceTest {
 
         User creator = mock(User.class);
         when(userRepository.findById(creatorId)).thenReturn(Optional.of(creator));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(mock(User.class)));
-        when(userRepository.findById(2L)).thenReturn(Optional.empty());
+        User participant = mock(User.class);
+        when(participant.getUserId()).thenReturn(1L);
+        // participants are loaded together, user 2 is not found
+        when(userRepository.findAllById(participantIds)).thenReturn(List.of(participant));
 
         assertThrows(UserNotFoundException.class,
                 () -> chatService.createGroupChat("Group", creatorId, participantIds));
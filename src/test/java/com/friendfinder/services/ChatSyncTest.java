@@ -0,0 +1,150 @@
+package com.friendfinder.services;
+
+import com.friendfinder.TestData;
+import com.friendfinder.dto.ChatSyncDTO;
+import com.friendfinder.dto.MessageDTO;
+import com.friendfinder.dto.MessagePageDTO;
+import com.friendfinder.dto.ReadCursorDTO;
+import com.friendfinder.exceptions.UserNotInChatException;
+import com.friendfinder.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@SpringBootTest
+@Transactional  // roll back after each test
+class ChatSyncTest {
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private TestData data;
+
+    @Test
+    void everyChangeGetsTheNextSequenceNumber() {
+        User me = data.user("me@dtu.dk", "Me");
+        User alice = data.user("alice@dtu.dk", "Alice");
+        Long chatId = chatService.createDirectChat(me.getUserId(), alice.getUserId()).getChatId();
+
+        assertEquals(1L, data.send(chatId, alice, "one").getSequence());
+        MessageDTO two = data.send(chatId, alice, "two");
+        assertEquals(2L, two.getSequence());
+        assertEquals(3L, messageService.editMessage(two.getMessageId(), alice.getUserId(), "two!").getSequence());
+        assertEquals(3L, messageService.syncChat(chatId, me.getUserId(), 0, 0).getSequence());
+    }
+
+    @Test
+    void pageOfAnEmptyChatGivesTheSequenceToSyncFrom() {
+        User me = data.user("me@dtu.dk", "Me");
+        User alice = data.user("alice@dtu.dk", "Alice");
+        Long chatId = chatService.createDirectChat(me.getUserId(), alice.getUserId()).getChatId();
+        MessagePageDTO empty = messageService.getChatMessages(chatId, me.getUserId(), null, null, 10);
+        assertEquals(0L, empty.getSequence());
+
+        // sent while the client was disconnected
+        MessageDTO one = data.send(chatId, alice, "one");
+        ChatSyncDTO delta = messageService.syncChat(chatId, me.getUserId(), empty.getSequence(), empty.getReadSequence());
+
+        assertEquals(List.of(one.getMessageId()), delta.getMessages().stream().map(MessageDTO::getMessageId).toList());
+        assertEquals(one.getSequence(), messageService.getChatMessages(chatId, me.getUserId(), null, null, 10).getSequence());
+    }
+
+    @Test
+    void syncReturnsOnlyWhatChangedSinceTheClientsSequence() {
+        User me = data.user("me@dtu.dk", "Me");
+        User alice = data.user("alice@dtu.dk", "Alice");
+        Long chatId = chatService.createDirectChat(me.getUserId(), alice.getUserId()).getChatId();
+        MessageDTO one = data.send(chatId, alice, "one");
+        MessageDTO two = data.send(chatId, alice, "two");
+        MessageDTO three = data.send(chatId, me, "three");
+        ChatSyncDTO before = messageService.syncChat(chatId, me.getUserId(), 0, 0);
+        long seen = before.getSequence();
+        long readSeen = before.getReadSequence();
+
+        // while the client was away
+        MessageDTO four = data.send(chatId, alice, "four");
+        messageService.editMessage(one.getMessageId(), alice.getUserId(), "one, edited");
+        messageService.deleteMessage(two.getMessageId(), alice.getUserId());
+        messageService.markChatReadUpTo(chatId, alice.getUserId(), three.getMessageId());
+
+        ChatSyncDTO delta = messageService.syncChat(chatId, me.getUserId(), seen, readSeen);
+
+        assertEquals(List.of(four.getMessageId(), one.getMessageId()),
+                delta.getMessages().stream().map(MessageDTO::getMessageId).toList());
+        assertEquals("one, edited", delta.getMessages().get(1).getContent());
+        assertEquals(List.of(two.getMessageId()), delta.getDeletedMessageIds());
+        assertEquals(List.of(three.getMessageId()),
+                delta.getReadCursors().stream().map(ReadCursorDTO::getLastReadMessageId).toList());
+        assertFalse(delta.isHasMore());
+        // reads are numbered apart from the messages
+        assertEquals(seen + 3, delta.getSequence());
+        assertEquals(readSeen + 1, delta.getReadSequence());
+
+        ChatSyncDTO nothing = messageService.syncChat(chatId, me.getUserId(), delta.getSequence(), delta.getReadSequence());
+        assertTrue(nothing.getMessages().isEmpty());
+        assertTrue(nothing.getDeletedMessageIds().isEmpty());
+        assertTrue(nothing.getReadCursors().isEmpty());
+        assertEquals(delta.getSequence(), nothing.getSequence());
+    }
+
+    @Test
+    void readsAreSyncedWhenNoMessageChanged() {
+        User me = data.user("me@dtu.dk", "Me");
+        User alice = data.user("alice@dtu.dk", "Alice");
+        Long chatId = chatService.createDirectChat(me.getUserId(), alice.getUserId()).getChatId();
+        MessageDTO one = data.send(chatId, me, "one");
+        ChatSyncDTO before = messageService.syncChat(chatId, me.getUserId(), 0, 0);
+
+        messageService.markChatReadUpTo(chatId, alice.getUserId(), one.getMessageId());
+
+        ChatSyncDTO delta = messageService.syncChat(chatId, me.getUserId(), before.getSequence(), before.getReadSequence());
+        assertTrue(delta.getMessages().isEmpty());
+        assertEquals(before.getSequence(), delta.getSequence());
+        assertEquals(List.of(alice.getUserId()),
+                delta.getReadCursors().stream().map(ReadCursorDTO::getUserId).toList());
+    }
+
+    @Test
+    void largeBacklogIsSplitIntoConsistentParts() {
+        User me = data.user("me@dtu.dk", "Me");
+        User alice = data.user("alice@dtu.dk", "Alice");
+        Long chatId = chatService.createDirectChat(me.getUserId(), alice.getUserId()).getChatId();
+        int total = MessageService.MAX_SYNC_MESSAGES + 5;
+        for (int i = 0; i < total; i++) {
+            data.send(chatId, alice, "m" + i);
+        }
+
+        ChatSyncDTO first = messageService.syncChat(chatId, me.getUserId(), 0, 0);
+        assertTrue(first.isHasMore());
+        assertEquals(MessageService.MAX_SYNC_MESSAGES, first.getMessages().size());
+        assertEquals(MessageService.MAX_SYNC_MESSAGES, first.getSequence());
+
+        ChatSyncDTO rest = messageService.syncChat(chatId, me.getUserId(), first.getSequence(), 0);
+        assertFalse(rest.isHasMore());
+        assertEquals(5, rest.getMessages().size());
+        assertEquals("m" + (total - 1), rest.getMessages().get(4).getContent());
+    }
+
+    @Test
+    void onlyParticipantsCanSync() {
+        User me = data.user("me@dtu.dk", "Me");
+        User alice = data.user("alice@dtu.dk", "Alice");
+        User eve = data.user("eve@dtu.dk", "Eve");
+        Long chatId = chatService.createDirectChat(me.getUserId(), alice.getUserId()).getChatId();
+
+        assertThrows(UserNotInChatException.class, () -> messageService.syncChat(chatId, eve.getUserId(), 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> messageService.syncChat(chatId, me.getUserId(), -1, 0));
+        assertThrows(IllegalArgumentException.class, () -> messageService.syncChat(chatId, me.getUserId(), 0, -1));
+    }
+}
@@ -0,0 +1,172 @@
+package com.friendfinder.services;
+
+import com.friendfinder.dto.MessageDTO;
+import com.friendfinder.model.User;
+import com.friendfinder.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Messages and reads of a chat arriving at the same moment, including the first ones before the chat
+// has an activity row or the readers have cursors. Runs in its own context, and so its own database,
+// because the writes have to commit to race each other.
+@ActiveProfiles("test")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class ChatWriteConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setName("Sender");
+        return userRepo.save(user);
+    }
+
+    private <T> List<T> atOnce(List<Callable<T>> tasks) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>();
+            for (Callable<T> task : tasks) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentFirstMessagesOfAChatWithoutActivityAllGetSent() throws Exception {
+        User a = user("first-a@dtu.dk");
+        User b = user("first-b@dtu.dk");
+        Long chatId = chatService.createGroupChat("First", a.getUserId(), Set.of(a.getUserId(), b.getUserId())).getChatId();
+        // as for a chat created before activity rows came with the chat
+        jdbcTemplate.update("DELETE FROM chat_activity WHERE chat_id = ?", chatId);
+
+        List<Callable<Long>> sends = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            User sender = i % 2 == 0 ? a : b;
+            String content = "hello " + i;
+            sends.add(() -> {
+                MessageDTO message = new MessageDTO();
+                message.setChatId(chatId);
+                message.setContent(content);
+                return messageService.saveMessage(message, sender.getUserId()).getSequence();
+            });
+        }
+
+        assertEquals(THREADS, new HashSet<>(atOnce(sends)).size());
+        assertEquals(THREADS, jdbcTemplate.queryForObject(
+                "SELECT message_count FROM chat_activity WHERE chat_id = ?", Integer.class, chatId));
+        assertEquals(THREADS, jdbcTemplate.queryForObject(
+                "SELECT last_sequence FROM chat_activity WHERE chat_id = ?", Integer.class, chatId));
+    }
+
+    @Test
+    void concurrentFirstReadsOfAUserCreateOneCursor() throws Exception {
+        User a = user("first-read-a@dtu.dk");
+        User b = user("first-read-b@dtu.dk");
+        Long chatId = chatService.createDirectChat(a.getUserId(), b.getUserId()).getChatId();
+        List<Long> messageIds = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            MessageDTO message = new MessageDTO();
+            message.setChatId(chatId);
+            message.setContent("read me " + i);
+            messageIds.add(messageService.saveMessage(message, a.getUserId()).getMessageId());
+        }
+
+        List<Callable<Boolean>> reads = new ArrayList<>();
+        for (Long messageId : messageIds) {
+            reads.add(() -> {
+                messageService.markChatReadUpTo(chatId, b.getUserId(), messageId);
+                return true;
+            });
+        }
+        atOnce(reads);
+
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM chat_read_cursors WHERE chat_id = ? AND user_id = ?", Integer.class, chatId, b.getUserId()));
+        assertEquals(messageIds.get(THREADS - 1), jdbcTemplate.queryForObject(
+                "SELECT last_read_message_id FROM chat_read_cursors WHERE chat_id = ? AND user_id = ?",
+                Long.class, chatId, b.getUserId()));
+    }
+
+    @Test
+    void readNotCommittedYetDoesNotHoldUpSenders() throws Exception {
+        User a = user("open-read-a@dtu.dk");
+        User b = user("open-read-b@dtu.dk");
+        Long chatId = chatService.createDirectChat(a.getUserId(), b.getUserId()).getChatId();
+        MessageDTO first = new MessageDTO();
+        first.setChatId(chatId);
+        first.setContent("first");
+        Long firstId = messageService.saveMessage(first, a.getUserId()).getMessageId();
+
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch sent = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> reader = pool.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                messageService.markChatReadUpTo(chatId, b.getUserId(), firstId);
+                read.countDown();
+                try {
+                    // keep the read's transaction open until the message went through
+                    sent.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(read.await(30, TimeUnit.SECONDS));
+
+            MessageDTO second = new MessageDTO();
+            second.setChatId(chatId);
+            second.setContent("second");
+            assertEquals(2L, messageService.saveMessage(second, a.getUserId()).getSequence());
+            sent.countDown();
+            reader.get(30, TimeUnit.SECONDS);
+        } finally {
+            sent.countDown();
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.friendfinder.services;
+
+import com.friendfinder.model.User;
+import com.friendfinder.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Both users of a pair open their direct chat at the same moment. Runs in its own context, and so its
+// own database, because the creations have to commit to race each other.
+@ActiveProfiles("test")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class DirectChatConcurrencyTest {
+
+    private static final int PAIRS = 40;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setName("Opener");
+        return userRepo.save(user);
+    }
+
+    @Test
+    void bothUsersOpeningAtOnceGetTheSameSingleChat() throws Exception {
+        List<User[]> pairs = new ArrayList<>();
+        for (int i = 0; i < PAIRS; i++) {
+            pairs.add(new User[]{user("dm-a" + i + "@dtu.dk"), user("dm-b" + i + "@dtu.dk")});
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            for (User[] pair : pairs) {
+                CountDownLatch start = new CountDownLatch(1);
+                Future<Long> first = pool.submit(() -> {
+                    start.await();
+                    return chatService.createDirectChat(pair[0].getUserId(), pair[1].getUserId()).getChatId();
+                });
+                Future<Long> second = pool.submit(() -> {
+                    start.await();
+                    return chatService.createDirectChat(pair[1].getUserId(), pair[0].getUserId()).getChatId();
+                });
+                start.countDown();
+                Long chatId = first.get(30, TimeUnit.SECONDS);
+                assertEquals(chatId, second.get(30, TimeUnit.SECONDS));
+
+                long low = Math.min(pair[0].getUserId(), pair[1].getUserId());
+                long high = Math.max(pair[0].getUserId(), pair[1].getUserId());
+                assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat c JOIN chat_participants p "
+                                + "ON p.chat_id = c.chat_id WHERE c.chat_type = 'DIRECT' AND p.user_id = ?",
+                        Integer.class, low));
+                assertEquals(chatId, jdbcTemplate.queryForObject(
+                        "SELECT chat_id FROM chat WHERE low_user_id = ? AND high_user_id = ?", Long.class, low, high));
+                assertEquals(2, jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM chat_participants WHERE chat_id = ?", Integer.class, chatId));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void directChatIsNoLongerThePairsOnceSomeoneJoins() {
+        User a = user("dm-join-a@dtu.dk");
+        User b = user("dm-join-b@dtu.dk");
+        User c = user("dm-join-c@dtu.dk");
+        Long chatId = chatService.createDirectChat(a.getUserId(), b.getUserId()).getChatId();
+
+        chatService.addParticipantToChat(chatId, c.getUserId());
+
+        assertNotEquals(chatId, chatService.createDirectChat(b.getUserId(), a.getUserId()).getChatId());
+    }
+}
@@ -0,0 +1,134 @@
+package com.friendfinder.services;
+
+import com.friendfinder.graph.FriendshipSet;
+import com.friendfinder.model.User;
+import com.friendfinder.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Double clicks and mutual requests for the same pairs, sent from many threads at once. Runs in its
+// own context, and so its own database, because the requests have to commit to race each other.
+@ActiveProfiles("test")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class FriendRequestConcurrencyTest {
+
+    private static final int USERS = 24;
+    private static final int PAIRS = 80;
+    private static final int CLICKS = 3;
+
+    @Autowired
+    private FriendService friendService;
+
+    @Autowired
+    private FriendshipSet friendships;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private record Pair(User a, User b, boolean mutual) {
+    }
+
+    private int requestsBetween(User a, User b) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friend_requests WHERE "
+                        + "(sender_user_id = ? AND receiver_user_id = ?) OR (sender_user_id = ? AND receiver_user_id = ?)",
+                Integer.class, a.getUserId(), b.getUserId(), b.getUserId(), a.getUserId());
+    }
+
+    private int friendRows(User a, User b) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friends_relation WHERE user_id = ? AND friend_id = ?",
+                Integer.class, a.getUserId(), b.getUserId());
+    }
+
+    @Test
+    void concurrentSwipesLeaveOneRequestOrOneFriendshipPerPair() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setEmail("swipe" + i + "@dtu.dk");
+            user.setName("Swiper");
+            users.add(userRepo.save(user));
+        }
+        Random random = new Random(7);
+        List<Pair> pairs = new ArrayList<>();
+        boolean[][] taken = new boolean[USERS][USERS];
+        while (pairs.size() < PAIRS) {
+            int a = random.nextInt(USERS);
+            int b = random.nextInt(USERS);
+            if (a == b || taken[a][b]) {
+                continue;
+            }
+            taken[a][b] = true;
+            taken[b][a] = true;
+            pairs.add(new Pair(users.get(a), users.get(b), pairs.size() % 2 == 0));
+        }
+
+        // every pair gets repeated clicks, mutual pairs from both sides, all shuffled together
+        List<Runnable> swipes = new ArrayList<>();
+        for (Pair pair : pairs) {
+            for (int click = 0; click < CLICKS; click++) {
+                swipes.add(() -> friendService.sendRequest(pair.a(), pair.b()));
+                if (pair.mutual()) {
+                    swipes.add(() -> friendService.sendRequest(pair.b(), pair.a()));
+                }
+            }
+        }
+        Collections.shuffle(swipes, random);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> done = new ArrayList<>();
+        for (Runnable swipe : swipes) {
+            done.add(pool.submit(() -> {
+                start.await();
+                swipe.run();
+                return null;
+            }));
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        try {
+            for (Future<?> future : done) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - began) / 1e9;
+        System.out.printf("%d concurrent friend requests in %.2f s, %.0f per second%n",
+                swipes.size(), seconds, swipes.size() / seconds);
+
+        for (Pair pair : pairs) {
+            String label = pair.a().getUserId() + " - " + pair.b().getUserId();
+            if (pair.mutual()) {
+                assertEquals(0, requestsBetween(pair.a(), pair.b()), label);
+                assertEquals(1, friendRows(pair.a(), pair.b()), label);
+                assertEquals(1, friendRows(pair.b(), pair.a()), label);
+                assertTrue(friendships.areFriends(pair.a().getUserId(), pair.b().getUserId()), label);
+            } else {
+                assertEquals(1, requestsBetween(pair.a(), pair.b()), label);
+                assertEquals(1, friendService.getPendingRequestsAsSender(pair.a()).stream()
+                        .filter(request -> request.getReceiver().equals(pair.b())).count(), label);
+                assertEquals(0, friendRows(pair.a(), pair.b()), label);
+                assertFalse(friendships.areFriends(pair.a().getUserId(), pair.b().getUserId()), label);
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.friendfinder.services;
 
+import com.friendfinder.dto.UserSummaryDTO;
 import com.friendfinder.model.FriendRequest;
 import com.friendfinder.model.User;
 import com.friendfinder.repository.FriendRequestRepository;
@@ -11,6 +12,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 // TODO
@@ -101,8 +104,10 @@ class FriendServiceTest {
         assertTrue(updatedReceiver.getFriends().contains(updatedSender));
         assertTrue(friendService.areFriends(sender, receiver));
         assertTrue(friendService.areFriends(receiver, sender));
-        assertTrue(friendService.getFriends(sender).contains(receiver));
-        assertTrue(friendService.getFriends(receiver).contains(sender));
+        assertEquals(List.of(receiver.getUserId()),
+                friendService.getFriends(sender).stream().map(UserSummaryDTO::getUserId).toList());
+        assertEquals(List.of(sender.getEmail()),
+                friendService.getFriends(receiver).stream().map(UserSummaryDTO::getEmail).toList());
     }
 
     @Test
@@ -181,6 +186,29 @@ class FriendServiceTest {
         assertTrue(updatedSender.getFriends().contains(updatedReceiver));
         assertTrue(updatedReceiver.getFriends().contains(updatedSender));
     }
-}
-
 
+    @Test
+    void testConnectionThroughMutualFriend() {
+        // sender and receiver both befriend a third user
+        User middle = new User();
+        middle.setEmail("middle@dtu.dk");
+        middle.setName("Middle");
+        middle = userRepo.save(middle);
+        friendService.sendRequest(middle, sender);
+        friendService.sendRequest(sender, middle);
+        friendService.sendRequest(middle, receiver);
+        friendService.sendRequest(receiver, middle);
+
+        var connection = friendService.getConnection(sender, receiver, 6);
+
+        assertEquals(receiver.getUserId(), connection.getUserId());
+        assertEquals(1, connection.getMutualFriends().size());
+        assertEquals(middle.getUserId(), connection.getMutualFriends().get(0).getUserId());
+        assertEquals(2, connection.getDegree());
+        assertEquals(3, connection.getPath().size());
+        assertEquals(sender.getUserId(), connection.getPath().get(0).getUserId());
+
+        // too far apart for a depth of one
+        assertNull(friendService.getConnection(sender, receiver, 1).getDegree());
+    }
+}
@@ -0,0 +1,123 @@
+package com.friendfinder.services;
+
+import com.friendfinder.TestData;
+import com.friendfinder.dto.MessageDTO;
+import com.friendfinder.dto.MessagePageDTO;
+import com.friendfinder.exceptions.UserNotInChatException;
+import com.friendfinder.model.Message;
+import com.friendfinder.model.User;
+import com.friendfinder.repository.ChatRepository;
+import com.friendfinder.repository.MessageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@SpringBootTest
+@Transactional  // roll back after each test
+class MessageHistoryTest {
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private ChatRepository chatRepo;
+
+    @Autowired
+    private MessageRepository messageRepo;
+
+    @Autowired
+    private TestData data;
+
+    // 7 messages, the middle three share a timestamp so the id breaks the tie
+    private Long chatWithHistory(User me, User alice) {
+        Long chatId = chatService.createDirectChat(me.getUserId(), alice.getUserId()).getChatId();
+        LocalDateTime start = LocalDateTime.now().minusHours(1);
+        LocalDateTime[] times = {start, start.plusMinutes(1), start.plusMinutes(2), start.plusMinutes(2),
+                start.plusMinutes(2), start.plusMinutes(3), start.plusMinutes(4)};
+        for (int i = 0; i < times.length; i++) {
+            Message message = new Message(chatRepo.findById(chatId).orElseThrow(), alice, "m" + i);
+            message.setTimestamp(times[i]);
+            messageRepo.save(message);
+        }
+        return chatId;
+    }
+
+    private List<String> contents(MessagePageDTO page) {
+        return page.getMessages().stream().map(MessageDTO::getContent).toList();
+    }
+
+    @Test
+    void pagesBackwardsFromNewestWithoutGapsOrRepeats() {
+        User me = data.user("me@dtu.dk", "Me");
+        User alice = data.user("alice@dtu.dk", "Alice");
+        Long chatId = chatWithHistory(me, alice);
+
+        MessagePageDTO newest = messageService.getChatMessages(chatId, me.getUserId(), null, null, 3);
+        assertEquals(List.of("m4", "m5", "m6"), contents(newest));
+        assertTrue(newest.isHasMoreBefore());
+        assertFalse(newest.isHasMoreAfter());
+
+        List<String> all = new ArrayList<>(contents(newest));
+        MessagePageDTO page = newest;
+        while (page.isHasMoreBefore()) {
+            page = messageService.getChatMessages(chatId, me.getUserId(), page.getBefore(), null, 3);
+            assertTrue(page.isHasMoreAfter());
+            all.addAll(0, contents(page));
+        }
+        assertEquals(List.of("m0", "m1", "m2", "m3", "m4", "m5", "m6"), all);
+    }
+
+    @Test
+    void pagesForwardFromACursor() {
+        User me = data.user("me@dtu.dk", "Me");
+        User alice = data.user("alice@dtu.dk", "Alice");
+        Long chatId = chatWithHistory(me, alice);
+        MessagePageDTO oldest = messageService.getChatMessages(chatId, me.getUserId(), null, null, 100);
+        assertEquals(7, oldest.getMessages().size());
+        assertFalse(oldest.isHasMoreBefore());
+
+        MessagePageDTO first = messageService.getChatMessages(chatId, me.getUserId(),
+                messageService.getChatMessages(chatId, me.getUserId(), null, null, 5).getBefore(), null, 2);
+        assertEquals(List.of("m0", "m1"), contents(first));
+
+        MessagePageDTO next = messageService.getChatMessages(chatId, me.getUserId(), null, first.getAfter(), 3);
+        assertEquals(List.of("m2", "m3", "m4"), contents(next));
+        assertTrue(next.isHasMoreAfter());
+
+        MessagePageDTO last = messageService.getChatMessages(chatId, me.getUserId(), null, next.getAfter(), 3);
+        assertEquals(List.of("m5", "m6"), contents(last));
+        assertFalse(last.isHasMoreAfter());
+    }
+
+    @Test
+    void onlyParticipantsCanReadHistory() {
+        User me = data.user("me@dtu.dk", "Me");
+        User alice = data.user("alice@dtu.dk", "Alice");
+        User eve = data.user("eve@dtu.dk", "Eve");
+        Long chatId = chatWithHistory(me, alice);
+
+        assertThrows(UserNotInChatException.class,
+                () -> messageService.getChatMessages(chatId, eve.getUserId(), null, null, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> messageService.getChatMessages(chatId, me.getUserId(), "x", "y", 10));
+
+        // membership is cached, adding and removing a participant must show up straight away
+        chatService.addParticipantToChat(chatId, eve.getUserId());
+        assertEquals(7, messageService.getChatMessages(chatId, eve.getUserId(), null, null, 10).getMessages().size());
+        chatService.removeParticipantFromChat(chatId, eve.getUserId());
+        assertThrows(UserNotInChatException.class,
+                () -> messageService.getChatMessages(chatId, eve.getUserId(), null, null, 10));
+    }
+}
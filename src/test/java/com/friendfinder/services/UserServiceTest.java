@@ -2,8 +2,12 @@ package com.friendfinder.services;
 
 
 import com.friendfinder.model.Interest;
+import com.friendfinder.repository.DislikeRepository;
+import com.friendfinder.repository.InterestRepository;
 import com.friendfinder.repository.UserRepository;
 import com.friendfinder.model.User;
+import com.friendfinder.suggestion.SuggestionCursor;
+import com.friendfinder.suggestion.SuggestionPage;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -22,6 +26,29 @@ public class UserServiceTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private InterestRepository interestRepository;
+
+    @Autowired
+    private FriendService friendService;
+
+    @Autowired
+    private DislikeRepository dislikeRepository;
+
+    private User createUser(String email, String name, String... interestNames) {
+        User user = new User();
+        user.setEmail(email);
+        user.setName(name);
+        userRepository.save(user);
+
+        List<Interest> interests = new ArrayList<>();
+        for (String interestName : interestNames) {
+            interests.add(interestRepository.findByName(interestName));
+        }
+        userService.updateUserInterest(interests, email);
+        return user;
+    }
+
     @Test
     @Transactional
     void testUpdateUserName() {
@@ -58,8 +85,131 @@ public class UserServiceTest {
         assertThat(userRepository.findByEmail("delete@example.com")).isNull();
     }
 
+    @Test
+    @Transactional
+    void testFindPotentialFriendsRanksBySharedInterests() {
+        // Arrange
+        createUser("ranker@example.com", "Ranker", "Music", "Gaming", "Coding");
+        User one = createUser("one@example.com", "One", "Sports");
+        User three = createUser("three@example.com", "Three", "Music", "Gaming", "Coding");
+        User two = createUser("two@example.com", "Two", "Music", "Coding", "Reading");
+
+        // Act
+        userService.dislikeUser(userRepository.findByEmail("ranker@example.com").getUserId(), "one@example.com");
+        List<User> suggestions = userService.findPotentialFriends("ranker@example.com");
+
+        // Assert
+        assertThat(suggestions).doesNotContain(one);
+        assertThat(suggestions.indexOf(three)).isLessThan(suggestions.indexOf(two));
+        assertThat(suggestions.get(0)).isEqualTo(three);
+    }
+
+    @Test
+    @Transactional
+    void testFindPotentialFriendsStopsAtLimit() {
+        // Arrange
+        createUser("limited@example.com", "Limited", "Boardgames", "Fitness");
+        User best = createUser("best@example.com", "Best", "Boardgames", "Fitness");
+        User partial = createUser("partial@example.com", "Partial", "Fitness");
+        User stranger = createUser("stranger@example.com", "Stranger");
+
+        // Act
+        SuggestionPage page = userService.suggestFriends("limited@example.com", null, 1);
+        List<User> first = page.users();
+        userService.dislikeUser(userRepository.findByEmail("limited@example.com").getUserId(), "best@example.com");
+        List<User> all = userService.findPotentialFriends("limited@example.com");
+
+        // Assert
+        assertThat(first).containsExactly(best);
+        assertThat(all).doesNotContain(best).contains(stranger);
+        assertThat(all.indexOf(partial)).isLessThan(all.indexOf(stranger));
+        assertThat(page.next()).isEqualTo(new SuggestionCursor(page.suggestions().get(0).score(), best.getUserId()));
+    }
+
+    @Test
+    @Transactional
+    void testSuggestFriendsContinuesFromCursor() {
+        // Arrange
+        createUser("pager@example.com", "Pager", "Reading", "Sports");
+        User first = createUser("pageone@example.com", "Page One", "Reading", "Sports");
+        User second = createUser("pagetwo@example.com", "Page Two", "Sports");
+        User third = createUser("pagethree@example.com", "Page Three");
+
+        // Act
+        SuggestionPage page1 = userService.suggestFriends("pager@example.com", null, 2);
+        SuggestionCursor cursor = SuggestionCursor.fromToken(page1.next().toToken());
+        SuggestionPage page2 = userService.suggestFriends("pager@example.com", cursor, 50);
+
+        // Assert
+        assertThat(page1.users()).containsExactly(first, second);
+        assertThat(page2.users()).doesNotContain(first, second).contains(third);
+    }
+
+    @Test
+    @Transactional
+    void testNextSuggestionIsConsumedFromQueue() {
+        // Arrange
+        User swiper = createUser("swiper@example.com", "Swiper", "Gaming", "Reading");
+        User top = createUser("topmatch@example.com", "Top Match", "Gaming", "Reading");
+        User runnerUp = createUser("runnerup@example.com", "Runner Up", "Gaming");
+
+        // Act & Assert
+        assertThat(userService.nextSuggestion("swiper@example.com")).isEqualTo(top);
+        assertThat(userService.nextSuggestion("swiper@example.com")).isEqualTo(top);
+
+        userService.consumeSuggestion(swiper.getUserId(), top.getUserId());
+        assertThat(userService.nextSuggestion("swiper@example.com")).isEqualTo(runnerUp);
+
+        // changing interests rebuilds the queue
+        userService.updateUserInterest(new ArrayList<>(List.of(interestRepository.findByName("Gaming"))),
+                "topmatch@example.com");
+        userService.updateUserInterest(new ArrayList<>(List.of(interestRepository.findByName("Gaming"),
+                interestRepository.findByName("Reading"))), "runnerup@example.com");
+        assertThat(userService.nextSuggestion("swiper@example.com")).isEqualTo(runnerUp);
+    }
+
+    @Test
+    @Transactional
+    void testMutualFriendsRankFriendsOfFriends() {
+        // Arrange
+        User asker = createUser("asker@example.com", "Asker", "Sports");
+        User friendA = createUser("frienda@example.com", "Friend A", "Cooking");
+        User friendB = createUser("friendb@example.com", "Friend B", "Cooking");
+        User stranger = createUser("stranger@example.com", "Stranger", "Sports");
+        User mutual = createUser("mutual@example.com", "Mutual", "Cooking");
+        friendService.sendRequest(asker, friendA);
+        friendService.sendRequest(friendA, asker);
+        friendService.sendRequest(asker, friendB);
+        friendService.sendRequest(friendB, asker);
+        friendService.sendRequest(mutual, friendA);
+        friendService.sendRequest(friendA, mutual);
+        friendService.sendRequest(mutual, friendB);
+        friendService.sendRequest(friendB, mutual);
 
+        // Act
+        List<User> suggestions = userService.findPotentialFriends("asker@example.com");
+
+        // Assert
+        assertThat(suggestions).doesNotContain(friendA, friendB);
+        assertThat(suggestions.indexOf(mutual)).isLessThan(suggestions.indexOf(stranger));
+    }
 
+    @Test
+    @Transactional
+    void testDislikeIsStoredAndSkipped() {
+        // Arrange
+        User picky = createUser("picky@example.com", "Picky", "Music");
+        User passed = createUser("passed@example.com", "Passed", "Music");
+        User next = createUser("nextup@example.com", "Next Up", "Music");
+        assertThat(userService.nextSuggestion("picky@example.com")).isEqualTo(passed);
 
+        // Act
+        userService.dislikeUser(picky.getUserId(), "Passed@example.com");
+        userService.dislikeUser(picky.getUserId(), "passed@example.com");
 
+        // Assert
+        assertThat(dislikeRepository.findDislikedIdsByUserId(picky.getUserId())).containsExactly(passed.getUserId());
+        assertThat(userService.nextSuggestion("picky@example.com")).isEqualTo(next);
+        assertThat(userService.findPotentialFriends("picky@example.com")).doesNotContain(passed);
+    }
 }
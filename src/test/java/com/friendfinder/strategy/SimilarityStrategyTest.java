@@ -0,0 +1,46 @@
+package com.friendfinder.strategy;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimilarityStrategyTest {
+
+    @Test
+    void overlap_countsSharedInterests() {
+        SimilarityStrategy strategy = new OverlapSimilarityStrategy();
+        assertEquals("overlap", strategy.getName());
+        assertEquals(1f, strategy.interestWeight(90, 100));
+        assertEquals(2f, strategy.similarity(2f, 3f, 5f));
+    }
+
+    @Test
+    void idf_weighsRareInterestsHigher() {
+        SimilarityStrategy strategy = new IdfSimilarityStrategy();
+        float rare = strategy.interestWeight(1, 100);
+        float common = strategy.interestWeight(100, 100);
+
+        assertEquals("idf", strategy.getName());
+        assertEquals(1f, rare, 1e-6f);
+        assertTrue(common < rare);
+        assertTrue(common > 0f);
+    }
+
+    @Test
+    void jaccard_dividesByUnion() {
+        SimilarityStrategy strategy = new JaccardSimilarityStrategy();
+        assertEquals("jaccard", strategy.getName());
+        assertEquals(0.5f, strategy.similarity(2f, 3f, 3f), 1e-6f);
+        assertEquals(0f, strategy.similarity(0f, 0f, 0f));
+    }
+
+    @Test
+    void cosine_isOneForIdenticalInterests() {
+        SimilarityStrategy strategy = new CosineSimilarityStrategy();
+        float weight = strategy.interestWeight(10, 100);
+
+        assertEquals("cosine", strategy.getName());
+        assertEquals(1f, strategy.similarity(3 * weight, 3 * weight, 3 * weight), 1e-6f);
+        assertEquals(0f, strategy.similarity(0f, 0f, weight));
+    }
+}
@@ -0,0 +1,49 @@
+package com.friendfinder.suggestion;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DislikeFilterTest {
+
+    @Test
+    void containsOnlyAddedIds() {
+        DislikeFilter filter = DislikeFilter.of(new long[]{42L, 7L, 42L, 1000L});
+
+        assertEquals(3, filter.size());
+        assertTrue(filter.contains(7L));
+        assertTrue(filter.contains(42L));
+        assertTrue(filter.contains(1000L));
+        assertFalse(filter.contains(8L));
+        assertFalse(DislikeFilter.empty().contains(7L));
+    }
+
+    @Test
+    void withReturnsNewFilter() {
+        DislikeFilter filter = DislikeFilter.of(new long[]{1L});
+        DislikeFilter added = filter.with(2L);
+
+        assertFalse(filter.contains(2L));
+        assertTrue(added.contains(1L));
+        assertTrue(added.contains(2L));
+        assertSame(added, added.with(2L));
+    }
+
+    @Test
+    void bloomFilterRejectsMostMisses() {
+        long[] ids = new long[1000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i * 2L;
+        }
+        DislikeFilter filter = DislikeFilter.of(ids);
+
+        int falsePositives = 0;
+        for (long id = 1; id < 20_000; id += 2) {
+            assertFalse(filter.contains(id));
+            if (filter.mightContain(id)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+}
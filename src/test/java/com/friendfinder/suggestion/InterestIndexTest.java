@@ -0,0 +1,147 @@
+package com.friendfinder.suggestion;
+
+import com.friendfinder.model.Interest;
+import com.friendfinder.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InterestIndexTest {
+
+    private UserRepository userRepository;
+    private InterestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        List<Object[]> pairs = new ArrayList<>();
+        pairs.add(new Object[]{1L, 1L});
+        pairs.add(new Object[]{1L, 2L});
+        pairs.add(new Object[]{2L, 2L});
+        pairs.add(new Object[]{2L, 70L});
+        when(userRepository.findAllUserInterestIds()).thenReturn(pairs);
+        index = new InterestIndex(userRepository);
+    }
+
+    private static Interest interest(long id) {
+        Interest interest = new Interest();
+        interest.setId(id);
+        return interest;
+    }
+
+    @Test
+    void loadsPairsOnFirstUse() {
+        assertEquals(1, index.sharedInterests(1L, 2L));
+        assertEquals(2, index.sharedInterests(1L, 1L));
+        verify(userRepository, times(1)).findAllUserInterestIds();
+    }
+
+    @Test
+    void interestIdsBeyondFirstWordAreIndexed() {
+        index.update(3L, List.of(interest(70L), interest(130L)));
+
+        assertEquals(1, index.sharedInterests(2L, 3L));
+        assertEquals(3, index.bitsetOf(3L).length);
+    }
+
+    @Test
+    void updateReplacesPreviousInterests() {
+        index.update(1L, List.of(interest(70L)));
+
+        assertEquals(1, index.sharedInterests(1L, 2L));
+        assertEquals(1, index.sharedInterests(1L, 1L));
+    }
+
+    @Test
+    void unknownAndRemovedUsersHaveNoInterests() {
+        index.remove(2L);
+
+        assertEquals(0, index.bitsetOf(2L).length);
+        assertEquals(0, index.bitsetOf(99L).length);
+        assertEquals(0, index.sharedInterests(1L, 2L));
+        assertEquals(0, index.sharedInterests(null, 1L));
+    }
+
+    @Test
+    void postingsFollowInterestUpdates() {
+        assertArrayEquals(new long[]{1L, 2L}, index.postingsOf(2L));
+
+        index.update(3L, List.of(interest(2L)));
+        index.update(1L, List.of(interest(1L)));
+
+        assertArrayEquals(new long[]{2L, 3L}, index.postingsOf(2L));
+        assertArrayEquals(new long[]{1L}, index.postingsOf(1L));
+
+        index.remove(2L);
+        assertArrayEquals(new long[]{3L}, index.postingsOf(2L));
+        assertArrayEquals(new long[0], index.postingsOf(70L));
+    }
+
+    @Test
+    void overlappingCountsSharedInterestsPerUser() {
+        index.update(5L, List.of(interest(1L), interest(2L)));
+        index.update(4L, List.of(interest(1L)));
+        index.update(6L, List.of(interest(3L)));
+
+        // user 1 has interests 1 and 2, user 6 shares nothing and is never touched
+        InterestIndex.Overlap overlap = index.overlapping(1L);
+        assertEquals(3, overlap.size());
+        assertArrayEquals(new long[]{2L, 4L, 5L}, Arrays.copyOf(overlap.userIds(), 3));
+        assertArrayEquals(new int[]{1, 1, 2}, Arrays.copyOf(overlap.shared(), 3));
+        assertTrue(overlap.contains(5L));
+        assertFalse(overlap.contains(6L));
+        assertEquals(0, index.overlapping(99L).size());
+    }
+
+    @Test
+    void changesAreUndoneWhenTheTransactionRollsBack() {
+        long[] before = index.bitsetOf(1L);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.update(1L, List.of(interest(70L)));
+            index.remove(2L);
+            assertEquals(0, index.sharedInterests(1L, 2L));
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertArrayEquals(before, index.bitsetOf(1L));
+        assertEquals(1, index.sharedInterests(1L, 2L));
+        assertArrayEquals(new long[]{1L, 2L}, index.postingsOf(2L));
+        assertArrayEquals(new long[]{2L}, index.postingsOf(70L));
+    }
+
+    @Test
+    void rollbackDoesNotUndoALaterChange() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.update(1L, List.of(interest(70L)));
+            List<TransactionSynchronization> first = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            // another transaction changed the user's interests again and committed
+            index.update(1L, List.of(interest(3L)));
+            TransactionSynchronizationManager.initSynchronization();
+
+            for (TransactionSynchronization synchronization : first) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertArrayEquals(new long[]{1L}, index.postingsOf(3L));
+        assertArrayEquals(new long[]{2L}, index.postingsOf(70L));
+    }
+}
@@ -0,0 +1,90 @@
+package com.friendfinder.suggestion;
+
+import com.friendfinder.model.Interest;
+import com.friendfinder.repository.UserRepository;
+import com.friendfinder.strategy.IdfSimilarityStrategy;
+import com.friendfinder.strategy.JaccardSimilarityStrategy;
+import com.friendfinder.strategy.OverlapSimilarityStrategy;
+import com.friendfinder.strategy.SimilarityStrategy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InterestScorerTest {
+
+    private static final List<SimilarityStrategy> STRATEGIES = List.of(
+            new OverlapSimilarityStrategy(), new IdfSimilarityStrategy(), new JaccardSimilarityStrategy());
+
+    private InterestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        // interest 1 is held by everybody, interest 2 only by users 1 and 2, interest 3 by users 1 and 3
+        UserRepository userRepository = mock(UserRepository.class);
+        List<Object[]> pairs = new ArrayList<>();
+        for (long user = 1; user <= 5; user++) {
+            pairs.add(new Object[]{user, 1L});
+        }
+        pairs.add(new Object[]{1L, 2L});
+        pairs.add(new Object[]{2L, 2L});
+        pairs.add(new Object[]{1L, 3L});
+        pairs.add(new Object[]{3L, 3L});
+        pairs.add(new Object[]{3L, 4L});
+        when(userRepository.findAllUserInterestIds()).thenReturn(pairs);
+        index = new InterestIndex(userRepository);
+    }
+
+    private float[] score(String similarity, long userId) {
+        InterestScorer scorer = new InterestScorer(index, STRATEGIES, similarity);
+        return scorer.score(userId, index.overlapping(userId));
+    }
+
+    @Test
+    void overlapMatchesSharedInterestCount() {
+        InterestIndex.Overlap overlap = index.overlapping(1L);
+        float[] scores = score("overlap", 1L);
+
+        for (int i = 0; i < overlap.size(); i++) {
+            assertEquals(overlap.shared()[i], scores[i]);
+        }
+    }
+
+    @Test
+    void idfPrefersRareSharedInterest() {
+        // user 2 shares the common interest and the rare interest 2, user 4 only the common one
+        float[] scores = score("idf", 1L);
+
+        assertTrue(scores[1] > scores[3]);
+    }
+
+    @Test
+    void jaccardPenalisesExtraInterests() {
+        // users 2 and 3 both share two interests with user 1, user 3 also has interest 4
+        float[] scores = score("jaccard", 1L);
+
+        assertEquals(2f / 3f, scores[0], 1e-6f);
+        assertEquals(0.5f, scores[1], 1e-6f);
+    }
+
+    @Test
+    void weightsAreRebuiltAfterIndexChanges() {
+        InterestScorer scorer = new InterestScorer(index, STRATEGIES, "idf");
+        float before = scorer.weights()[2];
+
+        Interest interest = new Interest();
+        interest.setId(2L);
+        index.update(4L, List.of(interest));
+
+        assertTrue(scorer.weights()[2] < before);
+    }
+
+    @Test
+    void unknownStrategyIsRejected() {
+        assertThrows(IllegalStateException.class, () -> new InterestScorer(index, STRATEGIES, "pagerank"));
+    }
+}
@@ -0,0 +1,121 @@
+package com.friendfinder.suggestion;
+
+import com.friendfinder.repository.UserRepository;
+import com.friendfinder.strategy.IdfSimilarityStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// Compares the approximate MinHash/LSH candidates against the exact postings merge on a synthetic
+// population: users belong to a community with a handful of favourite interests and pick a few
+// random ones on top. Recall@10 counts an approximate pick as a hit when it scores at least as much
+// as the exact tenth best, so ties between equally good users do not count as misses.
+class MinHashBenchmarkTest {
+
+    private static final int USERS = 20_000;
+    private static final int INTERESTS = 300;
+    private static final int COMMUNITIES = 60;
+    private static final int QUERIES = 200;
+    private static final int K = 10;
+
+    private static InterestIndex population() {
+        Random random = new Random(42);
+        List<Object[]> pairs = new ArrayList<>();
+        for (long user = 1; user <= USERS; user++) {
+            int community = random.nextInt(COMMUNITIES);
+            int favourites = 3 + random.nextInt(3);
+            for (int i = 0; i < favourites; i++) {
+                pairs.add(new Object[]{user, (long) (community * 5 + random.nextInt(6)) % INTERESTS});
+            }
+            for (int i = random.nextInt(3); i > 0; i--) {
+                pairs.add(new Object[]{user, (long) random.nextInt(INTERESTS)});
+            }
+        }
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findAllUserInterestIds()).thenReturn(pairs);
+        return new InterestIndex(userRepository);
+    }
+
+    // ranks like UserService does, idf scores feed the heap and the shared counts are returned for comparison
+    private static float[] top(InterestScorer scorer, long userId, InterestIndex.Overlap overlap) {
+        float[] similarity = scorer.score(userId, overlap);
+        TopK top = new TopK(K);
+        for (int i = 0; i < overlap.size(); i++) {
+            top.offer(similarity[i], i);
+        }
+        long[] picked = new long[top.size()];
+        top.drainTo(new float[top.size()], picked);
+        float[] shared = new float[picked.length];
+        for (int i = 0; i < picked.length; i++) {
+            shared[i] = overlap.shared()[(int) picked[i]];
+        }
+        return shared;
+    }
+
+    private static float[] topShared(InterestIndex.Overlap overlap) {
+        TopK top = new TopK(K);
+        for (int i = 0; i < overlap.size(); i++) {
+            top.offer(overlap.shared()[i], overlap.userIds()[i]);
+        }
+        float[] scores = new float[top.size()];
+        top.drainTo(scores, new long[top.size()]);
+        return scores;
+    }
+
+    @Test
+    void approximateModeKeepsRecallAndScoresFewerUsers() {
+        InterestIndex interestIndex = population();
+        MinHashIndex minHash = new MinHashIndex(interestIndex, "approximate", 16, 2);
+        InterestScorer scorer = new InterestScorer(interestIndex, List.of(new IdfSimilarityStrategy()), "idf");
+        minHash.overlapping(1L);
+        scorer.weights();
+
+        Random random = new Random(7);
+        long exactNanos = 0;
+        long approximateNanos = 0;
+        long exactCandidates = 0;
+        long approximateCandidates = 0;
+        int hits = 0;
+        int wanted = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            long userId = 1 + random.nextInt(USERS);
+
+            long start = System.nanoTime();
+            InterestIndex.Overlap exact = interestIndex.overlapping(userId);
+            top(scorer, userId, exact);
+            exactNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            InterestIndex.Overlap approximate = minHash.overlapping(userId);
+            top(scorer, userId, approximate);
+            approximateNanos += System.nanoTime() - start;
+
+            // quality is judged on shared interest counts so ties are easy to see
+            float[] exactTop = topShared(exact);
+            float[] approximateTop = topShared(approximate);
+            exactCandidates += exact.size();
+            approximateCandidates += approximate.size();
+            wanted += exactTop.length;
+            float threshold = exactTop.length == 0 ? 0f : exactTop[exactTop.length - 1];
+            for (float score : approximateTop) {
+                if (score >= threshold) {
+                    hits++;
+                }
+            }
+        }
+
+        double recall = (double) hits / wanted;
+        System.out.printf("MinHash benchmark over %d users: recall@%d %.3f, exact %.3f ms/query scoring %d users, "
+                        + "approximate %.3f ms/query scoring %d users%n",
+                USERS, K, recall, exactNanos / 1e6 / QUERIES, exactCandidates / QUERIES,
+                approximateNanos / 1e6 / QUERIES, approximateCandidates / QUERIES);
+
+        assertTrue(recall >= 0.8, "recall@10 was " + recall);
+        assertTrue(approximateCandidates < exactCandidates);
+    }
+}
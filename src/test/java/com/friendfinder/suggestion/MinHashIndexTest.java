@@ -0,0 +1,70 @@
+package com.friendfinder.suggestion;
+
+import com.friendfinder.model.Interest;
+import com.friendfinder.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MinHashIndexTest {
+
+    private InterestIndex interestIndex;
+
+    @BeforeEach
+    void setUp() {
+        // users 1 and 2 have the same interests, user 3 has nothing in common with them
+        UserRepository userRepository = mock(UserRepository.class);
+        List<Object[]> pairs = new ArrayList<>();
+        for (long interestId : new long[]{1L, 2L, 3L}) {
+            pairs.add(new Object[]{1L, interestId});
+            pairs.add(new Object[]{2L, interestId});
+        }
+        pairs.add(new Object[]{3L, 9L});
+        when(userRepository.findAllUserInterestIds()).thenReturn(pairs);
+        interestIndex = new InterestIndex(userRepository);
+    }
+
+    private static Interest interest(long id) {
+        Interest interest = new Interest();
+        interest.setId(id);
+        return interest;
+    }
+
+    @Test
+    void identicalInterestsShareEveryBucket() {
+        MinHashIndex index = new MinHashIndex(interestIndex, "approximate", 4, 2);
+
+        InterestIndex.Overlap overlap = index.overlapping(1L);
+
+        assertEquals(1, overlap.size());
+        assertEquals(2L, overlap.userIds()[0]);
+        assertEquals(3, overlap.shared()[0]);
+        assertArrayEquals(index.signature(interestIndex.bitsetOf(1L)), index.signature(interestIndex.bitsetOf(2L)));
+    }
+
+    @Test
+    void bucketsFollowInterestChanges() {
+        MinHashIndex index = new MinHashIndex(interestIndex, "approximate", 4, 2);
+        assertFalse(index.overlapping(3L).contains(1L));
+
+        interestIndex.update(3L, List.of(interest(1L), interest(2L), interest(3L)));
+        assertTrue(index.overlapping(3L).contains(1L));
+
+        interestIndex.update(3L, List.of(interest(9L)));
+        assertFalse(index.overlapping(3L).contains(1L));
+        assertFalse(index.overlapping(1L).contains(3L));
+    }
+
+    @Test
+    void exactModeIsDisabled() {
+        assertFalse(new MinHashIndex(interestIndex, "exact", 4, 2).isEnabled());
+        assertTrue(new MinHashIndex(interestIndex, "approximate", 4, 2).isEnabled());
+        assertThrows(IllegalStateException.class, () -> new MinHashIndex(interestIndex, "fuzzy", 4, 2));
+        assertThrows(IllegalStateException.class, () -> new MinHashIndex(interestIndex, "approximate", 0, 2));
+    }
+}
@@ -0,0 +1,82 @@
+package com.friendfinder.suggestion;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SuggestionQueueCacheTest {
+
+    private InterestIndex interestIndex;
+    private SuggestionQueueCache cache;
+
+    @BeforeEach
+    void setUp() {
+        interestIndex = mock(InterestIndex.class);
+        cache = new SuggestionQueueCache(interestIndex, 2);
+    }
+
+    private static SuggestionQueue queue(long... ids) {
+        return new SuggestionQueue(ids, SuggestionCursor.start(), false);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedQueue() {
+        cache.putIfUnchanged(1L, queue(10L), cache.version());
+        cache.putIfUnchanged(2L, queue(20L), cache.version());
+        cache.get(1L);
+        cache.putIfUnchanged(3L, queue(30L), cache.version());
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(1L));
+        assertNull(cache.get(2L));
+        assertNotNull(cache.get(3L));
+    }
+
+    @Test
+    void queueBuiltBeforeInvalidationIsNotCached() {
+        long version = cache.version();
+        cache.invalidate(5L);
+
+        assertFalse(cache.putIfUnchanged(1L, queue(10L), version));
+        assertNull(cache.get(1L));
+    }
+
+    @Test
+    void removedCandidatesAreSkipped() {
+        cache.putIfUnchanged(1L, queue(10L, 11L, 12L), cache.version());
+        cache.putIfUnchanged(2L, queue(11L, 13L), cache.version());
+
+        cache.removeCandidate(1L, 10L);
+        assertEquals(11L, cache.get(1L).peek());
+
+        cache.removeCandidateEverywhere(11L);
+        assertEquals(12L, cache.get(1L).peek());
+        assertEquals(13L, cache.get(2L).peek());
+    }
+
+    @Test
+    void invalidatesUsersSharingInterests() {
+        when(interestIndex.bitsetOf(1L)).thenReturn(new long[]{0b011L});
+        when(interestIndex.bitsetOf(2L)).thenReturn(new long[]{0b100L});
+        cache.putIfUnchanged(1L, queue(10L), cache.version());
+        cache.putIfUnchanged(2L, queue(20L), cache.version());
+
+        cache.invalidateUsersSharing(new long[]{0b010L});
+
+        assertNull(cache.get(1L));
+        assertNotNull(cache.get(2L));
+    }
+
+    @Test
+    void emptyQueueReportsExhaustion() {
+        SuggestionQueue queue = new SuggestionQueue(new long[]{7L}, SuggestionCursor.start(), true);
+        assertFalse(queue.isEmpty());
+
+        assertTrue(queue.remove(7L));
+        assertTrue(queue.isEmpty());
+        assertNull(queue.peek());
+        assertTrue(queue.isExhausted());
+    }
+}
@@ -0,0 +1,126 @@
+package com.friendfinder.suggestion;
+
+import com.friendfinder.graph.FriendGraph;
+import com.friendfinder.repository.UserRepository;
+import com.friendfinder.strategy.IdfSimilarityStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SuggestionRankerTest {
+
+    private InterestIndex index;
+    private InterestScorer scorer;
+    private SuggestionRanker sequential;
+    private SuggestionRanker parallel;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(3);
+        List<Object[]> pairs = new ArrayList<>();
+        for (long user = 1; user <= 3000; user++) {
+            for (int i = 1 + random.nextInt(4); i > 0; i--) {
+                pairs.add(new Object[]{user, (long) random.nextInt(12)});
+            }
+        }
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findAllUserInterestIds()).thenReturn(pairs);
+        index = new InterestIndex(userRepository);
+        scorer = new InterestScorer(index, List.of(new IdfSimilarityStrategy()), "idf");
+        sequential = new SuggestionRanker(scorer, Integer.MAX_VALUE, 1);
+        parallel = new SuggestionRanker(scorer, 37, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sequential.shutdown();
+        parallel.shutdown();
+    }
+
+    private static List<Long> drain(TopK top) {
+        float[] scores = new float[top.size()];
+        long[] ids = new long[top.size()];
+        int count = top.drainTo(scores, ids);
+        List<Long> ranked = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ranked.add(ids[i]);
+        }
+        return ranked;
+    }
+
+    @Test
+    void parallelScoresMatchSequential() {
+        InterestIndex.Overlap overlap = index.overlapping(1L);
+
+        assertTrue(overlap.size() > parallel.getThreshold());
+        assertArrayEquals(sequential.score(1L, overlap), parallel.score(1L, overlap));
+    }
+
+    @Test
+    void parallelRankingMatchesSequentialAcrossPages() {
+        InterestIndex.Overlap overlap = index.overlapping(1L);
+        ScoredCandidates candidates = ScoredCandidates.merge(overlap, sequential.score(1L, overlap),
+                new FriendGraph.Mutual(new long[0], new int[0], 0), 1f);
+
+        SuggestionCursor cursor = SuggestionCursor.start();
+        for (int page = 0; page < 5; page++) {
+            List<Long> expected = drain(sequential.top(candidates, 25, cursor, id -> id % 7 == 0));
+            TopK top = parallel.top(candidates, 25, cursor, id -> id % 7 == 0);
+            float[] scores = new float[top.size()];
+            long[] ids = new long[top.size()];
+            top.drainTo(scores, ids);
+
+            assertEquals(25, ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                assertEquals(expected.get(i), ids[i]);
+            }
+            cursor = new SuggestionCursor(scores[ids.length - 1], ids[ids.length - 1]);
+        }
+    }
+
+    @Test
+    void parallelTopTenMatchesSequentialWhenMostScoresTie() {
+        // few interests among many students, so most candidates share a score and only the id orders them
+        Random random = new Random(11);
+        List<Object[]> pairs = new ArrayList<>();
+        pairs.add(new Object[]{0L, 1L});
+        pairs.add(new Object[]{0L, 2L});
+        for (long student = 1; student <= 5000; student++) {
+            for (int i = 1 + random.nextInt(3); i > 0; i--) {
+                pairs.add(new Object[]{student, (long) random.nextInt(8)});
+            }
+        }
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findAllUserInterestIds()).thenReturn(pairs);
+        InterestIndex students = new InterestIndex(userRepository);
+        InterestScorer studentScorer = new InterestScorer(students, List.of(new IdfSimilarityStrategy()), "idf");
+        SuggestionRanker oneThread = new SuggestionRanker(studentScorer, Integer.MAX_VALUE, 1);
+        SuggestionRanker forkJoin = new SuggestionRanker(studentScorer, 64, 4);
+        try {
+            InterestIndex.Overlap overlap = students.overlapping(0L);
+            assertTrue(overlap.size() > forkJoin.getThreshold());
+            ScoredCandidates candidates = ScoredCandidates.merge(overlap, oneThread.score(0L, overlap),
+                    new FriendGraph.Mutual(new long[0], new int[0], 0), 1f);
+            List<Long> expected = drain(oneThread.top(candidates, 10, SuggestionCursor.start(), id -> false));
+
+            assertEquals(10, expected.size());
+            assertArrayEquals(oneThread.score(0L, overlap), forkJoin.score(0L, overlap));
+            assertEquals(expected, drain(forkJoin.top(candidates, 10, SuggestionCursor.start(), id -> false)));
+        } finally {
+            oneThread.shutdown();
+            forkJoin.shutdown();
+        }
+    }
+
+    @Test
+    void rejectsNonPositiveThreshold() {
+        assertThrows(IllegalStateException.class, () -> new SuggestionRanker(scorer, 0, 1));
+    }
+}
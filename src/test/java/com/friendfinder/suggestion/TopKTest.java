@@ -0,0 +1,76 @@
+package com.friendfinder.suggestion;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKTest {
+
+    @Test
+    void keepsTheBestCandidatesInRankOrder() {
+        TopK top = new TopK(3);
+        top.offer(1f, 10L);
+        top.offer(3f, 20L);
+        top.offer(2f, 30L);
+        top.offer(3f, 5L);
+        top.offer(0f, 1L);
+
+        float[] scores = new float[3];
+        long[] ids = new long[3];
+        assertEquals(3, top.drainTo(scores, ids));
+
+        assertArrayEquals(new long[]{5L, 20L, 30L}, ids);
+        assertArrayEquals(new float[]{3f, 3f, 2f}, scores);
+        assertEquals(0, top.size());
+    }
+
+    @Test
+    void matchesFullSortOnRandomInput() {
+        Random random = new Random(42);
+        int n = 500;
+        float[] allScores = new float[n];
+        TopK top = new TopK(25);
+        for (int i = 0; i < n; i++) {
+            allScores[i] = random.nextInt(8);
+            top.offer(allScores[i], i);
+        }
+
+        float[] scores = new float[25];
+        long[] ids = new long[25];
+        top.drainTo(scores, ids);
+
+        // every kept candidate ranks before every candidate that was left out
+        for (int i = 1; i < 25; i++) {
+            assertTrue(TopK.ranksBefore(scores[i - 1], ids[i - 1], scores[i], ids[i]));
+        }
+        int kept = 0;
+        for (int i = 0; i < n; i++) {
+            if (TopK.ranksBefore(allScores[i], i, scores[24], ids[24]) || i == ids[24]) {
+                kept++;
+            }
+        }
+        assertEquals(25, kept);
+    }
+
+    @Test
+    void emptyHeapAcceptsNothing() {
+        TopK top = new TopK(0);
+        top.offer(5f, 1L);
+
+        assertTrue(top.isFull());
+        assertEquals(0, top.size());
+    }
+
+    @Test
+    void cursorTokenRoundTrips() {
+        SuggestionCursor cursor = new SuggestionCursor(2.5f, 42L);
+
+        assertEquals(cursor, SuggestionCursor.fromToken(cursor.toToken()));
+        assertEquals(SuggestionCursor.start(), SuggestionCursor.fromToken(null));
+        assertTrue(cursor.isBefore(2.5f, 43L));
+        assertFalse(cursor.isBefore(2.5f, 41L));
+        assertThrows(IllegalArgumentException.class, () -> SuggestionCursor.fromToken("x"));
+    }
+}
@@ -0,0 +1,32 @@
+-- A database as ddl-auto=update left it before the sequence numbers existed: identity ids, no
+-- sequences, no seq_no or last_sequence columns and none of the explicit hot path indexes
+create table chat (chat_id bigint generated by default as identity, created_at timestamp(6), chat_name varchar(255), chat_type varchar(255), primary key (chat_id));
+create table chat_activity (chat_id bigint not null, last_activity_at timestamp(6) not null, last_message_id bigint, last_sender_id bigint, message_count bigint not null, last_message_preview varchar(200), primary key (chat_id));
+create table chat_participants (chat_id bigint not null, user_id bigint not null, primary key (chat_id, user_id));
+create table chat_read_cursors (chat_id bigint not null, id bigint not null, last_read_message_id bigint not null, read_at timestamp(6) not null, user_id bigint not null, primary key (id), constraint uk_chat_read_cursor unique (chat_id, user_id));
+create table dislikes (created_at timestamp(6) not null, disliked_id bigint generated by default as identity, id bigint not null, user_id bigint not null, primary key (id), unique (user_id, disliked_id));
+create table friend_requests (id bigint not null, receiver_user_id bigint, sender_user_id bigint, primary key (id));
+create table friends_relation (friend_id bigint not null, user_id bigint not null);
+create table interest_table (interest_id bigint generated by default as identity, name varchar(255) unique, primary key (interest_id));
+create table message (is_edited boolean, chat_id bigint not null, edited_at timestamp(6), message_id bigint generated by default as identity, timestamp timestamp(6), user_id bigint not null, content TEXT not null, message_type varchar(255), primary key (message_id));
+create table message_tombstones (chat_id bigint not null, deleted_at timestamp(6) not null, id bigint not null, message_id bigint not null, seq_no bigint not null, primary key (id));
+create table message_read_receipt (id bigint generated by default as identity, message_id bigint not null, read_at timestamp(6) not null, user_id bigint not null, primary key (id));
+create table user_interest (interest_id bigint not null, user_id bigint not null);
+create table user_table (user_id bigint not null, email varchar(255) unique, name varchar(255), password varchar(255), primary key (user_id));
+create index idx_chat_activity_last_activity on chat_activity (last_activity_at);
+create index idx_message_chat_message on message (chat_id, message_id);
+create index idx_message_chat_timestamp on message (chat_id, timestamp, message_id);
+alter table if exists chat_participants add constraint FK3kjy4ugf7x84sy8io7gqd3n7t foreign key (user_id) references user_table;
+alter table if exists chat_participants add constraint FK44t5cpu2fejyqk36kb8pico4u foreign key (chat_id) references chat;
+alter table if exists dislikes add constraint FKnd4rfb8ekchu4sxv76scfaffr foreign key (disliked_id) references user_table;
+alter table if exists dislikes add constraint FK88gamnhuh22tng3ga4b2cmojf foreign key (user_id) references user_table;
+alter table if exists friend_requests add constraint FKfacbaxjlp9gygqmntdoaka12o foreign key (receiver_user_id) references user_table;
+alter table if exists friend_requests add constraint FKcofmp8e099vwx2i2ad5rqvxwn foreign key (sender_user_id) references user_table;
+alter table if exists friends_relation add constraint FKepxyprfwil7g6mvlq4ejpv31l foreign key (friend_id) references user_table;
+alter table if exists friends_relation add constraint FKr1u0lj00nwvgn9scq6rw11h19 foreign key (user_id) references user_table;
+alter table if exists message add constraint FKmejd0ykokrbuekwwgd5a5xt8a foreign key (chat_id) references chat;
+alter table if exists message add constraint FK9nnuwmtpv43anoa9gflhed0yv foreign key (user_id) references user_table;
+alter table if exists message_read_receipt add constraint FKdy2m9a1pslrt547egonsa37q4 foreign key (message_id) references message;
+alter table if exists message_read_receipt add constraint FKi6js1sdee164p4093ppaad2ic foreign key (user_id) references user_table;
+alter table if exists user_interest add constraint FKmbn2cjav2us2esvuo0q1wg94w foreign key (interest_id) references interest_table;
+alter table if exists user_interest add constraint FK1wjvypga27h5tut95e9h27r72 foreign key (user_id) references user_table;